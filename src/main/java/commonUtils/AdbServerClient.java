@@ -0,0 +1,279 @@
+package commonUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Talks to the local adb server over its smart-socket protocol instead of launching the adb client.
+ * Every request is a 4 digit hex length followed by the service name, answered by OKAY or FAIL.
+ * Device services (shell:, exec:, sync:) are reached after switching the connection with host:transport.
+ */
+public class AdbServerClient {
+
+    private static final String EXIT_MARKER = "__PERF_EXIT__";
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int SYNC_MAX_CHUNK = 64 * 1024;
+
+    private final String host;
+    private final int port;
+    private final int readTimeoutMs, transferTimeoutMs;
+
+    /**
+     * Creates a client for the adb server listening on the given address.
+     *
+     * @param host          The adb server host, normally localhost.
+     * @param port          The adb server port, normally 5037.
+     * @param readTimeoutMs The longest a read may block before the request is abandoned, 0 for no limit.
+     */
+    public AdbServerClient(String host, int port, int readTimeoutMs) {
+        this(host, port, readTimeoutMs, readTimeoutMs);
+    }
+
+    /**
+     * Creates a client for the adb server listening on the given address, allowing file transfers and installs
+     * a longer read timeout than other requests.
+     *
+     * @param host              The adb server host, normally localhost.
+     * @param port              The adb server port, normally 5037.
+     * @param readTimeoutMs     The longest a read may block before the request is abandoned, 0 for no limit.
+     * @param transferTimeoutMs The same for push, pull and install, 0 for no limit.
+     */
+    public AdbServerClient(String host, int port, int readTimeoutMs, int transferTimeoutMs) {
+        this.host = host;
+        this.port = port;
+        this.readTimeoutMs = readTimeoutMs;
+        this.transferTimeoutMs = transferTimeoutMs;
+    }
+
+    /**
+     * Runs a shell command on the device and returns its output and exit code.
+     * The shell service does not report exit codes, so one is echoed after the command and stripped from the output.
+     *
+     * @param DSN     The device serial number.
+     * @param command The command to run in the device shell.
+     * @return The completed process holding the command output and exit code.
+     * @throws IOException If the adb server or the device rejects the request.
+     */
+    public CapturedProcess shell(String DSN, String command) throws IOException {
+        return shell(DSN, command, readTimeoutMs);
+    }
+
+    private CapturedProcess shell(String DSN, String command, int timeoutMs) throws IOException {
+        String output = new String(deviceService(DSN, "shell:{ " + command.trim() + " ; } 2>/dev/null; echo "
+                + EXIT_MARKER + "$?", timeoutMs), StandardCharsets.UTF_8);
+        int index = output.lastIndexOf(EXIT_MARKER);
+        if (index < 0) return new CapturedProcess(output, -1);
+        int exitCode;
+        try {
+            exitCode = Integer.parseInt(output.substring(index + EXIT_MARKER.length()).trim());
+        } catch (NumberFormatException e) {
+            exitCode = -1;
+        }
+        return new CapturedProcess(output.substring(0, index), exitCode);
+    }
+
+    /**
+     * Runs a command through the raw exec service, which passes binary output through unmodified.
+     * The exec service does not report the exit code of the command, and echoing one like {@link #shell} does
+     * would corrupt binary output, so the exit code is always 0 once the device accepted the request. Callers must
+     * not rely on it; commands whose status matters go through {@link #shell}.
+     *
+     * @param DSN     The device serial number.
+     * @param command The command to run on the device.
+     * @return The completed process holding the command output, with exit code 0.
+     * @throws IOException If the adb server or the device rejects the request.
+     */
+    public CapturedProcess exec(String DSN, String command) throws IOException {
+        return new CapturedProcess(new String(deviceService(DSN, "exec:" + command.trim(), readTimeoutMs),
+                StandardCharsets.UTF_8), 0);
+    }
+
+    /**
+     * Connects a network device to the adb server, equivalent to {@code adb connect}.
+     *
+     * @param address The IP address (and optional port) of the device.
+     * @return The completed process holding the server reply.
+     * @throws IOException If the adb server cannot be reached.
+     */
+    public CapturedProcess connect(String address) throws IOException {
+        try (Socket socket = open(readTimeoutMs)) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            sendRequest(socket.getOutputStream(), in, "host:connect:" + address);
+            String reply = readString(in, readHexLength(in));
+            return new CapturedProcess(reply + "\n", reply.startsWith("connected") || reply.startsWith("already") ? 0 : 1);
+        }
+    }
+
+    /**
+     * Copies a file from the device to the host through the sync service.
+     *
+     * @param DSN       The device serial number.
+     * @param remote    The path of the file on the device.
+     * @param localFile The destination file on the host.
+     * @throws IOException If the transfer fails.
+     */
+    public void pull(String DSN, String remote, File localFile) throws IOException {
+        try (Socket socket = openSync(DSN); OutputStream file = new FileOutputStream(localFile)) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            writeSyncPacket(out, "RECV", remote.getBytes(StandardCharsets.UTF_8));
+            byte[] buffer = new byte[SYNC_MAX_CHUNK];
+            while (true) {
+                String id = readString(in, 4);
+                int length = readLittleEndianInt(in);
+                if (id.equals("DONE")) break;
+                if (id.equals("FAIL")) throw new IOException("adb pull failed: " + readString(in, length));
+                if (!id.equals("DATA") || length > buffer.length)
+                    throw new IOException("Unexpected sync response: " + id);
+                in.readFully(buffer, 0, length);
+                file.write(buffer, 0, length);
+            }
+            writeSyncPacket(out, "QUIT", new byte[0]);
+        }
+    }
+
+    /**
+     * Copies a file from the host to the device through the sync service.
+     *
+     * @param DSN       The device serial number.
+     * @param localFile The source file on the host.
+     * @param remote    The destination path on the device.
+     * @throws IOException If the transfer fails.
+     */
+    public void push(String DSN, File localFile, String remote) throws IOException {
+        try (Socket socket = openSync(DSN); InputStream file = new FileInputStream(localFile)) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            writeSyncPacket(out, "SEND", (remote + ",420").getBytes(StandardCharsets.UTF_8));
+            byte[] buffer = new byte[SYNC_MAX_CHUNK];
+            int read;
+            while ((read = file.read(buffer)) > 0) {
+                out.write("DATA".getBytes(StandardCharsets.US_ASCII));
+                out.write(littleEndianInt(read));
+                out.write(buffer, 0, read);
+            }
+            out.write("DONE".getBytes(StandardCharsets.US_ASCII));
+            out.write(littleEndianInt((int) (localFile.lastModified() / 1000)));
+            out.flush();
+            String id = readString(in, 4);
+            int length = readLittleEndianInt(in);
+            if (!id.equals("OKAY")) throw new IOException("adb push failed: " + readString(in, length));
+            writeSyncPacket(out, "QUIT", new byte[0]);
+        }
+    }
+
+    /**
+     * Installs an APK by pushing it to a temporary location and running the package manager on it,
+     * both bounded by the transfer timeout.
+     *
+     * @param DSN     The device serial number.
+     * @param apkFile The APK file on the host.
+     * @return The completed process holding the package manager output.
+     * @throws IOException If the push or the install request fails.
+     */
+    public CapturedProcess install(String DSN, File apkFile) throws IOException {
+        String remote = "/data/local/tmp/" + apkFile.getName().replace(" ", "_");
+        push(DSN, apkFile, remote);
+        return shell(DSN, "pm install -r " + remote + "; rm -f " + remote, transferTimeoutMs);
+    }
+
+    /**
+     * Switches a new connection to the device and runs one device service, reading its output to the end.
+     *
+     * @param DSN       The device serial number.
+     * @param service   The device service request, e.g. "shell:ls".
+     * @param timeoutMs The longest a read may block, 0 for no limit.
+     * @return The raw bytes produced by the service.
+     * @throws IOException If the adb server or the device rejects the request.
+     */
+    private byte[] deviceService(String DSN, String service, int timeoutMs) throws IOException {
+        try (Socket socket = open(timeoutMs)) {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            sendRequest(out, in, "host:transport:" + DSN);
+            sendRequest(out, in, service);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            in.transferTo(output);
+            return output.toByteArray();
+        }
+    }
+
+    private Socket openSync(String DSN) throws IOException {
+        Socket socket = open(transferTimeoutMs);
+        try {
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            sendRequest(socket.getOutputStream(), in, "host:transport:" + DSN);
+            sendRequest(socket.getOutputStream(), in, "sync:");
+            return socket;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private Socket open(int timeoutMs) throws IOException {
+        Socket socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+        socket.setSoTimeout(timeoutMs);
+        return socket;
+    }
+
+    /**
+     * Sends one length-prefixed request and checks that the server answered OKAY.
+     *
+     * @param out     The socket output stream.
+     * @param in      The socket input stream.
+     * @param request The request payload.
+     * @throws IOException If the server answered FAIL or closed the connection.
+     */
+    private void sendRequest(OutputStream out, DataInputStream in, String request) throws IOException {
+        byte[] payload = request.getBytes(StandardCharsets.UTF_8);
+        out.write(String.format(Locale.ROOT, "%04x", payload.length).getBytes(StandardCharsets.US_ASCII));
+        out.write(payload);
+        out.flush();
+        String status = readString(in, 4);
+        if (status.equals("OKAY")) return;
+        if (status.equals("FAIL")) throw new IOException("adb server refused " + request + ": "
+                + readString(in, readHexLength(in)));
+        throw new IOException("Unexpected adb server status for " + request + ": " + status);
+    }
+
+    private void writeSyncPacket(OutputStream out, String id, byte[] data) throws IOException {
+        out.write(id.getBytes(StandardCharsets.US_ASCII));
+        out.write(littleEndianInt(data.length));
+        out.write(data);
+        out.flush();
+    }
+
+    private int readHexLength(DataInputStream in) throws IOException {
+        return Integer.parseInt(readString(in, 4), 16);
+    }
+
+    private String readString(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int readLittleEndianInt(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[4];
+        in.readFully(bytes);
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    private byte[] littleEndianInt(int value) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+    }
+}
@@ -0,0 +1,164 @@
+package commonUtils;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one long-lived {@code adb shell} per device and runs commands over it.
+ * Every command is followed by an echoed sentinel carrying a sequence number and the exit code,
+ * so the output of each command can be framed out of the shared stream without spawning a new adb client.
+ */
+public class AdbShellSession {
+
+    private static final Logger log = Logger.getLogger(AdbShellSession.class.getSimpleName());
+    private static final Map<String, AdbShellSession> SESSIONS = new ConcurrentHashMap<>();
+    private static final String SENTINEL = "__PERF_CMD_END__";
+
+    private final String DSN;
+    private volatile Process shell;
+    private BufferedWriter writer;
+    private BufferedReader reader;
+    private long sequence = 0;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(AdbShellSession::closeAll));
+    }
+
+    private AdbShellSession(String DSN) {
+        this.DSN = DSN;
+    }
+
+    /**
+     * Returns the shared shell session for the given device, creating it on first use.
+     *
+     * @param DSN The device serial number.
+     * @return The shell session bound to the device.
+     */
+    public static AdbShellSession forDevice(String DSN) {
+        return SESSIONS.computeIfAbsent(DSN, AdbShellSession::new);
+    }
+
+    /**
+     * Closes the shell session of the given device, if one is open.
+     * Needed whenever the device goes away, e.g. on reboot or reconnect.
+     *
+     * @param DSN The device serial number.
+     */
+    public static void closeSession(String DSN) {
+        AdbShellSession session = SESSIONS.remove(DSN);
+        if (session != null) session.close();
+    }
+
+    /**
+     * Closes all open shell sessions.
+     */
+    public static void closeAll() {
+        for (String DSN : new ArrayList<>(SESSIONS.keySet())) {
+            closeSession(DSN);
+        }
+    }
+
+    /**
+     * Executes a single shell command on the device and waits for its framed output.
+     *
+     * @param command The command to run in the device shell (without the leading "shell").
+     * @return The completed process holding the command output and exit code.
+     * @throws IOException If the shell session is broken.
+     */
+    public CapturedProcess execute(String command) throws IOException {
+        return executeAll(Collections.singletonList(command)).get(0);
+    }
+
+    /**
+     * Pipelines several shell commands to the device in one write and collects their outputs in order.
+     *
+     * @param commands The commands to run in the device shell.
+     * @return The completed processes, one per command, in submission order.
+     * @throws IOException If the shell session is broken.
+     */
+    public synchronized List<CapturedProcess> executeAll(List<String> commands) throws IOException {
+        try {
+            ensureOpen();
+            long first = sequence + 1;
+            StringBuilder script = new StringBuilder();
+            for (String command : commands) {
+                sequence++;
+                script.append("{ ").append(command.trim()).append(" ; } </dev/null 2>/dev/null; echo \"")
+                        .append(SENTINEL).append(sequence).append(":$?\"\n");
+            }
+            writer.write(script.toString());
+            writer.flush();
+
+            List<CapturedProcess> results = new ArrayList<>();
+            for (long seq = first; seq <= sequence; seq++) {
+                results.add(readFrame(seq));
+            }
+            return results;
+        } catch (IOException e) {
+            log.error(DSN + ": adb shell session broken, closing it", e);
+            SESSIONS.remove(DSN, this);
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the output of one command up to and including its sentinel line.
+     *
+     * @param seq The sequence number of the expected sentinel.
+     * @return The completed process for the command.
+     * @throws IOException If the shell ends before the sentinel is seen.
+     */
+    private CapturedProcess readFrame(long seq) throws IOException {
+        String marker = SENTINEL + seq + ":";
+        StringBuilder output = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int index = line.indexOf(marker);
+            if (index < 0) {
+                output.append(line).append("\n");
+                continue;
+            }
+            // Output without a trailing newline ends up on the sentinel line itself
+            if (index > 0) output.append(line, 0, index).append("\n");
+            int exitCode;
+            try {
+                exitCode = Integer.parseInt(line.substring(index + marker.length()).trim());
+            } catch (NumberFormatException e) {
+                exitCode = -1;
+            }
+            return new CapturedProcess(output.toString(), exitCode);
+        }
+        throw new IOException("adb shell session ended before command " + seq + " completed");
+    }
+
+    private void ensureOpen() throws IOException {
+        if (shell != null && shell.isAlive()) return;
+        ProcessBuilder builder = new ProcessBuilder("adb", "-s", DSN, "shell");
+        builder.redirectErrorStream(true);
+        shell = builder.start();
+        writer = new BufferedWriter(new OutputStreamWriter(shell.getOutputStream(), StandardCharsets.UTF_8));
+        reader = new BufferedReader(new InputStreamReader(shell.getInputStream(), StandardCharsets.UTF_8));
+        log.info(DSN + ": adb shell session opened");
+    }
+
+    private void close() {
+        Process current = shell;
+        shell = null;
+        if (current == null) return;
+        // Destroying the shell also unblocks a reader still waiting on a sentinel
+        current.destroy();
+        log.info(DSN + ": adb shell session closed");
+    }
+}
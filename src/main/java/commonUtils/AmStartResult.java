@@ -0,0 +1,110 @@
+package commonUtils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The launch times the activity manager reports for one {@code am start -W} launch.
+ * {@code ThisTime} is the time to draw the last activity of the launch, {@code TotalTime} the time to draw all
+ * activities it started, both from the intent; {@code WaitTime} additionally includes the time the activity manager
+ * spent pausing the previous activity. Android 10 and later no longer report {@code ThisTime}.
+ */
+public class AmStartResult {
+
+    private static final Pattern FIELD = Pattern.compile("^(Status|LaunchState|ThisTime|TotalTime|WaitTime):\\s*(\\S+)");
+
+    private final String status, launchState;
+    private final double thisTime, totalTime, waitTime;
+
+    AmStartResult(String status, String launchState, double thisTime, double totalTime, double waitTime) {
+        this.status = status;
+        this.launchState = launchState;
+        this.thisTime = thisTime;
+        this.totalTime = totalTime;
+        this.waitTime = waitTime;
+    }
+
+    /**
+     * Parses the output of {@code am start -W} or {@code am start-activity -W}, e.g.
+     * <pre>
+     * Status: ok
+     * LaunchState: HOT
+     * Activity: com.example/.MainActivity
+     * TotalTime: 212
+     * WaitTime: 230
+     * Complete
+     * </pre>
+     *
+     * @param output The output of the command.
+     * @return The launch times, or null if the output holds no {@code TotalTime}, e.g. when the launch failed.
+     */
+    public static AmStartResult parse(String output) {
+        String status = null, launchState = null;
+        double thisTime = 0, totalTime = -1, waitTime = 0;
+        for (String line : output.split("\n")) {
+            Matcher field = FIELD.matcher(line.trim());
+            if (!field.find()) continue;
+            String value = field.group(2);
+            try {
+                switch (field.group(1)) {
+                    case "Status":
+                        status = value;
+                        break;
+                    case "LaunchState":
+                        launchState = value;
+                        break;
+                    case "ThisTime":
+                        thisTime = Double.parseDouble(value);
+                        break;
+                    case "TotalTime":
+                        totalTime = Double.parseDouble(value);
+                        break;
+                    case "WaitTime":
+                        waitTime = Double.parseDouble(value);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (NumberFormatException e) {
+                // Not a launch time, e.g. a truncated line
+            }
+        }
+        return totalTime < 0 ? null : new AmStartResult(status, launchState, thisTime, totalTime, waitTime);
+    }
+
+    /**
+     * @return The status of the launch, e.g. "ok" or "timeout", or null if not reported.
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * @return The launch state the activity manager observed, e.g. "COLD", "WARM" or "HOT", or null on
+     * Android versions that do not report it.
+     */
+    public String getLaunchState() {
+        return launchState;
+    }
+
+    /**
+     * @return The ThisTime in milliseconds, 0 if not reported.
+     */
+    public double getThisTime() {
+        return thisTime;
+    }
+
+    /**
+     * @return The TotalTime in milliseconds.
+     */
+    public double getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * @return The WaitTime in milliseconds, 0 if not reported.
+     */
+    public double getWaitTime() {
+        return waitTime;
+    }
+}
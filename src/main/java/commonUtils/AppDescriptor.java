@@ -0,0 +1,135 @@
+package commonUtils;
+
+import org.apache.log4j.Logger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Static facts about an installed app (launcher activity, version, SDK levels, install time)
+ * parsed once from {@code dumpsys package <pkg>} and cached until the app is reinstalled or removed.
+ */
+public class AppDescriptor {
+
+    private static final Logger log = Logger.getLogger(AppDescriptor.class.getSimpleName());
+    private static final Map<String, AppDescriptor> DESCRIPTORS = new ConcurrentHashMap<>();
+    private static final String MAIN_ACTION = "android.intent.action.MAIN";
+
+    private final String appPackage;
+    private String launcherActivity, versionCode, versionName, minSdk, targetSdk, firstInstallTime, lastUpdateTime;
+
+    private AppDescriptor(String appPackage) {
+        this.appPackage = appPackage;
+    }
+
+    /**
+     * Returns the cached descriptor of the app, running one {@code dumpsys package} on first use.
+     * Nothing is cached when the package is not installed, so the next call looks again.
+     *
+     * @param DSN        The Device Serial Number (DSN) of the device.
+     * @param appPackage The package name of the app.
+     * @param cmd        The command executor used to reach the device.
+     * @return The app descriptor, with null fields if the package could not be read.
+     */
+    public static AppDescriptor get(String DSN, String appPackage, Commands cmd) {
+        String key = DSN + "/" + appPackage;
+        AppDescriptor descriptor = DESCRIPTORS.get(key);
+        if (descriptor != null) return descriptor;
+        descriptor = parse(appPackage, cmd.adbRun(DSN, cmd.ADB_DUMPSYS_PACKAGE + appPackage).getStdout());
+        if (descriptor.versionName == null && descriptor.launcherActivity == null) {
+            log.error(DSN + ": Unable to read package details of " + appPackage);
+            return descriptor;
+        }
+        DESCRIPTORS.put(key, descriptor);
+        log.info(DSN + ": App descriptor cached - " + appPackage + " " + descriptor.versionName);
+        return descriptor;
+    }
+
+    /**
+     * Drops every cached app descriptor of the device, to be called when apps are installed or removed.
+     *
+     * @param DSN The Device Serial Number (DSN) of the device.
+     */
+    public static void invalidateDevice(String DSN) {
+        DESCRIPTORS.keySet().removeIf(key -> key.startsWith(DSN + "/"));
+    }
+
+    /**
+     * Parses the output of {@code dumpsys package <pkg>}.
+     * The first package entry wins, so an updated system app reports the update rather than the hidden system copy.
+     *
+     * @param appPackage The package name of the app.
+     * @param dump       The dumpsys package output.
+     * @return The parsed descriptor.
+     */
+    static AppDescriptor parse(String appPackage, String dump) {
+        AppDescriptor descriptor = new AppDescriptor(appPackage);
+        boolean afterMainAction = false;
+        for (String rawLine : dump.split("\n")) {
+            String line = rawLine.trim();
+            if (line.contains(MAIN_ACTION)) {
+                afterMainAction = true;
+                continue;
+            }
+            if (afterMainAction && descriptor.launcherActivity == null && line.contains(appPackage + "/")) {
+                // e.g. "5f1c2e0 com.example.app/.MainActivity filter 8b3a9d1"
+                String activity = line.substring(line.indexOf(appPackage + "/") + appPackage.length() + 1).split(" ")[0];
+                descriptor.launcherActivity = appPackage + "/" + activity;
+                continue;
+            }
+            if (line.isEmpty() || line.endsWith(":")) afterMainAction = false;
+            for (String token : line.split("\\s+")) {
+                if (token.startsWith("versionCode=") && descriptor.versionCode == null)
+                    descriptor.versionCode = token.substring("versionCode=".length());
+                else if (token.startsWith("minSdk=") && descriptor.minSdk == null)
+                    descriptor.minSdk = token.substring("minSdk=".length());
+                else if (token.startsWith("targetSdk=") && descriptor.targetSdk == null)
+                    descriptor.targetSdk = token.substring("targetSdk=".length());
+            }
+            if (line.startsWith("versionName=") && descriptor.versionName == null)
+                descriptor.versionName = line.substring("versionName=".length());
+            else if (line.startsWith("firstInstallTime=") && descriptor.firstInstallTime == null)
+                descriptor.firstInstallTime = line.substring("firstInstallTime=".length());
+            else if (line.startsWith("lastUpdateTime=") && descriptor.lastUpdateTime == null)
+                descriptor.lastUpdateTime = line.substring("lastUpdateTime=".length());
+        }
+        return descriptor;
+    }
+
+    public String getAppPackage() {
+        return appPackage;
+    }
+
+    /**
+     * Returns the launch intent component of the app's MAIN activity, e.g. "com.example.app/.MainActivity".
+     *
+     * @return The launcher activity component, or null if none was found.
+     */
+    public String getLauncherActivity() {
+        return launcherActivity;
+    }
+
+    public String getVersionCode() {
+        return versionCode;
+    }
+
+    public String getVersionName() {
+        return versionName;
+    }
+
+    public String getMinSdk() {
+        return minSdk;
+    }
+
+    public String getTargetSdk() {
+        return targetSdk;
+    }
+
+    public String getFirstInstallTime() {
+        return firstInstallTime;
+    }
+
+    public String getLastUpdateTime() {
+        return lastUpdateTime;
+    }
+}
@@ -0,0 +1,84 @@
+package commonUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A completed {@link Process} whose output has already been captured in memory.
+ * Used when a command is served by a persistent transport instead of a freshly spawned adb client,
+ * so callers that read {@code getInputStream()} keep working unchanged.
+ */
+public class CapturedProcess extends Process {
+
+    private final byte[] output;
+    private final byte[] error;
+    private final int exitCode;
+
+    /**
+     * Creates a completed process from the captured command output.
+     *
+     * @param output   The standard output of the command.
+     * @param exitCode The exit code reported for the command.
+     */
+    public CapturedProcess(String output, int exitCode) {
+        this(output, "", exitCode);
+    }
+
+    /**
+     * Creates a completed process from the captured command output and error streams.
+     *
+     * @param output   The standard output of the command.
+     * @param error    The standard error of the command.
+     * @param exitCode The exit code reported for the command.
+     */
+    public CapturedProcess(String output, String error, int exitCode) {
+        this.output = output.getBytes(StandardCharsets.UTF_8);
+        this.error = error.getBytes(StandardCharsets.UTF_8);
+        this.exitCode = exitCode;
+    }
+
+    /**
+     * Returns the captured standard output as text.
+     *
+     * @return The standard output of the command.
+     */
+    public String getOutput() {
+        return new String(output, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public OutputStream getOutputStream() {
+        return OutputStream.nullOutputStream();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteArrayInputStream(output);
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return new ByteArrayInputStream(error);
+    }
+
+    @Override
+    public int waitFor() {
+        return exitCode;
+    }
+
+    @Override
+    public int exitValue() {
+        return exitCode;
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    @Override
+    public boolean isAlive() {
+        return false;
+    }
+}
@@ -0,0 +1,64 @@
+package commonUtils;
+
+/**
+ * Outcome of one adb command: captured output, exit code and how long it took.
+ * A command that missed its deadline or could not be started is reported with exit code -1.
+ */
+public class CommandResult {
+
+    private final String stdout;
+    private final String stderr;
+    private final int exitCode;
+    private final long elapsedMillis;
+    private final boolean timedOut;
+
+    /**
+     * Creates a command result.
+     *
+     * @param stdout        The standard output of the command.
+     * @param stderr        The standard error of the command.
+     * @param exitCode      The exit code of the command, -1 if it did not complete.
+     * @param elapsedMillis The wall-clock time the command took, in milliseconds.
+     * @param timedOut      Whether the command was stopped because it missed its deadline.
+     */
+    public CommandResult(String stdout, String stderr, int exitCode, long elapsedMillis, boolean timedOut) {
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.exitCode = exitCode;
+        this.elapsedMillis = elapsedMillis;
+        this.timedOut = timedOut;
+    }
+
+    public String getStdout() {
+        return stdout;
+    }
+
+    public String getStderr() {
+        return stderr;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public boolean isSuccess() {
+        return !timedOut && exitCode == 0;
+    }
+
+    /**
+     * Wraps the result as a completed {@link Process} for callers that read the output stream.
+     *
+     * @return A completed process holding this result.
+     */
+    public Process toProcess() {
+        return new CapturedProcess(stdout, stderr, exitCode);
+    }
+}
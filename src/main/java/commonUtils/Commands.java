@@ -2,11 +2,37 @@ package commonUtils;
 
 import org.apache.log4j.Logger;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class Commands {
 
     private final Logger log = Logger.getLogger(Commands.class.getSimpleName());
 
+    // Transport used to reach the device, configured through adbTransport in commonconfig.properties
+    public static final String TRANSPORT_PROCESS = "process", TRANSPORT_SESSION = "session", TRANSPORT_SOCKET = "socket";
+    private final String transport;
+    private final AdbServerClient adbServer;
+
     public final String ADB_SERIAL = "adb -s ";
+    public final String ADB_SHELL = " shell ";
+    public final String ADB_EXEC_OUT = " exec-out ";
 
     // ADB commands to fetch app level details
     public final String ADB_LIST_PACKAGES_3P = " shell pm list packages -3 ";
@@ -42,6 +68,10 @@ public class Commands {
     public final String ADB_LOGCAT_DUMP = " logcat -v threadtime -b all -d";
     public final String ADB_CLEAR_LOGCAT_VITALS = " logcat -b vitals -c";
     public final String ADB_DUMP_LOGCAT_VITALS = " logcat -b vitals -d ";
+    public final String ADB_LOGCAT_STREAM = " logcat -v threadtime -b all -b vitals";
+    // Followed by a quoted 'MM-DD hh:mm:ss.mmm' time; run through the shell, which keeps the quoted time one argument
+    public final String ADB_LOGCAT_STREAM_SINCE = " shell logcat -v threadtime -b all -b vitals -T ";
+    public final String ADB_LOG_SYNC = " shell log -t PerfLogcatSync ";
 
     //ADB command to interact with device
     public final String ADB_GO_HOME = " shell input keyevent KEYCODE_HOME";
@@ -58,6 +88,7 @@ public class Commands {
     public final String ADB_CONNECT = "adb connect ";
 
     //ADB command to fetch device level information
+    public final String ADB_GETPROP = " shell getprop";
     public final String ADB_DEVICE_OS = " shell getprop ro.build.version.release";
     public final String ADB_DEVICE_TYPE = " shell getprop ro.build.configuration";
     public final String ADB_DEVICE_TYPE_WSA = " shell getprop ro.build.product";
@@ -72,39 +103,311 @@ public class Commands {
     public final String ADB_GREP = " | grep ";
     public final String GET_USERINFO = " shell pm list users | grep UserInfo";
     public final String GET_PID = " shell pidof ";
+    public final String ADB_PROC = " shell cat /proc/";
+    public final String ADB_RUN_AS = " shell run-as ";
 
 
-    public Process process;
+    // Command threads per device; a single thread keeps back-to-back commands strictly ordered
+    private static final Map<String, ExecutorService> DEVICE_EXECUTORS = new ConcurrentHashMap<>();
+    // Stream draining and blocking transport calls, so the per-device thread can enforce the deadline
+    private static final ExecutorService REAPER = Executors.newCachedThreadPool(daemonThreads("adb-reaper"));
+    private static final long INSTALL_TIMEOUT_MS = 600000;
+    private final long commandTimeoutMs;
+    private final int maxConcurrentPerDevice;
+
+    /**
+     * Creates the command executor using the adb transport configured in the given properties.
+     *
+     * @param prop The loaded commonconfig properties, may be null to use plain adb processes.
+     */
+    public Commands(Properties prop) {
+        String configured = prop == null ? null : prop.getProperty("adbTransport");
+        transport = configured == null ? TRANSPORT_PROCESS : configured.trim().toLowerCase();
+        String timeout = prop == null ? null : prop.getProperty("adbCommandTimeout");
+        commandTimeoutMs = (timeout == null ? 120 : Long.parseLong(timeout.trim())) * 1000L;
+        String concurrency = prop == null ? null : prop.getProperty("adbMaxConcurrentPerDevice");
+        maxConcurrentPerDevice = concurrency == null ? 1 : Math.max(1, Integer.parseInt(concurrency.trim()));
+        String port = prop == null ? null : prop.getProperty("adbServerPort");
+        adbServer = new AdbServerClient("127.0.0.1", port == null ? 5037 : Integer.parseInt(port.trim()),
+                (int) commandTimeoutMs, (int) Math.max(commandTimeoutMs, INSTALL_TIMEOUT_MS));
+    }
 
     /**
      * Executes an adb command with the provided device serial number and message.
+     * The command runs through {@link #adbRun(String, String)}, so it is ordered with the other commands
+     * of the device, bounded by the default deadline and fully reaped before this method returns.
      *
      * @param DSN     The device serial number.
      * @param message The adb command message to execute.
-     * @return A Process object representing the adb process.
+     * @return A completed Process object holding the output of the adb command.
      */
     public Process adb(String DSN, String message) {
+        return adbRun(DSN, message).toProcess();
+    }
+
+    /**
+     * Executes an adb command and waits for its result, using the configured default deadline.
+     *
+     * @param DSN     The device serial number.
+     * @param message The adb command message to execute.
+     * @return The result of the command; a failed or timed out command is reported with exit code -1.
+     */
+    public CommandResult adbRun(String DSN, String message) {
+        long timeoutMs = message.startsWith(ADB_INSTALL) ? Math.max(commandTimeoutMs, INSTALL_TIMEOUT_MS)
+                : commandTimeoutMs;
         try {
-            process = Runtime.getRuntime().exec(ADB_SERIAL + DSN + message);
+            return adbAsync(DSN, message, timeoutMs).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error(DSN + ": Interrupted while executing adb command:" + message);
         } catch (Exception e) {
             log.error("Exception occurred while executing adb commands", e);
         }
-        return process;
+        return new CommandResult("", "", -1, 0, false);
+    }
+
+    /**
+     * Submits an adb command for asynchronous execution on the command queue of the device.
+     * In session mode, shell and logcat dump/clear commands are served by the persistent
+     * {@link AdbShellSession} of the device; in socket mode, shell, exec-out, install and uninstall
+     * commands are sent straight to the adb server. Everything else spawns an adb process.
+     * A command still running at its deadline is killed and completed as timed out; cancelling
+     * the returned future kills it as well.
+     *
+     * @param DSN       The device serial number.
+     * @param message   The adb command message to execute.
+     * @param timeoutMs The deadline of the command in milliseconds, measured from the moment it starts.
+     * @return A future completed with the result of the command.
+     */
+    public CompletableFuture<CommandResult> adbAsync(String DSN, String message, long timeoutMs) {
+        CompletableFuture<CommandResult> result = new CompletableFuture<>();
+        Future<?> task = executorFor(DSN).submit(() -> {
+            if (result.isDone()) return;
+            try {
+                result.complete(execute(DSN, message, timeoutMs));
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) task.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * Executes several adb commands for the same device, pipelining them over the shell session
+     * when every command can be served by it, otherwise running them one after another.
+     *
+     * @param DSN      The device serial number.
+     * @param messages The adb command messages to execute, in order.
+     * @return The completed Process objects of the commands, in the same order.
+     */
+    public List<Process> adb(String DSN, List<String> messages) {
+        List<String> shellCommands = new ArrayList<>();
+        for (String message : messages) {
+            String shellCommand = toShellCommand(message);
+            if (shellCommand == null) break;
+            shellCommands.add(shellCommand);
+        }
+        if (transport.equals(TRANSPORT_SESSION) && shellCommands.size() == messages.size()) {
+            try {
+                return new ArrayList<>(executorFor(DSN).submit(() ->
+                        AdbShellSession.forDevice(DSN).executeAll(shellCommands)).get(commandTimeoutMs, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                AdbShellSession.closeSession(DSN);
+                log.warn(DSN + ": adb shell session unavailable, falling back to adb process");
+            }
+        }
+        List<Process> processes = new ArrayList<>();
+        for (String message : messages) {
+            processes.add(adb(DSN, message));
+        }
+        return processes;
+    }
+
+    /**
+     * Starts a long-running adb command whose output is read while it runs, such as a streaming logcat.
+     * The process is not bounded by a deadline; the caller owns it and must destroy it.
+     *
+     * @param DSN     The device serial number.
+     * @param message The adb command message to start.
+     * @return The running adb process, with its error stream discarded.
+     * @throws IOException If the adb client cannot be started.
+     */
+    public Process adbStream(String DSN, String message) throws IOException {
+        return new ProcessBuilder((ADB_SERIAL + DSN + message).trim().split("\\s+"))
+                .redirectError(ProcessBuilder.Redirect.DISCARD).start();
+    }
+
+    /**
+     * Runs one adb command on the calling thread, dispatching it to the configured transport.
+     *
+     * @param DSN       The device serial number.
+     * @param message   The adb command message to execute.
+     * @param timeoutMs The deadline of the command in milliseconds.
+     * @return The result of the command.
+     * @throws InterruptedException If the command was cancelled while running.
+     */
+    private CommandResult execute(String DSN, String message, long timeoutMs) throws InterruptedException {
+        long start = System.nanoTime();
+        String shellCommand = toShellCommand(message);
+        if (shellCommand != null && transport.equals(TRANSPORT_SESSION)) {
+            CommandResult served = awaitServed(DSN, () -> AdbShellSession.forDevice(DSN).execute(shellCommand),
+                    () -> AdbShellSession.closeSession(DSN), start, timeoutMs);
+            if (served != null) return served;
+        } else if (transport.equals(TRANSPORT_SOCKET)) {
+            CommandResult served = awaitServed(DSN, () -> adbServerRequest(DSN, message, shellCommand),
+                    () -> { }, start, timeoutMs);
+            if (served != null) return served;
+        }
+        if (message.equals(ADB_SHELL_REBOOT)) AdbShellSession.closeSession(DSN);
+        return runProcess(ADB_SERIAL + DSN + message, start, timeoutMs);
+    }
+
+    /**
+     * Waits for a command served by a persistent transport, aborting the transport if the deadline passes.
+     *
+     * @param DSN       The device serial number.
+     * @param request   The blocking transport call.
+     * @param abort     Releases the transport when the call has to be abandoned.
+     * @param start     The start time of the command, from {@link System#nanoTime()}.
+     * @param timeoutMs The deadline of the command in milliseconds.
+     * @return The result of the command, or null if the transport could not serve it.
+     * @throws InterruptedException If the command was cancelled while running.
+     */
+    private CommandResult awaitServed(String DSN, Callable<CapturedProcess> request, Runnable abort,
+                                      long start, long timeoutMs) throws InterruptedException {
+        Future<CapturedProcess> served = REAPER.submit(request);
+        try {
+            CapturedProcess process = served.get(timeoutMs, TimeUnit.MILLISECONDS);
+            if (process == null) return null;
+            return new CommandResult(process.getOutput(), "", process.exitValue(), elapsedSince(start), false);
+        } catch (TimeoutException e) {
+            log.error(DSN + ": adb command missed its deadline of " + timeoutMs + " ms");
+            abort.run();
+            return new CommandResult("", "", -1, elapsedSince(start), true);
+        } catch (InterruptedException e) {
+            abort.run();
+            throw e;
+        } catch (ExecutionException e) {
+            log.warn(DSN + ": adb " + transport + " transport failed, falling back to adb process: "
+                    + e.getCause().getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Spawns an adb client process, drains both of its streams and always reaps it,
+     * killing it if it is still running at the deadline or when the command is cancelled.
+     *
+     * @param command   The full adb command line.
+     * @param start     The start time of the command, from {@link System#nanoTime()}.
+     * @param timeoutMs The deadline of the command in milliseconds.
+     * @return The result of the command.
+     * @throws InterruptedException If the command was cancelled while running.
+     */
+    private CommandResult runProcess(String command, long start, long timeoutMs) throws InterruptedException {
+        Process process = null;
+        try {
+            // Same whitespace tokenizing Runtime.exec(String) applied
+            process = new ProcessBuilder(command.trim().split("\\s+")).start();
+            Process started = process;
+            Future<String> stdout = REAPER.submit(() -> new String(started.getInputStream().readAllBytes(),
+                    StandardCharsets.UTF_8));
+            Future<String> stderr = REAPER.submit(() -> new String(started.getErrorStream().readAllBytes(),
+                    StandardCharsets.UTF_8));
+            if (!process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+                log.error("adb command missed its deadline of " + timeoutMs + " ms: " + command);
+                process.destroyForcibly();
+                return new CommandResult("", "", -1, elapsedSince(start), true);
+            }
+            return new CommandResult(stdout.get(), stderr.get(), process.exitValue(), elapsedSince(start), false);
+        } catch (IOException | ExecutionException e) {
+            log.error("Exception occurred while executing adb commands", e);
+            return new CommandResult("", "", -1, elapsedSince(start), false);
+        } finally {
+            if (process != null && process.isAlive()) process.destroyForcibly();
+        }
+    }
+
+    private ExecutorService executorFor(String DSN) {
+        return DEVICE_EXECUTORS.computeIfAbsent(DSN, key ->
+                Executors.newFixedThreadPool(maxConcurrentPerDevice, daemonThreads("adb-" + key)));
+    }
+
+    private static long elapsedSince(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Serves an adb command message through the adb server protocol instead of the adb client.
+     *
+     * @param DSN          The device serial number.
+     * @param message      The adb command message.
+     * @param shellCommand The device shell command of the message, or null if it is not a shell command.
+     * @return The completed process, or null if the message has no socket equivalent.
+     * @throws IOException If the adb server rejects the request.
+     */
+    private CapturedProcess adbServerRequest(String DSN, String message, String shellCommand) throws IOException {
+        if (shellCommand != null) return adbServer.shell(DSN, shellCommand);
+        if (message.startsWith(ADB_EXEC_OUT)) return adbServer.exec(DSN, message.substring(ADB_EXEC_OUT.length()));
+        if (message.startsWith(ADB_INSTALL)) return adbServer.install(DSN, new File(message.substring(ADB_INSTALL.length()).trim()));
+        if (message.startsWith(ADB_UNINSTALL)) return adbServer.shell(DSN, "pm uninstall " + message.substring(ADB_UNINSTALL.length()));
+        return null;
+    }
+
+    /**
+     * Maps an adb command message onto the command to run inside the device shell.
+     *
+     * @param message The adb command message.
+     * @return The device shell command, or null if the message must run as its own adb process.
+     */
+    private String toShellCommand(String message) {
+        if (message.equals(ADB_SHELL_REBOOT)) return null;
+        if (message.startsWith(ADB_SHELL)) return message.substring(ADB_SHELL.length());
+        String trimmed = message.trim();
+        // Only logcat calls that terminate on their own; a streaming logcat would never reach its sentinel
+        if (trimmed.startsWith("logcat") && (trimmed.endsWith(" -d") || trimmed.endsWith(" -c"))) return trimmed;
+        return null;
     }
 
     /**
      * Connects a device to adb using the provided IP address.
      *
      * @param ip The IP address of the device.
-     * @return A Process object representing the adb connect process.
+     * @return A completed Process object holding the output of the adb connect command.
      */
     public Process adbConnect(String ip) {
+        long start = System.nanoTime();
         try {
-            process = Runtime.getRuntime().exec(ADB_CONNECT + ip);
+            AdbShellSession.closeSession(ip);
+            DeviceProfile.invalidate(ip);
+            if (transport.equals(TRANSPORT_SOCKET)) {
+                try {
+                    return adbServer.connect(ip);
+                } catch (IOException e) {
+                    log.warn("adb server connect failed, falling back to adb process: " + e.getMessage());
+                }
+            }
+            return runProcess(ADB_CONNECT + ip, start, commandTimeoutMs).toProcess();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             log.info("Exception occurred while connecting device through IP Address", e);
         }
-        return process;
+        return new CapturedProcess("", -1);
     }
 
 }
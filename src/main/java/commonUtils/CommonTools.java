@@ -16,6 +16,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -32,6 +33,7 @@ public class CommonTools extends DataUtils {
     public Boolean installAppAPK(String DSN, File apkPath) throws InterruptedException {
         Process process;
         process = cmd.adb(DSN, cmd.ADB_INSTALL + apkPath);
+        AppDescriptor.invalidateDevice(DSN);
         log.info("Installing the app");
         process.waitFor();
         try (BufferedReader read =
@@ -62,6 +64,7 @@ public class CommonTools extends DataUtils {
                 line = line.split("package:")[1];
                 cmd.adb(DSN, cmd.ADB_UNINSTALL + line);
             }
+            AppDescriptor.invalidateDevice(DSN);
             try (BufferedReader reader = new BufferedReader(new InputStreamReader(cmd.adb(DSN,
                     cmd.ADB_LIST_PACKAGES_3P).getInputStream(), StandardCharsets.UTF_8));) {
                 int count = 0;
@@ -110,8 +113,7 @@ public class CommonTools extends DataUtils {
     public void clearLogcatVitals(String DSN) {
         try {
             String deviceName = DEVICE_NAME;
-            cmd.adb(DSN, cmd.ADB_LOGCAT_CLEAR);
-            cmd.adb(DSN, cmd.ADB_CLEAR_LOGCAT_VITALS);
+            cmd.adb(DSN, Arrays.asList(cmd.ADB_LOGCAT_CLEAR, cmd.ADB_CLEAR_LOGCAT_VITALS));
             explicitWait(2);
             log.info(deviceName + ": Logcat Buffer cleared");
         } catch (Exception e) {
@@ -249,6 +251,19 @@ public class CommonTools extends DataUtils {
         }
     }
 
+    /**
+     * Clears the device logs at the end of an iteration so the next iteration only sees its own markers.
+     * Nothing needs clearing while the iteration is read from the logcat collector, as the next iteration
+     * starts its slice at a new mark.
+     *
+     * @param DSN The Device Serial Number (DSN) of the device.
+     */
+    public void clearIterationLogs(String DSN) {
+        if (iterationCollector(DSN) != null) return;
+        clearLogcatVitals(DSN);
+        clearLogcatBuffer(DSN);
+    }
+
     public void clearLogcatBuffer(String DSN) {
         try {
             cmd.adb(DSN, cmd.ADB_LOGCAT_CLEAR);
@@ -272,6 +287,7 @@ public class CommonTools extends DataUtils {
         try {
             log.info("Rebooting Device...");
             cmd.adb(DSN, cmd.ADB_SHELL_REBOOT);
+            DeviceProfile.invalidate(DSN);
             explicitWait(60);
 
             if (DEVICE_TYPE.equalsIgnoreCase(TABLET)) {
@@ -373,17 +389,77 @@ public class CommonTools extends DataUtils {
         return false;
     }
 
+    /**
+     * Launches the app with {@code am start-activity -W}, which returns once the launch has been drawn, and reads
+     * the launch times the activity manager reports.
+     *
+     * @param DSN       The Device Serial Number (DSN) of the device.
+     * @param appIntent The intent used to launch the app.
+     * @param hot       true to bring the activity the app left in the background back to the foreground,
+     *                  false to start the activity of the intent.
+     * @return The launch times, or null if the app failed to launch.
+     */
+    public AmStartResult launchAppUsingAmStart(String DSN, String appIntent, boolean hot) {
+        try {
+            // -R takes the number of times the activity is launched
+            String command = hot ? cmd.ADB_START_ACTIVITY_HOT + "1 -n " + appIntent
+                    : cmd.ADB_START_ACTIVITY_COLD + appIntent;
+            AmStartResult result = AmStartResult.parse(cmd.adbRun(DSN, command).getStdout());
+            if (result != null) {
+                log.info(DEVICE_NAME + ": App Launched Successfully using am start - " + appIntent);
+                return result;
+            }
+        } catch (Exception e) {
+            log.error(DEVICE_NAME + ": There was an exception while launching app using am start: ", e);
+        }
+        APP_FAILURE_REASON = "App Failed to launch using am start";
+        log.error(DEVICE_NAME + ": " + APP_FAILURE_REASON + " - " + appIntent);
+        return null;
+    }
+
+    /**
+     * Launches the app for a measured cool or warm iteration: with {@code amStartLaunch} through
+     * {@code am start-activity -W}, so the launch times of the activity manager are recorded next to the vitals
+     * and Displayed values, otherwise as {@link #launchApp(String, String)}.
+     *
+     * @param DSN        The Device Serial Number (DSN) of the device.
+     * @param appPackage The package name of the app.
+     * @param appIntent  The intent used to launch the app.
+     * @return The launch times of am start, or null without {@code amStartLaunch} or if they could not be read.
+     */
+    public AmStartResult launchIteration(String DSN, String appPackage, String appIntent) {
+        if (amStartLaunch) return launchAppUsingAmStart(DSN, appIntent, false);
+        launchApp(appPackage, appIntent);
+        return null;
+    }
+
+    /**
+     * Returns the adb log file of a launch iteration; the resource samples of the iteration are written next to it.
+     * The name holds the serial number besides the device name, so devices of the same model running in parallel
+     * do not overwrite each other's files.
+     *
+     * @param DSN        The Device Serial Number (DSN) of the device.
+     * @param appPackage The package name of the app.
+     * @param loop       The iteration, e.g. "Loop_3".
+     * @param kpiType    The name of the KPI, e.g. "Cool_FF".
+     * @return The log file.
+     */
+    public File iterationLogFile(String DSN, String appPackage, String loop, String kpiType) {
+        return new File(adbLogs + appPackage + "_" + DEVICE_NAME + "_" + DSN.replaceAll("[^A-Za-z0-9._-]", "_") + "_"
+                + loop + "_" + kpiType + "_ADB.txt");
+    }
+
     public Boolean executeFirstColdLaunch(String DSN, String kpiType, String appPackage, String appIntent) {
         try {
             int launchCheck = 0;
             for (int i = 0; i < extraIterations; i++) {
-                File adbLogFile = new File(adbLogs + appPackage + "_" + DEVICE_NAME + "_" + "Launch_Test_Loop_" +
-                        i+1 + "_" + kpiType + "_ADB.txt");
+                File adbLogFile = iterationLogFile(DSN, appPackage, "Launch_Test_Loop_" + (i + 1), kpiType);
                 double timer = 0.0;
                 double displayedTimer = 0.0;
                 LaunchTest launchTest = new LaunchTest();
+                startIterationLogs(DSN);
                 if (launchApp(appPackage, appIntent)) {
-                    explicitWait(30);
+                    waitForLaunch(DSN, appPackage, 30);
                     if (launchTest.checkAppForegroundUsingUi(DSN, appPackage)
                             || launchTest.checkAppForeground(DSN, appPackage)) {
                         if (DEVICE_TYPE.equals(FTV) && kpiType.equalsIgnoreCase(COOL_APP_FF)) {
@@ -400,9 +476,9 @@ public class CommonTools extends DataUtils {
                         if (!((displayedTimer == 0.0) && (timer == 0.0))) launchCheck++;
                     }
                 }
-                if (kpiType.equalsIgnoreCase(WARM_APP_FF)) goHome(DSN);
+                if (kpiType.equalsIgnoreCase(WARM_APP_FF) || kpiType.equalsIgnoreCase(HOT_APP_FF)) goHome(DSN);
                 else forceStopApp(DSN, appPackage);
-                clearLogcatBuffer(DSN);
+                clearIterationLogs(DSN);
             }
             return launchCheck >= 2;
         } catch (Exception e) {
@@ -1,5 +1,6 @@
 package commonUtils;
 
+import dataFlow.ResultSink;
 import org.apache.log4j.Logger;
 
 import java.io.File;
@@ -20,7 +21,9 @@ public class CreateDataFiles extends ReadPaths {
     public void createCsvFile(String filePath) {
         try {
             Path fileCsvPath = Paths.get(filePath);
+            ResultSink.close(filePath);
             Files.deleteIfExists(fileCsvPath);
+            Files.deleteIfExists(Paths.get(ResultSink.jsonLinesPath(filePath)));
             Files.createFile(fileCsvPath);
 
             try (FileWriter dataWriter = new FileWriter(fileCsvPath.toFile())) {
@@ -3,34 +3,304 @@ package commonUtils;
 import dataFlow.TestKpiDataWrite;
 import org.apache.log4j.Logger;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class DataUtils extends KpiUtils {
 
-    Logger log = Logger.getLogger(DataUtils.class.getSimpleName());
+    static final Logger log = Logger.getLogger(DataUtils.class.getSimpleName());
     public double average, tp50Value, tp90Value, displayedAverage, averageFinal;
-    public int iterations = Integer.parseInt(prop.getProperty("latencyIterations"));
+    public int iterations = shareOfIterations(Integer.parseInt(prop.getProperty("latencyIterations")));
     public int extraIterations = (Integer.parseInt(prop.getProperty("extraIterations")));
     public double[] timerArr = new double[iterations];
     public double[] displayedArr = new double[iterations];
+    // Fully drawn (RTU) time per iteration, written as the RTU KPI of a cool or warm run
+    public double[] fullyDrawnArr = new double[iterations];
     public double[] memUsage = new double[iterations];
     public double[] cpuUsage = new double[iterations];
     public String cpuConsumption, memConsumption;
+    // Launch times are kept in seconds, their statistics to the millisecond
+    static final int LATENCY_DECIMALS = 3;
+    // Statistics of the samples of the last KPI written, missing iterations counted apart
+    public QuantileRecorder timerStats, displayedStats, memoryStats, cpuStats;
 
     StringBuilder valuesPerIterateFinal = new StringBuilder("[");
 
     public int waitTime = (Integer.parseInt(prop.getProperty("latencyWait")));
+    // Iterations whose host-side processing may be pending while the next launch runs, 0 to process inline
+    public int pipelineDepth = Integer.parseInt(prop.getProperty("pipelineDepth", "0").trim());
+    // Adaptive mode: after adaptiveMinIterations, stop as soon as the 95% confidence intervals of TP50 and TP90
+    // are narrower than adaptiveTolerance percent of their value; latencyIterations is then the upper bound.
+    // The TP90 interval needs at least 29 values, so no run stops before its 29th iteration
+    public boolean adaptiveIterations = Boolean.parseBoolean(prop.getProperty("adaptiveIterations", "false").trim());
+    public int adaptiveMinIterations = Integer.parseInt(prop.getProperty("adaptiveMinIterations", "10").trim());
+    public double adaptiveTolerance = Double.parseDouble(prop.getProperty("adaptiveTolerance", "5").trim());
+    private volatile boolean precisionReached;
+    private int executedIterations = Integer.MAX_VALUE;
+    // Report TP50/TP90 without the warm-up launches (at most warmupMaxIterations) and outliers, flagged by
+    // their modified z-score exceeding outlierThreshold
+    public boolean steadyStateFilter = Boolean.parseBoolean(prop.getProperty("steadyStateFilter", "false").trim());
+    public int warmupMaxIterations = Integer.parseInt(prop.getProperty("warmupMaxIterations", "5").trim());
+    public double outlierThreshold = Double.parseDouble(prop.getProperty("outlierThreshold", "3.5").trim());
+    // Where the iterations of each device start in the merged arrays of a shard group
+    private int[] segmentStarts = {0};
+    // Sample CPU and memory of the app launchSamplerHz times a second from the launch intent until launchSamplerTailMs
+    // after its first frame, instead of one dumpsys cpuinfo/meminfo after the launch
+    public boolean launchSampler = Boolean.parseBoolean(prop.getProperty("launchSampler", "false").trim());
+    public int launchSamplerHz = Integer.parseInt(prop.getProperty("launchSamplerHz", "20").trim());
+    public int launchSamplerTailMs = Integer.parseInt(prop.getProperty("launchSamplerTailMs", "1000").trim());
+    public LaunchSampler.Window[] launchWindows = new LaunchSampler.Window[iterations];
+    // PSS/RSS/swap of the app after every launch, and the PSS growth over a run that is logged as a possible leak
+    public MemoryProbe.Snapshot[] memorySnapshots = new MemoryProbe.Snapshot[iterations];
+    public double memoryLeakWarnMb = Double.parseDouble(prop.getProperty("memoryLeakWarnMb", "20").trim());
+    // Launch cool and warm iterations with am start -W to also record the launch times of the activity manager;
+    // hot iterations always launch that way
+    public boolean amStartLaunch = Boolean.parseBoolean(prop.getProperty("amStartLaunch", "false").trim());
+    public AmStartResult[] amStartResults = new AmStartResult[iterations];
+    // User-defined KPIs timed on the logs of every iteration (see LogMarkerKpi), with their values per iteration
+    public List<LogMarkerKpi> logMarkers = LogMarkerKpi.configured(prop, USER_DIR);
+    public double[][] logMarkerArr = new double[logMarkers.size()][iterations];
+    // Set once the app did not report fully drawn within latencyWait; later iterations of the run skip that wait
+    private boolean fullyDrawnMissing;
+
+    /**
+     * Returns the iterations this device runs: its share when the iterations are split across a {@link ShardGroup},
+     * otherwise all of them.
+     *
+     * @param configured The configured iterations of a KPI run.
+     * @return The iterations to run on this device.
+     */
+    private int shareOfIterations(int configured) {
+        ShardGroup shards = ShardGroup.forDevice(DSN);
+        return shards == null ? configured : shards.iterationsFor(DSN);
+    }
+
+    /**
+     * Creates the pipeline that processes the captured artifacts of launch iterations in the background.
+     *
+     * @return A pipeline with the configured depth.
+     */
+    public IterationPipeline newIterationPipeline() {
+        return new IterationPipeline(DEVICE_NAME, pipelineDepth);
+    }
+
+    /**
+     * Starts sampling the CPU and memory usage of the app for the launch about to be issued, if enabled.
+     *
+     * @param DSN        The Device Serial Number.
+     * @param appPackage The package of the app.
+     * @return The running sampler, or null if sampling is disabled or could not be started.
+     */
+    public LaunchSampler startLaunchSampler(String DSN, String appPackage) {
+        if (!launchSampler) return null;
+        try {
+            return LaunchSampler.start(DSN, cmd, appPackage, launchSamplerHz, waitTime + 30);
+        } catch (Exception e) {
+            log.warn(DEVICE_NAME + ": Launch sampler unavailable, falling back to dumpsys: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stops a launch sampler.
+     *
+     * @param sampler The sampler, may be null.
+     * @return The samples of the launch, or null if there is no sampler or it never saw the app process.
+     */
+    public LaunchSampler.Window stopLaunchSampler(LaunchSampler sampler) {
+        if (sampler == null) return null;
+        LaunchSampler.Window window = sampler.stop();
+        if (window.hasProcess()) return window;
+        log.warn(DEVICE_NAME + ": Launch sampler did not see the app process in " + window.size()
+                + " samples, falling back to dumpsys");
+        return null;
+    }
+
+    /**
+     * Reads the memory usage of the app with the {@link MemoryProbe}.
+     *
+     * @param DSN        The Device Serial Number.
+     * @param appPackage The package of the app.
+     * @return The memory usage, or null if it could not be read.
+     */
+    public MemoryProbe.Snapshot probeMemory(String DSN, String appPackage) {
+        try {
+            return MemoryProbe.read(DSN, cmd, appPackage);
+        } catch (Exception e) {
+            log.error(DEVICE_NAME + ": Exception occurred while reading app memory: ", e);
+            return null;
+        }
+    }
+
+    /**
+     * Evaluates the configured log marker KPIs on the logs of an iteration and stores their values,
+     * scaled like the displayed times.
+     *
+     * @param index      The zero-based iteration.
+     * @param appPackage The package of the app.
+     * @param logs       The logs of the iteration.
+     * @throws IOException If the logs cannot be read.
+     */
+    public void recordLogMarkers(int index, String appPackage, byte[] logs) throws IOException {
+        if (logMarkers.isEmpty()) return;
+        double[] values = LogMarkerKpi.evaluate(logMarkers, logs, appPackage);
+        for (int m = 0; m < values.length; m++) {
+            logMarkerArr[m][index] = values[m] / 1000.00;
+            if (values[m] == 0) log.warn(DEVICE_NAME + ": Log marker " + logMarkers.get(m).getName() + " not found");
+            else log.info(DEVICE_NAME + ": Log marker " + logMarkers.get(m).getName() + ": " + values[m] + " ms");
+        }
+    }
+
+    /**
+     * Waits after the launch until the lines the RTU and log marker KPIs are read from have been logged, so that
+     * stopping the app or going home does not cut them off: the fully drawn marker of the app if requested and
+     * the end line of every log marker, at most latencyWait. An app that did not report fully drawn within that
+     * time is not waited for again in the same run.
+     * Without the logcat collector and event-driven waits, the launch wait has already slept for latencyWait.
+     *
+     * @param DSN        The Device Serial Number.
+     * @param appPackage The package of the app.
+     * @param fullyDrawn Whether to wait for the fully drawn marker, i.e. the RTU KPI is measured.
+     * @return true if all lines were observed, false if the wait timed out.
+     */
+    public boolean waitForLaunchEnd(String DSN, String appPackage, boolean fullyDrawn) {
+        boolean awaitFullyDrawn = fullyDrawn && !fullyDrawnMissing;
+        LogcatCollector collector = iterationCollector(DSN);
+        if (!awaitFullyDrawn && logMarkers.isEmpty() || collector == null && !isEventDrivenWait()) return true;
+        LaunchMarkers[] markers = new LaunchMarkers[1];
+        boolean observed = false;
+        try {
+            if (collector != null) {
+                long start = System.nanoTime();
+                observed = collector.awaitLine(iterationLogStart,
+                        launchEndCondition(appPackage, markers, awaitFullyDrawn), waitTime * 1000L);
+                if (observed) {
+                    log.info(DEVICE_NAME + ": " + appPackage + " launch end after "
+                            + (System.nanoTime() - start) / 1000000L + " ms");
+                } else {
+                    log.warn(DEVICE_NAME + ": Timed out after " + waitTime + "s waiting for " + appPackage
+                            + " launch end");
+                }
+            } else {
+                observed = waitUntil(appPackage + " launch end", waitTime, () -> {
+                    try (BufferedReader lines = new BufferedReader(new InputStreamReader(
+                            new ByteArrayInputStream(captureIterationLogs(DSN)), StandardCharsets.UTF_8))) {
+                        return lines.lines().anyMatch(launchEndCondition(appPackage, markers, awaitFullyDrawn));
+                    } catch (IOException e) {
+                        return false;
+                    }
+                });
+            }
+        } catch (Exception e) {
+            log.error(DEVICE_NAME + ": Exception occurred while waiting for the launch end: ", e);
+        }
+        if (!observed && awaitFullyDrawn && markers[0] != null && !markers[0].isFullyDrawnPresent()) {
+            fullyDrawnMissing = true;
+            log.warn(DEVICE_NAME + ": " + appPackage + " did not report fully drawn, not waiting for it again");
+        }
+        return observed;
+    }
+
+    /**
+     * Returns the condition met by the last of the lines {@link #waitForLaunchEnd} waits for.
+     *
+     * @param appPackage      The package of the app.
+     * @param markers         Receives the launch markers seen by the condition.
+     * @param awaitFullyDrawn Whether the fully drawn marker is waited for.
+     * @return The condition, to be fed the lines of one iteration in order.
+     */
+    private Predicate<String> launchEndCondition(String appPackage, LaunchMarkers[] markers,
+                                                 boolean awaitFullyDrawn) {
+        LaunchMarkerExtractor extractor = new LaunchMarkerExtractor(this, appPackage, appIntent);
+        LogMarkerKpi.Evaluation evaluation = new LogMarkerKpi.Evaluation(logMarkers, appPackage);
+        LaunchMarkers seen = new LaunchMarkers();
+        markers[0] = seen;
+        boolean[] marked = {logMarkers.isEmpty()};
+        return line -> {
+            if (awaitFullyDrawn) extractor.accept(seen, line);
+            if (!marked[0]) marked[0] = evaluation.accept(line);
+            return marked[0] && (!awaitFullyDrawn || seen.isFullyDrawnPresent());
+        };
+    }
+
+    /**
+     * Stores the launch times the activity manager reported for an iteration.
+     *
+     * @param index The zero-based iteration.
+     * @param start The launch times of am start, or null if the iteration was not launched with it.
+     */
+    public void recordAmStart(int index, AmStartResult start) {
+        amStartResults[index] = start;
+        if (start == null) return;
+        log.info(DEVICE_NAME + ": am start " + (start.getLaunchState() == null ? "" : start.getLaunchState() + " ")
+                + "ThisTime: " + start.getThisTime() + ", TotalTime: " + start.getTotalTime() + ", WaitTime: "
+                + start.getWaitTime());
+    }
+
+    /**
+     * Stores the CPU and memory usage of an iteration. With launch samples, the peak app CPU usage and RSS
+     * from the launch intent until {@code launchSamplerTailMs} after the first frame are stored and the samples
+     * are written next to the adb log file of the iteration; otherwise the dumpsys CPU consumption and the PSS
+     * of the memory snapshot are stored.
+     * Must be called after the launch time of the iteration is stored.
+     *
+     * @param index      The zero-based iteration.
+     * @param window     The samples of the launch, or null.
+     * @param cpu        The dumpsys CPU consumption, used without samples.
+     * @param memory     The memory usage of the app after the launch, or null if it could not be read.
+     * @param adbLogFile The adb log file of the iteration.
+     * @throws IOException If the samples cannot be written.
+     */
+    public void recordResources(int index, LaunchSampler.Window window, String cpu, MemoryProbe.Snapshot memory,
+                                File adbLogFile) throws IOException {
+        memorySnapshots[index] = memory;
+        if (memory != null) {
+            log.info(DEVICE_NAME + ": Memory from " + memory.getSource() + ": PSS " + df2.format(memory.getPssMb())
+                    + " MB, RSS " + df2.format(memory.getRssMb()) + " MB, swap " + df2.format(memory.getSwapMb())
+                    + " MB");
+        }
+        if (window == null) {
+            cpuConsumption = cpu.split("%")[0];
+            memConsumption = memory == null ? "0" : df2.format(memory.getPssMb());
+            memUsage[index] = Double.parseDouble(memConsumption);
+            cpuUsage[index] = Double.parseDouble(cpuConsumption);
+            return;
+        }
+        // Launch times are stored in seconds, the sampler window in milliseconds after the intent
+        double launchTimeMs = (displayedArr[index] > 0 ? displayedArr[index] : timerArr[index]) * 1000;
+        LaunchSampler.Window launch = launchTimeMs > 0 ? window.until(launchTimeMs + launchSamplerTailMs) : window;
+        cpuUsage[index] = Double.parseDouble(df2.format(launch.getCpuPeak()));
+        memUsage[index] = Double.parseDouble(df2.format(launch.getRssPeakMb()));
+        launchWindows[index] = launch;
+        launch.write(new File(adbLogFile.getPath().replace("_ADB.txt", "") + "_Resources.tsv"));
+        log.info(DEVICE_NAME + ": Launch window " + df2.format(launch.getDurationMs()) + " ms, " + launch.size()
+                + " samples: app CPU peak " + df2.format(launch.getCpuPeak()) + "%, mean "
+                + df2.format(launch.getCpuMean()) + "%, device CPU peak " + df2.format(launch.getDeviceCpuPeak())
+                + "%, RSS peak " + df2.format(launch.getRssPeakMb()) + " MB, mean "
+                + df2.format(launch.getRssMeanMb()) + " MB");
+    }
 
     /**
      * Calculates the median of an array of double values.
      *
-     * @param arr The array of double values.
+     * @param values The array of double values, left in iteration order.
      * @return The median value of the array.
      */
-    public double calculateMedian(double[] arr) {
+    public double calculateMedian(double[] values) {
         try {
+            double[] arr = values.clone();
             Arrays.sort(arr);
             double mid = 0;
             if (arr.length % 2 == 0) {
@@ -81,13 +351,16 @@ public class DataUtils extends KpiUtils {
     }
 
     /**
-     * Calculates the mode of an array of double values.
+     * Calculates a percentile of an array of double values, using the nearest-rank definition.
+     * The array itself is left in iteration order.
      *
-     * @param arr The array of double values.
-     * @return The mode value of the array.
+     * @param values     The array of double values.
+     * @param percentile The percentile, e.g. 50 or 90.
+     * @return The value at the percentile.
      */
-    public double calculatePercentile(double[] arr, double percentile) {
+    public static double calculatePercentile(double[] values, double percentile) {
         try {
+            double[] arr = values.clone();
             Arrays.sort(arr);
             int index = (int) Math.ceil(percentile / 100.0 * arr.length);
             return arr[index - 1];
@@ -97,8 +370,76 @@ public class DataUtils extends KpiUtils {
         return 0;
     }
 
+    /**
+     * Tells whether the latency loop runs another iteration: while fewer than {@code iterations} ran and,
+     * in adaptive mode, the precision of TP50 and TP90 has not been reached yet.
+     *
+     * @param iteration The zero-based number of the iteration about to run.
+     * @return true to run the iteration, false to end the loop.
+     */
+    public boolean nextIteration(int iteration) {
+        if (iteration < iterations && !precisionReached) return true;
+        executedIterations = iteration;
+        if (iteration < iterations) {
+            log.info(DEVICE_NAME + ": TP50/TP90 within " + adaptiveTolerance + "% after " + iteration
+                    + " iterations, skipping the remaining " + (iterations - iteration));
+        }
+        return false;
+    }
+
+    /**
+     * Checks in adaptive mode whether the iterations completed so far bound TP50 and TP90 tightly enough.
+     * Called at the end of the host-side stage of every iteration, so it sees every completed iteration.
+     */
+    public void updatePrecision() {
+        if (!adaptiveIterations || precisionReached) return;
+        QuantileRecorder displayed = recorderOf(displayedArr, LATENCY_DECIMALS);
+        QuantileRecorder stats = displayed.getCount() > 0 ? displayed : recorderOf(timerArr, LATENCY_DECIMALS);
+        if (isPrecise(stats, adaptiveMinIterations, adaptiveTolerance)) precisionReached = true;
+    }
+
+    /**
+     * Tells whether the recorded values bound TP50 and TP90 tightly enough to end an adaptive latency loop.
+     *
+     * @param stats         The values of the completed iterations.
+     * @param minIterations The fewest values to stop at.
+     * @param tolerance     The widest 95% confidence interval accepted, in percent of the percentile.
+     * @return true once both intervals exist and are at most {@code tolerance} wide.
+     */
+    static boolean isPrecise(QuantileRecorder stats, int minIterations, double tolerance) {
+        if (stats.getCount() < minIterations) return false;
+        return confidenceWidth(stats, 50) <= tolerance && confidenceWidth(stats, 90) <= tolerance;
+    }
+
+    /**
+     * Returns the width of the 95% confidence interval of a percentile relative to the percentile.
+     *
+     * @param stats      The recorded values.
+     * @param percentile The percentile, e.g. 50 or 90.
+     * @return The width in percent, or {@link Double#NaN} while too few values are recorded to bound it.
+     */
+    public static double confidenceWidth(QuantileRecorder stats, double percentile) {
+        double[] interval = stats.getConfidenceInterval(percentile);
+        double value = stats.getPercentile(percentile);
+        if (interval == null || value == 0) return Double.NaN;
+        return (interval[1] - interval[0]) / value * 100;
+    }
+
+    /**
+     * Formats a confidence interval width for the log and the CSV file.
+     *
+     * @param width The width in percent, {@link Double#NaN} if unknown.
+     * @return The width, e.g. "3.25%", or "NA".
+     */
+    public String precisionText(double width) {
+        return Double.isNaN(width) ? "NA" : df2.format(width) + "%";
+    }
+
     /**
      * Writes latency values to a CSV file and logs relevant metrics.
+     * When the iterations are split across a {@link ShardGroup}, the samples of this device are handed to the group
+     * and only the leader writes a row, computed over the merged samples of all devices; the other devices set
+     * {@link #tp50Value} to the TP50 of their own samples, so their test passes once the samples are handed over.
      *
      * @param appVersion   The version of the application.
      * @param DSN          The Device Serial Number.
@@ -109,29 +450,143 @@ public class DataUtils extends KpiUtils {
             String DSN,
             String metricsName) {
 
+        int configuredIterations = iterations;
+        if (executedIterations < iterations) {
+            iterations = executedIterations;
+            timerArr = Arrays.copyOf(timerArr, iterations);
+            displayedArr = Arrays.copyOf(displayedArr, iterations);
+            fullyDrawnArr = Arrays.copyOf(fullyDrawnArr, iterations);
+            memUsage = Arrays.copyOf(memUsage, iterations);
+            cpuUsage = Arrays.copyOf(cpuUsage, iterations);
+            launchWindows = Arrays.copyOf(launchWindows, iterations);
+            memorySnapshots = Arrays.copyOf(memorySnapshots, iterations);
+            amStartResults = Arrays.copyOf(amStartResults, iterations);
+            for (int m = 0; m < logMarkerArr.length; m++) logMarkerArr[m] = Arrays.copyOf(logMarkerArr[m], iterations);
+        }
+        ShardGroup shards = ShardGroup.forDevice(DSN);
+        try {
+            if (shards == null) {
+                writeLatencyRow(appVersion, DSN, metricsName);
+                writeFullyDrawnRow(appVersion, DSN, metricsName);
+                writeLogMarkerRows(appVersion, DSN, metricsName);
+                return;
+            }
+            shards.submit(metricsName, DSN, timerArr, displayedArr, fullyDrawnArr, logMarkerArr, memUsage, cpuUsage);
+            if (!shards.isLeader(DSN)) {
+                // The leader writes the row; the TP50 of this device's own samples tells the test it measured
+                QuantileRecorder displayed = recorderOf(displayedArr, LATENCY_DECIMALS);
+                tp50Value = (displayed.getCount() > 0 ? displayed : recorderOf(timerArr, LATENCY_DECIMALS))
+                        .getPercentile(50);
+                log.info(DEVICE_NAME + ": Handed " + iterations + " iterations of " + metricsName
+                        + " to shard leader " + shards.getDevices().get(0) + ", own TP50: " + tp50Value);
+                return;
+            }
+            Map<String, ShardGroup.Samples> samples = shards.await(metricsName);
+            if (samples.size() < shards.getDevices().size()) {
+                log.warn(DEVICE_NAME + ": Merging " + metricsName + " from only " + samples.size() + " of "
+                        + shards.getDevices().size() + " devices");
+            }
+            logShardSpread(metricsName, samples);
+            segmentStarts = new int[samples.size()];
+            int start = 0, segment = 0;
+            for (ShardGroup.Samples shard : samples.values()) {
+                segmentStarts[segment++] = start;
+                start += shard.timers.length;
+            }
+            timerArr = mergeShards(samples, shard -> shard.timers);
+            displayedArr = mergeShards(samples, shard -> shard.displayed);
+            fullyDrawnArr = mergeShards(samples, shard -> shard.fullyDrawn);
+            for (int m = 0; m < logMarkerArr.length; m++) {
+                int marker = m;
+                logMarkerArr[m] = mergeShards(samples, shard -> shard.markers.length > marker
+                        ? shard.markers[marker] : new double[shard.timers.length]);
+            }
+            memUsage = mergeShards(samples, shard -> shard.memory);
+            cpuUsage = mergeShards(samples, shard -> shard.cpu);
+            iterations = timerArr.length;
+            writeLatencyRow(appVersion, DSN, metricsName);
+            writeFullyDrawnRow(appVersion, DSN, metricsName);
+            writeLogMarkerRows(appVersion, DSN, metricsName);
+        } catch (Exception e) {
+            log.error(DEVICE_NAME + ": Exception while merging shard timer values", e);
+        } finally {
+            iterations = configuredIterations;
+            executedIterations = Integer.MAX_VALUE;
+            precisionReached = false;
+            fullyDrawnMissing = false;
+            segmentStarts = new int[]{0};
+            timerArr = new double[iterations];
+            displayedArr = new double[iterations];
+            fullyDrawnArr = new double[iterations];
+            memUsage = new double[iterations];
+            cpuUsage = new double[iterations];
+            launchWindows = new LaunchSampler.Window[iterations];
+            memorySnapshots = new MemoryProbe.Snapshot[iterations];
+            amStartResults = new AmStartResult[iterations];
+            logMarkerArr = new double[logMarkers.size()][iterations];
+        }
+    }
+
+    /**
+     * Logs the TP50 every device of a shard group measured and the spread between them,
+     * which shows whether the devices of the pool really behave alike.
+     * Displayed times are used where a device has them, vitals launch times otherwise.
+     *
+     * @param metricsName The name of the metrics.
+     * @param samples     The samples per device.
+     */
+    private void logShardSpread(String metricsName, Map<String, ShardGroup.Samples> samples) {
+        double min = Double.MAX_VALUE, max = 0;
+        for (Map.Entry<String, ShardGroup.Samples> shard : samples.entrySet()) {
+            double[] values = Arrays.stream(shard.getValue().displayed).filter(a -> a != 0).toArray();
+            if (values.length == 0) values = Arrays.stream(shard.getValue().timers).filter(a -> a != 0).toArray();
+            if (values.length == 0) {
+                log.warn(DEVICE_NAME + ": " + metricsName + " shard of " + shard.getKey() + " has no values");
+                continue;
+            }
+            double tp50 = calculatePercentile(values, 50);
+            min = Math.min(min, tp50);
+            max = Math.max(max, tp50);
+            log.info(DEVICE_NAME + ": " + metricsName + " shard of " + shard.getKey() + ": " + values.length
+                    + " values, TP50 " + tp50);
+        }
+        if (max > 0) log.info(DEVICE_NAME + ": " + metricsName + " TP50 spread across devices: " + df2.format(max - min));
+    }
+
+    private static double[] mergeShards(Map<String, ShardGroup.Samples> samples,
+                                        Function<ShardGroup.Samples, double[]> values) {
+        return samples.values().stream().map(values).flatMapToDouble(Arrays::stream).toArray();
+    }
+
+    /**
+     * Computes the statistics of the current samples, logs them and writes them to the CSV file.
+     *
+     * @param appVersion   The version of the application.
+     * @param DSN          The Device Serial Number.
+     * @param metricsName  The name of the metrics.
+     */
+    private void writeLatencyRow(
+            String appVersion,
+            String DSN,
+            String metricsName) {
+
         try {
 
             TestKpiDataWrite csvWrite = new TestKpiDataWrite();
-            double dtp50 = 0, dtp90 = 0, tp50 = 0, tp90 = 0, sum = 0, displayedSum = 0;
+            double dtp50, dtp90, tp50, tp90;
 
             StringBuilder valuesPerIterate = new StringBuilder("[");
             StringBuilder displayedValuesPerIterate = new StringBuilder("[");
 
-            int lossCount = 0, displayedLossCount = 0;
             if(timerArr.length !=0) {
                 for (int i = 0; i < timerArr.length; i++) {
 
                     if (timerArr[i] != 0) {
                         if (i == (iterations - 1)) {
                             valuesPerIterate.append(timerArr[i]);
-                            sum = sum + timerArr[i];
                         } else if (i < (iterations - 1)) {
                             valuesPerIterate.append(timerArr[i]).append(";");
-                            sum = sum + timerArr[i];
                         } else log.info(DEVICE_NAME + ": Extra Timer Values: " + timerArr[i]);
-
-                    } else {
-                        lossCount++;
                     }
                 }
             }
@@ -141,78 +596,73 @@ public class DataUtils extends KpiUtils {
                     if (displayedArr[j] != 0) {
                         if (j == (iterations - 1)) {
                             displayedValuesPerIterate.append(displayedArr[j]);
-                            displayedSum = displayedSum + displayedArr[j];
                         } else if (j < (iterations - 1)) {
                             displayedValuesPerIterate.append(displayedArr[j]).append(";");
-                            displayedSum = displayedSum + displayedArr[j];
                         } else log.info(DEVICE_NAME + ": Extra Timer Values: " + displayedArr[j]);
-                    } else {
-                        displayedLossCount++;
                     }
                 }
             }
 
-            if (lossCount > 0)
-                log.warn(DEVICE_NAME + ": Calculating Average/Mean for only " + (iterations - lossCount) + " values");
+            timerStats = recorderOf(timerArr, LATENCY_DECIMALS);
+            displayedStats = recorderOf(displayedArr, LATENCY_DECIMALS);
+            memoryStats = recorderOf(memUsage, 2);
+            cpuStats = recorderOf(cpuUsage, 2);
+
+            if (timerStats.getMissing() > 0)
+                log.warn(DEVICE_NAME + ": Calculating Average/Mean for only " + timerStats.getCount() + " values, "
+                        + timerStats.getMissing() + " iterations missing");
             valuesPerIterate.append("]");
             displayedValuesPerIterate.append("]");
 
+            double[] timerNewArr = Arrays.stream(timerArr).limit(iterations).filter(a -> a != 0).toArray();
+            tp50 = timerStats.getPercentile(50);
+            tp90 = timerStats.getPercentile(90);
 
-            double[] timerNewArr = Arrays.copyOf(Arrays.stream(timerArr)
-                            .filter(a -> a != 0)
-                            .toArray(),
-                    iterations - lossCount);
-
-            if (timerNewArr.length > 0) {
-                tp50 = calculatePercentile(timerNewArr, 50);
-                tp90 = calculatePercentile(timerNewArr, 90);
-            }
-
-            double[] displayedNewArr = Arrays.copyOf(Arrays.stream(displayedArr)
-                            .filter(a -> a != 0)
-                            .toArray(),
-                    iterations - displayedLossCount);
-
-            if (displayedNewArr.length > 0) {
-                dtp50 = calculatePercentile(displayedNewArr, 50);
-                dtp90 = calculatePercentile(displayedNewArr, 90);
-            }
+            double[] displayedNewArr = Arrays.stream(displayedArr).limit(iterations).filter(a -> a != 0).toArray();
+            dtp50 = displayedStats.getPercentile(50);
+            dtp90 = displayedStats.getPercentile(90);
 
             double median = 0.0, mode = 0.0;
+            QuantileRecorder finalStats = null;
+            double[] finalValues = null;
             if (dtp50 != 0 && tp50 != 0) {
-                displayedAverage = Double.parseDouble(df2.format(displayedSum / (iterations -
-                        displayedLossCount)));
+                displayedAverage = Double.parseDouble(df2.format(displayedStats.getMean()));
                 median = calculateMedian(displayedNewArr);
                 mode = calculateMode(displayedNewArr);
                 tp50Value = dtp50;
                 tp90Value = dtp90;
                 valuesPerIterateFinal = displayedValuesPerIterate;
                 averageFinal = displayedAverage;
+                finalStats = displayedStats;
+                finalValues = displayedArr;
             } else if (tp50 != 0 & dtp50 == 0) {
-                average = Double.parseDouble(df2.format(sum / (iterations - lossCount)));
+                average = Double.parseDouble(df2.format(timerStats.getMean()));
                 median = calculateMedian(timerNewArr);
                 mode = calculateMode(timerNewArr);
                 tp50Value = tp50;
                 tp90Value = tp90;
                 valuesPerIterateFinal = valuesPerIterate;
                 averageFinal = average;
+                finalStats = timerStats;
+                finalValues = timerArr;
             } else if (dtp50 != 0) {
-                displayedAverage = Double.parseDouble(df2.format(displayedSum / (iterations -
-                        displayedLossCount)));
+                displayedAverage = Double.parseDouble(df2.format(displayedStats.getMean()));
                 median = calculateMedian(displayedNewArr);
                 mode = calculateMode(displayedNewArr);
                 tp50Value = dtp50;
                 tp90Value = dtp90;
                 valuesPerIterateFinal = displayedValuesPerIterate;
                 averageFinal = displayedAverage;
+                finalStats = displayedStats;
+                finalValues = displayedArr;
             }
 
-            if (tp50Value != 0) {
-                String tp50_Memory = calculatePercentile(memUsage, 50) + " MB";
-                String tp50_CpuUsage = calculatePercentile(cpuUsage, 90) + "%";
+            if (tp50Value != 0 && finalStats != null) {
+                String tp50_Memory = memoryStats.getPercentile(50) + " MB";
+                String tp50_CpuUsage = cpuStats.getPercentile(90) + "%";
 
                 log.info(DEVICE_NAME + ": Metrics Name in Logs: " + metricsName);
-                if (displayedSum != 0) {
+                if (displayedStats.getCount() != 0) {
                     log.info(DEVICE_NAME + ": Displayed Values Per Iteration: " + displayedValuesPerIterate);
                     log.info(DEVICE_NAME + ": Displayed Average Time: " + displayedAverage);
                     log.info(DEVICE_NAME + ": Displayed TP50: " + dtp50);
@@ -228,25 +678,202 @@ public class DataUtils extends KpiUtils {
                     log.info(DEVICE_NAME + ": TP50 Value Vitals: " + tp50);
                     log.info(DEVICE_NAME + ": TP90 Value Vitals: " + tp90);
                 }
+                log.info(DEVICE_NAME + ": TP95: " + finalStats.getPercentile(95) + ", TP99: "
+                        + finalStats.getPercentile(99) + ", Max: " + finalStats.getMax());
+                double tp50Width = confidenceWidth(finalStats, 50), tp90Width = confidenceWidth(finalStats, 90);
+                log.info(DEVICE_NAME + ": TP50 95% CI Width: " + precisionText(tp50Width) + ", TP90 95% CI Width: "
+                        + precisionText(tp90Width));
+                double steadyTp50 = Double.NaN, steadyTp90 = Double.NaN;
+                String excluded = "NA";
+                String[] excludedReasons = null;
+                if (steadyStateFilter) {
+                    SteadyStateFilter.Result steady = new SteadyStateFilter(warmupMaxIterations, outlierThreshold)
+                            .apply(Arrays.copyOf(finalValues, iterations), segmentStarts);
+                    QuantileRecorder steadyStats = new QuantileRecorder(LATENCY_DECIMALS);
+                    for (double value : steady.getSteadyValues()) steadyStats.record(value);
+                    steadyTp50 = steadyStats.getPercentile(50);
+                    steadyTp90 = steadyStats.getPercentile(90);
+                    excluded = steady.getExcludedText();
+                    excludedReasons = excludedReasons(steady);
+                    log.info(DEVICE_NAME + ": Steady State TP50: " + steadyTp50 + ", TP90: " + steadyTp90 + " over "
+                            + steadyStats.getCount() + " values, excluded iterations (W = warm-up, O = outlier): "
+                            + (excluded.isEmpty() ? "none" : excluded));
+                }
                 log.info(DEVICE_NAME + ": Total Device Ram Consumption: " + tp50_Memory);
                 log.info(DEVICE_NAME + ": Total Device CPU Consumption: " + tp50_CpuUsage);
+                // The launch samples, memory snapshots and am start times of other devices are not handed over
+                // in a shard group
+                boolean ownIterations = segmentStarts.length == 1;
+                LaunchSampler.Window[] windows = ownIterations ? Arrays.copyOf(launchWindows, iterations) : null;
+                MemoryProbe.Snapshot[] snapshots = ownIterations ? Arrays.copyOf(memorySnapshots, iterations) : null;
+                AmStartResult[] starts = ownIterations ? Arrays.copyOf(amStartResults, iterations) : null;
+                if (windows != null && Arrays.stream(windows).anyMatch(Objects::nonNull)) {
+                    log.info(DEVICE_NAME + ": RAM and CPU are the peak RSS and app CPU usage of the launch windows");
+                }
+                if (snapshots != null) logMemoryTrend(metricsName, snapshots);
+                csvWrite.writeIterations(DSN, appVersion, metricsName, Arrays.copyOf(timerArr, iterations),
+                        Arrays.copyOf(displayedArr, iterations), Arrays.copyOf(memUsage, iterations),
+                        Arrays.copyOf(cpuUsage, iterations), excludedReasons, windows, snapshots, starts);
                 csvWrite.writeToCSV(DSN, appVersion, metricsName, valuesPerIterateFinal.toString(), tp50_Memory,
-                        tp50_CpuUsage, iterations, averageFinal, tp50Value, tp90Value);
+                        tp50_CpuUsage, iterations, averageFinal, tp50Value, tp90Value, tp50Width, tp90Width,
+                        steadyTp50, steadyTp90, excluded);
             } else {
                 csvWrite.writeToCSV(DSN, appVersion, metricsName, "NA", "NA",
                         "NA", 0, 0.0, 0, 0);
             }
 
             log.info(DEVICE_NAME + ": Execution Completed");
-
-            timerArr = new double[iterations];
-            memUsage = new double[iterations];
-            cpuUsage = new double[iterations];
         } catch (Exception e) {
             log.error(DEVICE_NAME + ": Exception while calculating average timer values", e);
         }
     }
 
+    /**
+     * Writes the fully drawn (RTU) times of a cool or warm run as a KPI of their own, e.g. Cool_RTU next to
+     * Cool_FF. Apps that never call reportFullyDrawn get no row.
+     *
+     * @param appVersion  The version of the application.
+     * @param DSN         The Device Serial Number.
+     * @param metricsName The name of the first frame metrics the times were measured with.
+     */
+    private void writeFullyDrawnRow(String appVersion, String DSN, String metricsName) {
+        String rtuName = metricsName.equalsIgnoreCase(COOL_APP_FF) ? COOL_APP_RTU
+                : metricsName.equalsIgnoreCase(WARM_APP_FF) ? WARM_APP_RTU : null;
+        if (rtuName != null) writeSeriesRow(appVersion, DSN, rtuName, fullyDrawnArr);
+    }
+
+    /**
+     * Writes the values of every configured log marker KPI as a KPI of their own, e.g. Cool_railLoaded.
+     *
+     * @param appVersion  The version of the application.
+     * @param DSN         The Device Serial Number.
+     * @param metricsName The name of the first frame metrics the values were measured with.
+     */
+    private void writeLogMarkerRows(String appVersion, String DSN, String metricsName) {
+        for (int m = 0; m < logMarkers.size(); m++) {
+            writeSeriesRow(appVersion, DSN, logMarkers.get(m).seriesName(metricsName), logMarkerArr[m]);
+        }
+    }
+
+    /**
+     * Writes a series measured next to the launch time of every iteration as a KPI row of its own,
+     * with the same statistics as the first frame row. A series without values is not written.
+     *
+     * @param appVersion  The version of the application.
+     * @param DSN         The Device Serial Number.
+     * @param seriesName  The name of the KPI.
+     * @param series      The value per iteration, 0 where missing.
+     */
+    private void writeSeriesRow(String appVersion, String DSN, String seriesName, double[] series) {
+        try {
+            QuantileRecorder stats = recorderOf(series, LATENCY_DECIMALS);
+            if (stats.getCount() == 0) {
+                log.info(DEVICE_NAME + ": No values of " + seriesName + " in any iteration, not written");
+                return;
+            }
+            TestKpiDataWrite csvWrite = new TestKpiDataWrite();
+            double[] values = Arrays.copyOf(series, iterations);
+            StringBuilder valuesPerIterate = new StringBuilder("[");
+            for (double value : values) {
+                if (value == 0) continue;
+                if (valuesPerIterate.length() > 1) valuesPerIterate.append(";");
+                valuesPerIterate.append(value);
+            }
+            valuesPerIterate.append("]");
+            double average = Double.parseDouble(df2.format(stats.getMean()));
+            double tp50 = stats.getPercentile(50), tp90 = stats.getPercentile(90);
+            double tp50Width = confidenceWidth(stats, 50), tp90Width = confidenceWidth(stats, 90);
+            if (stats.getMissing() > 0)
+                log.warn(DEVICE_NAME + ": " + seriesName + " for only " + stats.getCount() + " values, "
+                        + stats.getMissing() + " iterations missing");
+            log.info(DEVICE_NAME + ": " + seriesName + " Values Per Iteration: " + valuesPerIterate);
+            log.info(DEVICE_NAME + ": " + seriesName + " Average Time: " + average);
+            log.info(DEVICE_NAME + ": " + seriesName + " TP50: " + tp50 + ", TP90: " + tp90 + ", Max: "
+                    + stats.getMax());
+            double steadyTp50 = Double.NaN, steadyTp90 = Double.NaN;
+            String excluded = "NA";
+            String[] excludedReasons = null;
+            if (steadyStateFilter) {
+                SteadyStateFilter.Result steady = new SteadyStateFilter(warmupMaxIterations, outlierThreshold)
+                        .apply(values, segmentStarts);
+                QuantileRecorder steadyStats = new QuantileRecorder(LATENCY_DECIMALS);
+                for (double value : steady.getSteadyValues()) steadyStats.record(value);
+                steadyTp50 = steadyStats.getPercentile(50);
+                steadyTp90 = steadyStats.getPercentile(90);
+                excluded = steady.getExcludedText();
+                excludedReasons = excludedReasons(steady);
+                log.info(DEVICE_NAME + ": " + seriesName + " Steady State TP50: " + steadyTp50 + ", TP90: "
+                        + steadyTp90);
+            }
+            double[] memory = Arrays.copyOf(memUsage, iterations), cpu = Arrays.copyOf(cpuUsage, iterations);
+            csvWrite.writeIterations(DSN, appVersion, seriesName, values, new double[0], memory, cpu,
+                    excludedReasons, null, null, null);
+            csvWrite.writeToCSV(DSN, appVersion, seriesName, valuesPerIterate.toString(),
+                    recorderOf(memUsage, 2).getPercentile(50) + " MB", recorderOf(cpuUsage, 2).getPercentile(90) + "%",
+                    iterations, average, tp50, tp90, tp50Width, tp90Width, steadyTp50, steadyTp90, excluded);
+        } catch (Exception e) {
+            log.error(DEVICE_NAME + ": Exception while calculating " + seriesName + " values", e);
+        }
+    }
+
+    /**
+     * Returns why each iteration was left out of the steady-state percentiles.
+     *
+     * @param steady The result of the steady-state filter.
+     * @return "warmup" or "outlier" per excluded iteration, null for kept iterations.
+     */
+    private String[] excludedReasons(SteadyStateFilter.Result steady) {
+        String[] reasons = new String[iterations];
+        for (int i = 0; i < iterations; i++) {
+            if (steady.isWarmup(i)) reasons[i] = "warmup";
+            else if (steady.isOutlier(i)) reasons[i] = "outlier";
+        }
+        return reasons;
+    }
+
+    /**
+     * Logs how the PSS of the app grew over the iterations of a run, as the Theil-Sen slope (the median of the
+     * slopes between all pairs of iterations), which a few noisy readings cannot tilt.
+     * Growth beyond {@code memoryLeakWarnMb} over the run is logged as a possible leak.
+     *
+     * @param metricsName The name of the metrics.
+     * @param snapshots   The memory snapshot per iteration, null entries where none was read.
+     */
+    private void logMemoryTrend(String metricsName, MemoryProbe.Snapshot[] snapshots) {
+        List<double[]> points = new ArrayList<>();
+        for (int i = 0; i < snapshots.length; i++) {
+            if (snapshots[i] != null && snapshots[i].getPssMb() > 0) points.add(new double[]{i, snapshots[i].getPssMb()});
+        }
+        if (points.size() < 3) return;
+        List<Double> slopes = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            for (int j = i + 1; j < points.size(); j++) {
+                slopes.add((points.get(j)[1] - points.get(i)[1]) / (points.get(j)[0] - points.get(i)[0]));
+            }
+        }
+        double slope = calculateMedian(slopes.stream().mapToDouble(Double::doubleValue).toArray());
+        double growth = slope * (points.get(points.size() - 1)[0] - points.get(0)[0]);
+        String trend = DEVICE_NAME + ": " + metricsName + " PSS trend " + df2.format(slope) + " MB/iteration, "
+                + df2.format(growth) + " MB over " + points.size() + " iterations";
+        if (growth > memoryLeakWarnMb) log.warn(trend + ", possible memory leak");
+        else log.info(trend);
+    }
+
+    /**
+     * Records the first {@code iterations} values of an array, zeros counting as missing iterations.
+     *
+     * @param values   The values per iteration.
+     * @param decimals The decimals kept of every value.
+     * @return The recorder holding the values.
+     */
+    private QuantileRecorder recorderOf(double[] values, int decimals) {
+        QuantileRecorder recorder = new QuantileRecorder(decimals);
+        for (int i = 0; i < Math.min(iterations, values.length); i++) {
+            recorder.record(values[i]);
+        }
+        return recorder;
+    }
+
     /**
      * Retrieves the KPI ID based on the provided KPI metrics name.
      *
@@ -262,7 +889,23 @@ public class DataUtils extends KpiUtils {
             case "Warm_FF":
                 kpiId = 2;
                 break;
+            case "Hot_FF":
+                kpiId = 3;
+                break;
+            case "Cool_RTU":
+                kpiId = 4;
+                break;
+            case "Warm_RTU":
+                kpiId = 5;
+                break;
             default:
+                // Log marker KPIs: an id of the marker name, whatever its configured position, and the launch type
+                String[] launchTypes = {COOL_APP_FF, WARM_APP_FF, HOT_APP_FF};
+                for (LogMarkerKpi marker : logMarkers) {
+                    for (int t = 0; t < launchTypes.length; t++) {
+                        if (marker.seriesName(launchTypes[t]).equals(KPI_METRICS_NAME)) kpiId = marker.kpiId(t + 1);
+                    }
+                }
                 break;
         }
         return kpiId;
@@ -270,10 +913,13 @@ public class DataUtils extends KpiUtils {
 
     /**
      * Empties the existing arrays and resets the TP50 value.
-     * This method sets all elements of the displayedArr and timerArr arrays to 0.0 and resets the tp50Value to 0.0.
+     * This method sets all elements of the displayedArr, fullyDrawnArr, logMarkerArr and timerArr arrays to 0.0 and
+     * resets the tp50Value to 0.0.
      */
     public void emptyExistingArray() {
         if (displayedArr != null) Arrays.fill(displayedArr, 0.0);
+        if (fullyDrawnArr != null) Arrays.fill(fullyDrawnArr, 0.0);
+        if (logMarkerArr != null) for (double[] values : logMarkerArr) Arrays.fill(values, 0.0);
         if (timerArr != null) Arrays.fill(timerArr, 0.0);
         if (tp50Value != 0.0) tp50Value = 0.0;
     }
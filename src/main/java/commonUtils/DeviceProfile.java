@@ -0,0 +1,131 @@
+package commonUtils;
+
+import org.apache.log4j.Logger;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Static device facts (model, name, OS release, Fire OS build, configuration) read once per device
+ * from a single {@code getprop} dump and shared across the run.
+ * A profile stays cached until the device is rebooted or reconnected.
+ */
+public class DeviceProfile {
+
+    private static final Logger log = Logger.getLogger(DeviceProfile.class.getSimpleName());
+    private static final Map<String, DeviceProfile> PROFILES = new ConcurrentHashMap<>();
+    private static final Pattern GETPROP_LINE = Pattern.compile("^\\[([^\\]]+)\\]: \\[(.*)\\]$");
+
+    public static final String MODEL = "ro.product.model";
+    public static final String NAME = "ro.product.name";
+    public static final String RELEASE = "ro.build.version.release";
+    public static final String FOS_BUILD = "ro.build.version.name";
+    public static final String CONFIGURATION = "ro.build.configuration";
+    public static final String PRODUCT = "ro.build.product";
+
+    private final Map<String, String> properties;
+
+    private DeviceProfile(Map<String, String> properties) {
+        this.properties = Collections.unmodifiableMap(properties);
+    }
+
+    /**
+     * Returns the cached profile of the device, reading it with one getprop call on first use.
+     * An empty dump (device offline, command failed) is not cached so the next call retries.
+     *
+     * @param DSN The Device Serial Number (DSN) of the device.
+     * @param cmd The command executor used to reach the device.
+     * @return The device profile, possibly empty if the device could not be read.
+     */
+    public static DeviceProfile get(String DSN, Commands cmd) {
+        DeviceProfile profile = PROFILES.get(DSN);
+        if (profile != null) return profile;
+        profile = parse(cmd.adbRun(DSN, cmd.ADB_GETPROP).getStdout());
+        if (profile.properties.isEmpty()) {
+            log.error(DSN + ": Unable to read device properties");
+            return profile;
+        }
+        PROFILES.put(DSN, profile);
+        log.info(DSN + ": Device profile cached - " + profile.getModel() + " / " + profile.getFireOSBuild());
+        return profile;
+    }
+
+    /**
+     * Drops the cached profile of the device, to be called when it reboots or reconnects.
+     *
+     * @param DSN The Device Serial Number (DSN) of the device.
+     */
+    public static void invalidate(String DSN) {
+        if (PROFILES.remove(DSN) != null) log.info(DSN + ": Device profile invalidated");
+    }
+
+    /**
+     * Parses the output of {@code getprop}, where each line reads {@code [key]: [value]}.
+     *
+     * @param getpropDump The getprop output.
+     * @return The parsed profile.
+     */
+    static DeviceProfile parse(String getpropDump) {
+        Map<String, String> properties = new HashMap<>();
+        for (String line : getpropDump.split("\n")) {
+            Matcher matcher = GETPROP_LINE.matcher(line.trim());
+            if (matcher.matches()) properties.put(matcher.group(1), matcher.group(2).trim());
+        }
+        return new DeviceProfile(properties);
+    }
+
+    /**
+     * Returns a raw system property of the device.
+     *
+     * @param key The property name, e.g. "ro.product.model".
+     * @return The property value, or null if the device does not define it.
+     */
+    public String getProperty(String key) {
+        String value = properties.get(key);
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    public String getModel() {
+        return getProperty(MODEL);
+    }
+
+    public String getName() {
+        return getProperty(NAME);
+    }
+
+    public String getRelease() {
+        return getProperty(RELEASE);
+    }
+
+    public String getFireOSBuild() {
+        return getProperty(FOS_BUILD);
+    }
+
+    public String getConfiguration() {
+        return getProperty(CONFIGURATION);
+    }
+
+    public String getProduct() {
+        return getProperty(PRODUCT);
+    }
+
+    /**
+     * Returns the major Android version of the device, e.g. 9 for release "9" or 7 for "7.1.2".
+     *
+     * @return The major OS version, or 0 if the release is unknown.
+     */
+    public int getOsMajorVersion() {
+        String release = getRelease();
+        if (release == null) return 0;
+        try {
+            return Integer.parseInt(release.split("\\.")[0].trim());
+        } catch (NumberFormatException e) {
+            log.error("Unexpected OS release format: " + release);
+            return 0;
+        }
+    }
+}
@@ -5,25 +5,31 @@ import io.appium.java_client.android.AndroidDriver;
 import org.apache.log4j.Logger;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.util.Locale;
+import java.util.function.BooleanSupplier;
 
 public class DeviceTools extends ReadPaths {
     private final Logger log = Logger.getLogger(DeviceTools.class.getSimpleName());
-    Commands cmd = new Commands();
+    Commands cmd = new Commands(prop);
     private FileWriter fileWriter;
+    // Logcat stream position where the current iteration started, -1 when logs are dumped and cleared instead
+    protected long iterationLogStart = -1;
+    // Event-driven waits: conditions are polled at this interval and followed by a short settle time
+    private static final long WAIT_POLL_MS = 500;
 
 
     public AndroidDriver<MobileElement> device;
 
     /**
      * Retrieves the model name of the device specified by the DSN (Device Serial Number).
-     * This method executes an ADB (Android Debug Bridge) command to obtain the device model
-     * name, reads the output, and returns it in uppercase. If the output is null, it returns "NA".
+     * The model name is read from the cached {@link DeviceProfile} of the device and returned in uppercase.
+     * If the model is not available, it returns "NA".
      * If an exception occurs during the process, it logs the error and returns null.
      *
      * @param DSN the Device Serial Number of the device whose model name is to be fetched.
@@ -31,11 +37,10 @@ public class DeviceTools extends ReadPaths {
      * or null if an exception occurs.
      */
     public String getDeviceModelName(String DSN) {
-        try (BufferedReader read = new BufferedReader(new InputStreamReader
-                (cmd.adb(DSN, cmd.ADB_DEVICE_MODEL).getInputStream(), StandardCharsets.UTF_8))) {
-            String processReadLine = read.readLine();
-            if (processReadLine != null) {
-                return processReadLine.toUpperCase(Locale.ROOT);
+        try {
+            String model = DeviceProfile.get(DSN, cmd).getModel();
+            if (model != null) {
+                return model.toUpperCase(Locale.ROOT);
             }
             return "NA";
         } catch (Exception e) {
@@ -46,25 +51,16 @@ public class DeviceTools extends ReadPaths {
 
     /**
      * Retrieves the version of the specified app installed on the device with the given DSN (Device Serial Number).
-     * This method executes an ADB (Android Debug Bridge) command to obtain the app version from the device.
-     * It reads the output, extracts the version number, and returns it. If an exception occurs during the process,
-     * it logs the error and returns null.
+     * The version name is read from the cached {@link AppDescriptor} of the app.
+     * If an exception occurs during the process, it logs the error and returns null.
      *
      * @param DSN        the Device Serial Number of the device from which the app version is to be fetched.
      * @param appPackage the package name of the app whose version is to be fetched.
      * @return the version number of the specified app, or null if an exception occurs.
      */
     public String getAppVersionFromDevice(String DSN, String appPackage) {
-        try (BufferedReader read = new BufferedReader(new InputStreamReader(cmd.adb(DSN, cmd.ADB_DUMPSYS_PACKAGE
-                + appPackage + cmd.GET_VERSION_NO).getInputStream(), StandardCharsets.UTF_8))) {
-            String line, versionName = null;
-            while ((line = read.readLine()) != null) {
-                if (line.equals("")) {
-                    continue;
-                }
-                versionName = line.split("=")[1];
-            }
-            return versionName;
+        try {
+            return AppDescriptor.get(DSN, appPackage, cmd).getVersionName();
         } catch (Exception e) {
             log.error(DEVICE_NAME + ": Exception occurred while Getting app version: ", e);
             return null;
@@ -73,26 +69,16 @@ public class DeviceTools extends ReadPaths {
 
     /**
      * Retrieves the major version of the operating system running on the device with the given DSN (Device Serial Number).
-     * This method executes an ADB (Android Debug Bridge) command to obtain the OS version from the device.
-     * It reads the output, extracts the major version number, and returns it as an integer.
+     * The OS release is read from the cached {@link DeviceProfile} of the device, so repeated calls do not reach the device.
+     * It extracts the major version number and returns it as an integer.
      * If an exception occurs during the process, it logs the error and returns 0.
      *
      * @param DSN the Device Serial Number of the device from which the OS version is to be fetched.
      * @return the major version number of the device's operating system, or 0 if an exception occurs.
      */
     public int getDeviceOS(String DSN) {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(cmd.adb(DSN, cmd.ADB_DEVICE_OS).
-                getInputStream()))) {
-            String os = null;
-            int OS = 0;
-            while ((os = in.readLine()) != null) {
-                if (os.contains(".")) {
-                    os = os.substring(0, 1).trim();
-                }
-                OS = Integer.parseInt(os);
-                break;
-            }
-            return OS;
+        try {
+            return DeviceProfile.get(DSN, cmd).getOsMajorVersion();
         } catch (Exception e) {
             log.error(DEVICE_NAME + ": Exception occurred while getting OS version: ", e);
             return 0;
@@ -101,18 +87,16 @@ public class DeviceTools extends ReadPaths {
 
     /**
      * Retrieves the Fire OS build version of the device specified by the DSN (Device Serial Number).
-     * This method executes an ADB (Android Debug Bridge) command to obtain the Fire OS build version
-     * from the device. It reads the output and returns it as a string. If an exception occurs during
-     * the process, it logs the error and returns null.
+     * The Fire OS build version is read from the cached {@link DeviceProfile} of the device
+     * and returned as a string. If an exception occurs during the process, it logs the error and returns null.
      *
      * @param DSN the Device Serial Number of the device from which the Fire OS build version is to be fetched.
      * @return the Fire OS build version of the device, or null if an exception occurs.
      * @throws IOException if an I/O error occurs during the reading process.
      */
     public String getFireOSBuild(String DSN) throws IOException {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(cmd.adb(DSN, cmd.ADB_DEVICE_FOS_VERSION).
-                getInputStream(), StandardCharsets.UTF_8))) {
-            return in.readLine();
+        try {
+            return DeviceProfile.get(DSN, cmd).getFireOSBuild();
         } catch (Exception e) {
             log.error(DEVICE_NAME + ": Exception occurred while getting Fire OS: ", e);
             return null;
@@ -148,8 +132,8 @@ public class DeviceTools extends ReadPaths {
 
     /**
      * Retrieves the name of the device specified by the DSN (Device Serial Number).
-     * This method executes an ADB (Android Debug Bridge) command to obtain the device name.
-     * It reads the output and returns the device name in uppercase. If no name is found,
+     * The device name is read from the cached {@link DeviceProfile} of the device
+     * and returned in uppercase. If no name is found,
      * it returns "device". If an exception occurs during the process, it logs the error
      * and returns null.
      *
@@ -157,11 +141,10 @@ public class DeviceTools extends ReadPaths {
      * @return the device name in uppercase, "device" if the name is not found, or null if an exception occurs.
      */
     public String getDeviceName(String DSN) {
-        try (BufferedReader read = new BufferedReader(new InputStreamReader(cmd.adb(DSN, cmd.ADB_DEVICE_NAME)
-                .getInputStream(), StandardCharsets.UTF_8))) {
-            String line = null;
-            while ((line = read.readLine()) != null) {
-                return line.toUpperCase();
+        try {
+            String name = DeviceProfile.get(DSN, cmd).getName();
+            if (name != null) {
+                return name.toUpperCase();
             }
             return "device";
         } catch (Exception e) {
@@ -204,6 +187,94 @@ public class DeviceTools extends ReadPaths {
         }
     }
 
+    /**
+     * Tells whether waits complete as soon as their condition is observed (eventDrivenWaits in commonconfig.properties)
+     * instead of always sleeping for their full duration.
+     *
+     * @return true if event-driven waits are enabled.
+     */
+    public boolean isEventDrivenWait() {
+        return Boolean.parseBoolean(prop.getProperty("eventDrivenWaits", "false").trim());
+    }
+
+    /**
+     * Waits until the condition holds, then lets the device settle for waitSettleSeconds.
+     * The condition is polled every half second; the wait gives up after the timeout, which is the fixed sleep
+     * the caller used before. With event-driven waits disabled this simply sleeps for the timeout.
+     *
+     * @param description what is being waited for, used in the log.
+     * @param timeoutSec  the longest time to wait in seconds.
+     * @param condition   the condition that ends the wait.
+     * @return true if the condition was observed, false if the wait timed out.
+     */
+    public boolean waitUntil(String description, int timeoutSec, BooleanSupplier condition) {
+        if (!isEventDrivenWait()) {
+            explicitWait(timeoutSec);
+            return true;
+        }
+        long start = System.nanoTime();
+        long deadline = start + timeoutSec * 1000000000L;
+        boolean observed = false;
+        try {
+            while (!(observed = condition.getAsBoolean()) && System.nanoTime() < deadline) {
+                Thread.sleep(WAIT_POLL_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error(DEVICE_NAME + ": Exception occurred while waiting for " + description + ": ", e);
+        }
+        settle(description, observed, start, timeoutSec);
+        return observed;
+    }
+
+    /**
+     * Logs the outcome of an event-driven wait and sleeps for the settle time if the condition was observed.
+     *
+     * @param description what was waited for.
+     * @param observed    whether the condition was observed.
+     * @param start       the start time of the wait, from {@link System#nanoTime()}.
+     * @param timeoutSec  the timeout of the wait in seconds.
+     */
+    protected void settle(String description, boolean observed, long start, int timeoutSec) {
+        long elapsed = (System.nanoTime() - start) / 1000000L;
+        if (!observed) {
+            log.warn(DEVICE_NAME + ": Timed out after " + timeoutSec + "s waiting for " + description);
+            return;
+        }
+        log.info(DEVICE_NAME + ": " + description + " after " + elapsed + " ms");
+        explicitWait(Integer.parseInt(prop.getProperty("waitSettleSeconds", "2").trim()));
+    }
+
+    /**
+     * Waits until the app process is gone from the device, checked with pidof.
+     *
+     * @param DSN        the Device Serial Number of the device.
+     * @param appPackage the package name of the app.
+     * @param timeoutSec the longest time to wait in seconds.
+     * @return true if the process was observed to be gone.
+     */
+    public boolean waitForAppStopped(String DSN, String appPackage, int timeoutSec) {
+        return waitUntil(appPackage + " to stop", timeoutSec,
+                () -> cmd.adbRun(DSN, cmd.GET_PID + appPackage).getStdout().trim().isEmpty());
+    }
+
+    /**
+     * Waits until the app no longer holds the window focus, i.e. the launcher is back in front.
+     *
+     * @param DSN        the Device Serial Number of the device.
+     * @param appPackage the package name of the app.
+     * @param timeoutSec the longest time to wait in seconds.
+     * @return true if the focus was observed to leave the app.
+     */
+    public boolean waitForAppBackground(String DSN, String appPackage, int timeoutSec) {
+        String focusCommand = getDeviceOS(DSN) <= 9 ? cmd.ADB_CURRENT_SCREEN_FOCUS : cmd.ADB_CURRENT_SCREEN_FOCUS_A11;
+        return waitUntil(appPackage + " to leave the foreground", timeoutSec, () -> {
+            String focus = cmd.adbRun(DSN, focusCommand).getStdout().trim();
+            return !focus.isEmpty() && !focus.contains(appPackage);
+        });
+    }
+
     /**
      * Checks the screen state of the device specified by the DSN (Device Serial Number) and unlocks it if necessary.
      * This method performs the following steps:
@@ -327,9 +398,8 @@ public class DeviceTools extends ReadPaths {
 
     /**
      * Retrieves the minimum SDK version required by the specified app package on the device specified by the DSN (Device Serial Number).
-     * This method checks if the device OS version is 9 or higher before proceeding to fetch the app's minimum SDK version.
-     * It executes an ADB (Android Debug Bridge) command to obtain information about the specified app package,
-     * including its minimum SDK version. If an exception occurs during the process, it logs the error.
+     * This method checks if the device OS version is 9 or higher before proceeding to fetch the app's minimum SDK version,
+     * which is read from the cached {@link AppDescriptor} of the app. If an exception occurs during the process, it logs the error.
      *
      * @param DSN        the Device Serial Number of the device where the app is installed.
      * @param appPackage the package name of the app whose minimum SDK version is to be fetched.
@@ -337,65 +407,87 @@ public class DeviceTools extends ReadPaths {
      * if an exception occurs during any step, it logs the error..
      */
     public String getAppMinSDK(String DSN, String appPackage) throws IOException {
-        BufferedReader reader = null;
         try {
             if (getDeviceOS(DSN) < 9) return "NA";
-            reader = new BufferedReader(new InputStreamReader(cmd.adb(DSN,
-                    cmd.ADB_DUMPSYS_PACKAGE + " " + appPackage + " " + cmd.GET_VERSION_CODE).getInputStream(),
-                    StandardCharsets.UTF_8));
-            String processReadLine = reader.readLine();
-            processReadLine = processReadLine.replaceAll(" ", "");
-            processReadLine = processReadLine.split("minSdk=")[1];
-            processReadLine = processReadLine.split("targetSdk=")[0].trim();
-            return processReadLine;
+            String minSdk = AppDescriptor.get(DSN, appPackage, cmd).getMinSdk();
+            if (minSdk != null) return minSdk;
         } catch (Exception e) {
             log.error(DEVICE_NAME + ": Exception occurred while fetching Min SDK of App: ", e);
-        } finally {
-            if (reader != null) reader.close();
         }
         return "NA";
     }
 
     /**
      * Retrieves the target SDK version required by the specified app package on the device specified by the DSN (Device Serial Number).
-     * This method checks if the device OS version is 9 or higher before proceeding to fetch the app's target SDK version.
-     * It executes an ADB (Android Debug Bridge) command to obtain information about the specified app package,
-     * including its target SDK version. If an exception occurs during the process, it logs the error.
+     * The target SDK version is read from the cached {@link AppDescriptor} of the app.
+     * If an exception occurs during the process, it logs the error.
      *
      * @param DSN        the Device Serial Number of the device where the app is installed.
      * @param appPackage the package name of the app whose target SDK version is to be fetched.
      * @return the target SDK version required by the app, or "NA" if an exception occurs.
      */
     public String getAppTargetSDK(String DSN, String appPackage) {
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(cmd.adb(DSN,
-                cmd.ADB_DUMPSYS_PACKAGE + " " + appPackage + " " + cmd.GET_VERSION_CODE).getInputStream(),
-                StandardCharsets.UTF_8))) {
-            String processReadLine = reader.readLine();
-            if (getDeviceOS(DSN) < 9) {
-                processReadLine = processReadLine.replaceAll(" ", "");
-                processReadLine = processReadLine.split("targetSdk=")[1].trim();
-            } else {
-                processReadLine = processReadLine.replaceAll(" ", "");
-                processReadLine = processReadLine.split("minSdk=")[1];
-                processReadLine = processReadLine.split("targetSdk=")[1].trim();
-            }
-            return processReadLine;
+        try {
+            String targetSdk = AppDescriptor.get(DSN, appPackage, cmd).getTargetSdk();
+            if (targetSdk != null) return targetSdk;
         } catch (Exception e) {
             log.error(DEVICE_NAME + ": Exception occurred while fetching Target SDK of App: ", e);
         }
         return "NA";
     }
 
+    /**
+     * Marks the start of an iteration in the device log.
+     * When the logcat collector is enabled (logcatCollector in commonconfig.properties), the collector of the device
+     * is started on first use and the current stream position is remembered, so the logs of the iteration can be read
+     * back as a slice without dumping and clearing the ring buffers.
+     *
+     * @param DSN the Device Serial Number of the device.
+     */
+    public void startIterationLogs(String DSN) {
+        iterationLogStart = -1;
+        if (!Boolean.parseBoolean(prop.getProperty("logcatCollector", "false").trim())) return;
+        try {
+            LogcatCollector collector = LogcatCollector.start(DSN, cmd, new File(adbLogs),
+                    Long.parseLong(prop.getProperty("logcatRotateMB", "64").trim()) * 1024 * 1024,
+                    Integer.parseInt(prop.getProperty("logcatRotateFiles", "4").trim()));
+            iterationLogStart = collector.mark();
+        } catch (Exception e) {
+            log.error(DEVICE_NAME + ": Exception occurred while starting logcat collector, falling back to logcat dump: ", e);
+        }
+    }
+
+    /**
+     * Returns the logcat collector of the device when the current iteration is being read from it.
+     *
+     * @param DSN the Device Serial Number of the device.
+     * @return the running collector, or null if the iteration uses logcat dumps.
+     */
+    protected LogcatCollector iterationCollector(String DSN) {
+        return iterationLogStart < 0 ? null : LogcatCollector.get(DSN);
+    }
+
     /**
      * Fetches the ADB logs for the specified device (identified by DSN) and appends them to the provided log file.
-     * This method executes an ADB (Android Debug Bridge) command to fetch the logcat dump for the specified device.
-     * It reads the output stream line by line and appends each line to the provided log file.
+     * When the iteration was started with {@link #startIterationLogs(String)} and the logcat collector is running,
+     * only the slice of the collected stream since the iteration started is appended.
+     * Otherwise this method executes an ADB (Android Debug Bridge) command to fetch the logcat dump for the specified
+     * device and appends it line by line to the provided log file.
      * If an exception occurs during the process, it logs the error.
      *
      * @param logFile the File object representing the log file where the ADB logs will be appended.
      * @param DSN     the Device Serial Number of the device whose logs are to be fetched.
      */
     public void getApp_ADBLogsFile(File logFile, String DSN) {
+        LogcatCollector collector = iterationCollector(DSN);
+        if (collector != null) {
+            try {
+                collector.writeSlice(iterationLogStart, collector.mark(), logFile);
+                return;
+            } catch (Exception e) {
+                log.error(DEVICE_NAME + ": Exception occurred while writing logcat slice, falling back to logcat dump: ", e);
+            }
+        }
         try (BufferedReader read = new BufferedReader(new InputStreamReader(cmd.adb(DSN,
                 cmd.ADB_LOGCAT_DUMP).getInputStream(), StandardCharsets.UTF_8))) {
             fileWriter = new FileWriter(logFile, true);
@@ -409,10 +501,24 @@ public class DeviceTools extends ReadPaths {
         }
     }
 
+    /**
+     * Appends captured log bytes to the log file of an iteration.
+     *
+     * @param logFile the File object representing the log file of the iteration.
+     * @param logs    the captured log bytes.
+     */
+    public void writeIterationLogs(File logFile, byte[] logs) {
+        try (FileOutputStream out = new FileOutputStream(logFile, true)) {
+            out.write(logs);
+        } catch (Exception e) {
+            log.error(DEVICE_NAME + ": Exception occurred while writing iteration logs to " + logFile + ": ", e);
+        }
+    }
+
     /**
      * Retrieves the main activity intent of the specified app package installed on the device identified by the DSN (Device Serial Number).
-     * This method executes an ADB (Android Debug Bridge) command to obtain information about the specified app package,
-     * including its main activity intent. It parses the output to extract the main activity intent and returns it.
+     * The main activity intent is read from the cached {@link AppDescriptor} of the app, so repeated calls
+     * during the iterations do not reach the device.
      * If the app is not installed on the device or if an exception occurs during the process, it logs the error.
      *
      * @param DSN        the Device Serial Number of the device where the app is installed.
@@ -420,21 +526,13 @@ public class DeviceTools extends ReadPaths {
      * @return the main activity intent of the app, or null if the app is not installed or if an exception occurs.
      */
     public String getAppIntent(String DSN, String appPackage) {
-        try (BufferedReader read = new BufferedReader(new InputStreamReader(cmd.adb(DSN, cmd.ADB_PM_DUMP +
-                appPackage + cmd.GET_ACTIVITY_MAIN).getInputStream(), StandardCharsets.UTF_8))) {
-            String line = null;
-            while ((line = read.readLine()) != null) {
-                if (line.contains(appPackage + "/")) {
-                    break;
-                }
-            }
-            if (line == null) {
+        try {
+            String launcherActivity = AppDescriptor.get(DSN, appPackage, cmd).getLauncherActivity();
+            if (launcherActivity == null) {
                 log.error("App is not installed on device");
                 return null;
             }
-            line = line.split("/")[1];
-            line = line.split(" ")[0];
-            appIntent = appPackage + "/" + line;
+            appIntent = launcherActivity;
             return appIntent;
         } catch (Exception e) {
             log.error(DEVICE_NAME + ": Exception occurred while fetching App Intent");
@@ -561,11 +659,29 @@ public class DeviceTools extends ReadPaths {
      * @param appPackage the package name of the app to be force stopped.
      */
     public void forceStopApp(String DSN, String appPackage) {
+        forceStopApp(DSN, appPackage, 0);
+    }
+
+    /**
+     * Force stops the app and waits for the quiet period the launch loops keep between iterations.
+     * With event-driven waits, the wait ends once the process is gone, at most after the longer of 5 seconds and
+     * the quiet period, followed by one settle time. Without them, it sleeps 5 seconds and then the quiet period.
+     *
+     * @param DSN        the Device Serial Number of the device where the app is installed.
+     * @param appPackage the package name of the app to be force stopped.
+     * @param quietSec   the seconds to wait after the stop, 0 for none.
+     */
+    public void forceStopApp(String DSN, String appPackage, int quietSec) {
         try {
             String deviceName = DEVICE_NAME;
             cmd.adb(DSN, cmd.ADB_FORCE_STOP + appPackage);
             log.info(deviceName + ": App force stopped - " + appPackage);
-            explicitWait(5);
+            if (isEventDrivenWait()) {
+                waitForAppStopped(DSN, appPackage, Math.max(5, quietSec));
+            } else {
+                explicitWait(5);
+                if (quietSec > 0) explicitWait(quietSec);
+            }
         } catch (Exception e) {
             log.error(DEVICE_NAME + ": Exception occurred while force stopping the app: ", e);
         }
@@ -573,10 +689,10 @@ public class DeviceTools extends ReadPaths {
 
     /**
      * Enum representing available test types.
-     * This enum defines three test constants: latency, cool, and warm.
+     * This enum defines four test constants: latency, cool, warm, and hot.
      */
     enum availableTest {
-        latency, cool, warm;
+        latency, cool, warm, hot;
     }
 
     /**
@@ -605,8 +721,8 @@ public class DeviceTools extends ReadPaths {
 
     /**
      * Validates the type of the device identified by the given Device Serial Number (DSN).
-     * This method executes an ADB (Android Debug Bridge) command to determine the type of the device
-     * identified by the provided DSN. It then sets the DEVICE_TYPE accordingly and logs the device type.
+     * This method reads the build configuration from the {@link DeviceProfile} of the device
+     * to determine the type of the device identified by the provided DSN. It then sets the DEVICE_TYPE accordingly and logs the device type.
      * If the device type is unsupported or an exception occurs during the process, it sets the APP_FAILURE_REASON
      * and returns false.
      *
@@ -614,10 +730,14 @@ public class DeviceTools extends ReadPaths {
      * @return true if the device type is validated successfully; false otherwise.
      */
     public boolean validateDevice(String DSN) {
-        try (BufferedReader br = new BufferedReader(new InputStreamReader
-                (cmd.adb(DSN, cmd.ADB_DEVICE_TYPE).getInputStream(), StandardCharsets.UTF_8))) {
+        try {
             DeviceTools.DSN = DSN;
-            String outputLines = br.readLine();
+            String outputLines = DeviceProfile.get(DSN, cmd).getConfiguration();
+            if (outputLines == null) {
+                log.info("Unsupported Device type: ro.build.configuration is not set");
+                APP_FAILURE_REASON = "Unsupported Device type";
+                return false;
+            }
             switch (outputLines) {
                 case "tv":
                     DeviceTools.DEVICE_TYPE = "ftv";
@@ -0,0 +1,114 @@
+package commonUtils;
+
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the host-side stage of launch iterations (log persistence, marker parsing, statistics) on a background thread,
+ * so the test thread can move on to the cooldown and launch of the next iteration.
+ * Stages run one at a time in submission order, so results are committed in iteration order.
+ * At most {@code depth} stages may be pending; submitting more blocks the test thread until one completes.
+ * A depth of 0 runs every stage inline on the calling thread.
+ */
+public class IterationPipeline implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(IterationPipeline.class.getSimpleName());
+
+    /**
+     * The host-side stage of one iteration.
+     */
+    public interface Stage {
+        void run() throws Exception;
+    }
+
+    private final String name;
+    private final int depth;
+    private final Semaphore pending;
+    private final ExecutorService worker;
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param name  The name of the pipeline, used for its thread and in the log.
+     * @param depth The number of stages that may be pending before submitting blocks, 0 to run stages inline.
+     */
+    public IterationPipeline(String name, int depth) {
+        this.name = name;
+        this.depth = Math.max(0, depth);
+        this.pending = new Semaphore(Math.max(1, this.depth));
+        this.worker = this.depth == 0 ? null : Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Hands the host-side stage of an iteration to the pipeline.
+     * Failures of the stage are logged with the given description and do not affect later stages.
+     *
+     * @param description What the stage does, used when logging its failure.
+     * @param stage       The stage to run.
+     */
+    public void submit(String description, Stage stage) {
+        if (worker == null) {
+            runStage(description, stage);
+            return;
+        }
+        try {
+            pending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            runStage(description, stage);
+            return;
+        }
+        worker.execute(() -> {
+            try {
+                runStage(description, stage);
+            } finally {
+                pending.release();
+            }
+        });
+    }
+
+    /**
+     * Waits until every submitted stage has completed.
+     */
+    public void drain() {
+        if (worker == null) return;
+        try {
+            pending.acquire(depth);
+            pending.release(depth);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error(name + ": Interrupted while waiting for pending iterations");
+        }
+    }
+
+    /**
+     * Drains the pipeline and stops its thread.
+     */
+    @Override
+    public void close() {
+        drain();
+        if (worker == null) return;
+        worker.shutdown();
+        try {
+            worker.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runStage(String description, Stage stage) {
+        try {
+            stage.run();
+        } catch (Exception e) {
+            log.error(description, e);
+        }
+    }
+}
@@ -2,16 +2,12 @@ package commonUtils;
 
 import org.apache.log4j.Logger;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.text.DecimalFormat;
 
 public class KpiUtils extends DeviceTools {
@@ -21,7 +17,8 @@ public class KpiUtils extends DeviceTools {
 
     /**
      * Retrieves the memory usage of a specified app package on the device identified by the provided DSN.
-     * This method fetches memory usage information for the specified app package on the device using adb commands.
+     * The PSS of the app process is read with the {@link MemoryProbe}; only if the app is not found that way the
+     * meminfo of the whole system is dumped and the package grepped from it.
      * The memory usage is returned in megabytes (MB).
      *
      * @param DSN        The Device Serial Number (DSN) of the device.
@@ -32,6 +29,8 @@ public class KpiUtils extends DeviceTools {
     public String getApp_Memory_Usage(String DSN, String appPackage) throws IOException {
         BufferedReader reader = null;
         try {
+            MemoryProbe.Snapshot snapshot = MemoryProbe.read(DSN, cmd, appPackage);
+            if (snapshot != null) return df2.format(snapshot.getPssMb());
             int deviceOs = getDeviceOS(DSN);
 
             if (deviceOs > 9 && DEVICE_TYPE.equals(TABLET)) {
@@ -102,10 +101,122 @@ public class KpiUtils extends DeviceTools {
         return "";
     }
 
+    /**
+     * Extracts all launch markers of the app in a single pass, either from the logcat collector slice
+     * of the current iteration or, without a collector, from one dump of the vitals buffer.
+     *
+     * @param DSN        The Device Serial Number (DSN) of the device.
+     * @param appPackage The package name of the app.
+     * @return The launch markers found in the logs.
+     * @throws IOException If an I/O error occurs while reading the device logs.
+     */
+    public LaunchMarkers getVitalsMarkers(String DSN, String appPackage) throws IOException {
+        LaunchMarkerExtractor extractor = new LaunchMarkerExtractor(this, appPackage, appIntent);
+        LogcatCollector collector = iterationCollector(DSN);
+        if (collector != null) return extractor.extract(collector.openSlice(iterationLogStart, collector.mark()));
+        return extractor.extract(cmd.adb(DSN, cmd.ADB_DUMP_LOGCAT_VITALS).getInputStream());
+    }
+
+    /**
+     * Waits until the launch of the app has been logged (a vitals launch timer or the Displayed marker),
+     * then lets it settle so later markers such as fully drawn can land.
+     * With the logcat collector running the stream of the current iteration is watched directly;
+     * otherwise the vitals buffer is polled. The timeout is the fixed wait the launch loops used before.
+     *
+     * @param DSN        The Device Serial Number (DSN) of the device.
+     * @param appPackage The package name of the app.
+     * @param timeoutSec The longest time to wait in seconds.
+     * @return true if the launch was observed, false if the wait timed out.
+     */
+    public boolean waitForLaunch(String DSN, String appPackage, int timeoutSec) {
+        LogcatCollector collector = iterationCollector(DSN);
+        if (collector == null || !isEventDrivenWait()) {
+            return waitUntil(appPackage + " launch", timeoutSec, () -> {
+                try {
+                    return getVitalsMarkers(DSN, appPackage).hasLaunchMarker();
+                } catch (IOException e) {
+                    return false;
+                }
+            });
+        }
+        long start = System.nanoTime();
+        boolean observed = false;
+        try {
+            LaunchMarkerExtractor extractor = new LaunchMarkerExtractor(this, appPackage, appIntent);
+            LaunchMarkers markers = new LaunchMarkers();
+            observed = collector.awaitLine(iterationLogStart, line -> {
+                extractor.accept(markers, line);
+                return markers.hasLaunchMarker();
+            }, timeoutSec * 1000L);
+        } catch (Exception e) {
+            log.error(DEVICE_NAME + ": Exception occurred while waiting for launch markers: ", e);
+        }
+        settle(appPackage + " launch", observed, start, timeoutSec);
+        return observed;
+    }
+
+    /**
+     * Extracts all launch markers of the app from an adb log file in a single pass.
+     *
+     * @param DSN        The Device Serial Number (DSN) of the device.
+     * @param appPackage The package name of the app.
+     * @param adbLog     The adb log file containing the log messages.
+     * @return The launch markers found in the file, empty if the file could not be read.
+     */
+    public LaunchMarkers getLogFileMarkers(String DSN, String appPackage, File adbLog) {
+        try {
+            return new LaunchMarkerExtractor(this, appPackage, getAppIntent(DSN, appPackage)).extract(adbLog);
+        } catch (Exception e) {
+            log.error(DEVICE_NAME + ": Exception occurred while reading launch markers from " + adbLog + ": ", e);
+            return new LaunchMarkers();
+        }
+    }
+
+    /**
+     * Captures the vitals logs of the current iteration for later parsing: the logcat collector slice
+     * since the iteration started, or one dump of the vitals buffer without a collector.
+     *
+     * @param DSN The Device Serial Number (DSN) of the device.
+     * @return The raw log bytes.
+     * @throws IOException If an I/O error occurs while reading the device logs.
+     */
+    public byte[] captureVitalsLogs(String DSN) throws IOException {
+        LogcatCollector collector = iterationCollector(DSN);
+        if (collector != null) return collector.openSlice(iterationLogStart, collector.mark()).readAllBytes();
+        return cmd.adbRun(DSN, cmd.ADB_DUMP_LOGCAT_VITALS).getStdout().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Captures all logs of the current iteration for later parsing: the logcat collector slice
+     * since the iteration started, or one dump of all buffers without a collector.
+     *
+     * @param DSN The Device Serial Number (DSN) of the device.
+     * @return The raw log bytes.
+     * @throws IOException If an I/O error occurs while reading the device logs.
+     */
+    public byte[] captureIterationLogs(String DSN) throws IOException {
+        LogcatCollector collector = iterationCollector(DSN);
+        if (collector != null) return collector.openSlice(iterationLogStart, collector.mark()).readAllBytes();
+        return cmd.adbRun(DSN, cmd.ADB_LOGCAT_DUMP).getStdout().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Extracts all launch markers of the app from captured log bytes in a single pass.
+     *
+     * @param appPackage The package name of the app.
+     * @param appIntent  The launch intent of the app.
+     * @param logs       The captured log bytes.
+     * @return The launch markers found in the logs.
+     * @throws IOException If the logs cannot be read.
+     */
+    public LaunchMarkers extractMarkers(String appPackage, String appIntent, byte[] logs) throws IOException {
+        return new LaunchMarkerExtractor(this, appPackage, appIntent).extract(new ByteArrayInputStream(logs));
+    }
+
     /**
      * Retrieves the launch timer for the "Cool" application on the device identified by the provided DSN.
-     * This method searches the device logs for performance metrics related to the "Cool" application launch,
-     * including both the "CoolApp" and "CoolActivity" events. It extracts the launch timer from the logs.
+     * This method scans one dump of the vitals buffer for the "CoolApp" and "CoolActivity" performance markers
+     * and extracts the launch timer, preferring the "CoolApp" marker.
      * The launch timer is returned in milliseconds.
      *
      * @param DSN        The Device Serial Number (DSN) of the device.
@@ -114,55 +225,35 @@ public class KpiUtils extends DeviceTools {
      * @throws IOException If an I/O error occurs while reading the device logs.
      */
     public double getCoolLaunchTimer(String DSN, String appPackage) throws IOException {
-        int timer = 0;
-        BufferedReader reader_New = null, read = null;
         try {
-            String line_CoolApp;
-            String line_CoolActivity;
-            boolean condition = false;
-            int i = 0;
-
-            read = new BufferedReader(new InputStreamReader(cmd.adb(DSN, cmd.ADB_DUMP_LOGCAT_VITALS).getInputStream(),
-                    StandardCharsets.UTF_8));
-            while ((line_CoolApp = read.readLine()) != null) {
-                if (line_CoolApp.contains("performance:" + COOL_APP) && line_CoolApp.contains("key=" + appPackage)) {
-                    timer = splitToTimer(line_CoolApp);
-                    i++;
-                    condition = true;
-                    metricsName = COOL_APP_FF;
-
-                }
-            }
-
-            reader_New = new BufferedReader(new InputStreamReader(cmd.adb(DSN,
-                    cmd.ADB_DUMP_LOGCAT_VITALS).getInputStream(), StandardCharsets.UTF_8));
-            while ((line_CoolActivity = reader_New.readLine()) != null && !condition) {
-                if (line_CoolActivity.contains("performance:" + COOL_ACTIVITY) && line_CoolActivity.contains("key=" + appPackage)) {
-                    timer = splitToTimer(line_CoolActivity);
-                    i++;
-                    condition = true;
-                    metricsName = COOL_APP_FF;
-
-                }
-            }
-            log.info(DEVICE_NAME + ": Cool : " + metricsName + " : " + timer + " ms");
-
-            if (!condition) {
-                log.error(DEVICE_NAME + ": No Cool Vital Latency value found in logs");
-            }
+            return getCoolLaunchTimer(getVitalsMarkers(DSN, appPackage));
         } catch (Exception e) {
             log.error(DEVICE_NAME + ": Exception occurred while capturing cool vitals/metrics in adb logs: ", e);
-        } finally {
-            if (read != null) read.close();
-            if (reader_New != null) reader_New.close();
+        }
+        return 0;
+    }
+
+    /**
+     * Retrieves the "Cool" launch timer from launch markers that were already extracted.
+     *
+     * @param markers The launch markers of the iteration.
+     * @return The launch timer for the "Cool" application in milliseconds, or 0 if not found.
+     */
+    public double getCoolLaunchTimer(LaunchMarkers markers) {
+        int timer = markers.getCoolLaunchTimer();
+        if (timer != 0) metricsName = COOL_APP_FF;
+        log.info(DEVICE_NAME + ": Cool : " + metricsName + " : " + timer + " ms");
+
+        if (timer == 0) {
+            log.error(DEVICE_NAME + ": No Cool Vital Latency value found in logs");
         }
         return (double) timer / 1000;
     }
 
     /**
      * Retrieves the launch timer for the "Warm" application on the device identified by the provided DSN.
-     * This method searches the device logs for performance metrics related to the "Warm" application launch,
-     * including both the "WarmApp" and "WarmActivity" events. It extracts the launch timer from the logs.
+     * This method scans one dump of the vitals buffer for the "WarmApp" and "WarmActivity" performance markers
+     * and extracts the launch timer, preferring the warm transition marker.
      * The launch timer is returned in milliseconds.
      *
      * @param DSN        The Device Serial Number (DSN) of the device.
@@ -171,118 +262,86 @@ public class KpiUtils extends DeviceTools {
      * @throws IOException If an I/O error occurs while reading the device logs.
      */
     public double getWarmLaunchTimer(String DSN, String appPackage) throws IOException {
-        int timer = 0;
         metricsName = null;
-        BufferedReader read = null, reader_New = null;
         try {
-            String line_WarmApp;
-            String line_WarmActivity;
-            boolean condition = false;
-            int i = 0;
-
-            read = new BufferedReader(new InputStreamReader(cmd.adb(DSN, cmd.ADB_DUMP_LOGCAT_VITALS).getInputStream(),
-                    StandardCharsets.UTF_8));
-            while ((line_WarmApp = read.readLine()) != null) {
-                if (line_WarmApp.contains("performance:" + WARM_APP_WARM) && line_WarmApp.contains("key=" + appPackage)) {
-                    timer = splitToTimer(line_WarmApp);
-                    i++;
-                    condition = true;
-                    metricsName = WARM_APP_FF;
-
-                }
-            }
-
-            reader_New = new BufferedReader(new InputStreamReader(cmd.adb(DSN,
-                    cmd.ADB_DUMP_LOGCAT_VITALS).getInputStream(), StandardCharsets.UTF_8));
-            while ((line_WarmActivity = reader_New.readLine()) != null && !condition) {
-                if (line_WarmActivity.contains("performance:" + WARM_APP_COOL) && line_WarmActivity.contains("key=" + appPackage)) {
-                    timer = splitToTimer(line_WarmActivity);
-                    i++;
-                    condition = true;
-                    metricsName = WARM_APP_FF;
-
-                }
-            }
-            log.info(DEVICE_NAME + ": Warm : " + metricsName + " : " + timer + " ms");
-
-            if (!condition) {
-                log.error(DEVICE_NAME + ": No Warm Vital Latency value found in logs");
-            }
+            return getWarmLaunchTimer(getVitalsMarkers(DSN, appPackage));
         } catch (Exception e) {
             log.error(DEVICE_NAME + ": Exception occurred while capturing Warm vitals/metrics in adb logs: ", e);
-        } finally {
-            if (read != null) read.close();
-            if (reader_New != null) reader_New.close();
+        }
+        return 0;
+    }
+
+    /**
+     * Retrieves the "Warm" launch timer from launch markers that were already extracted.
+     *
+     * @param markers The launch markers of the iteration.
+     * @return The launch timer for the "Warm" application in milliseconds, or 0 if not found.
+     */
+    public double getWarmLaunchTimer(LaunchMarkers markers) {
+        int timer = markers.getWarmLaunchTimer();
+        metricsName = timer != 0 ? WARM_APP_FF : null;
+        log.info(DEVICE_NAME + ": Warm : " + metricsName + " : " + timer + " ms");
+
+        if (timer == 0) {
+            log.error(DEVICE_NAME + ": No Warm Vital Latency value found in logs");
         }
         return (double) timer / 1000;
     }
 
+    /**
+     * Retrieves the "Hot" launch timer, the TotalTime the activity manager reported for bringing the app back
+     * to the foreground. A launch the activity manager did not report as hot, e.g. because the activity had been
+     * destroyed in the background, is logged but still counted.
+     *
+     * @param start The launch times of am start, may be null.
+     * @return The launch timer for the "Hot" application, scaled like the vitals timers, or 0 if not found.
+     */
+    public double getHotLaunchTimer(AmStartResult start) {
+        if (start == null) {
+            log.error(DEVICE_NAME + ": No am start launch time found for Hot launch");
+            return 0;
+        }
+        if (start.getLaunchState() != null && !start.getLaunchState().equalsIgnoreCase("HOT")) {
+            log.warn(DEVICE_NAME + ": Hot launch reported as " + start.getLaunchState() + " by am start");
+        }
+        metricsName = HOT_APP_FF;
+        log.info(DEVICE_NAME + ": Hot : " + metricsName + " : " + start.getTotalTime() + " ms");
+        return start.getTotalTime() / 1000.00;
+    }
+
     /**
      * Captures the launch performance metrics for the "Warm" application by analyzing the device logs.
-     * This method retrieves the performance metrics related to the launch of the "Warm" application
-     * from the device logs and writes them to a text file for further analysis. It then parses the logs
-     * to extract the launch timer and the associated metrics. The launch timer is returned in milliseconds.
+     * This method streams one dump of the vitals buffer through the launch marker extractor
+     * and records which warm marker the launch timer was taken from. The launch timer is returned in milliseconds.
      *
      * @param appPackage The package name of the "Warm" application for which performance metrics are captured.
      * @param DSN        The Device Serial Number (DSN) of the device.
      * @return The launch timer for the "Warm" application in milliseconds, or 0 if unable to retrieve.
-     * @throws IOException If an I/O error occurs while reading or writing the device logs.
+     * @throws IOException If an I/O error occurs while reading the device logs.
      */
     public double performanceWarmLaunchLogCapture(String appPackage, String DSN) throws IOException {
         DEVICE_NAME = getDeviceName(DSN);
         metricsName = "null";
-        int timer = 0;
-        int metricsChk = 0;
-        boolean condition = false;
-        BufferedReader read = null, reader = null, read_New = null;
-        FileWriter fileWriter = null;
-        File file;
-        String pathName = kpiLog + "Warm_ADB_Log_" + appPackage + "_" + DEVICE_NAME + ".txt";
-        Path path = Paths.get(pathName);
         try {
-            read = new BufferedReader(new InputStreamReader(cmd.adb(DSN,
-                    cmd.ADB_DUMP_LOGCAT_VITALS).getInputStream(), StandardCharsets.UTF_8));
-            String line_WarmApp;
-            String line_WarmActivity;
-
-            file = new File(pathName);
-            fileWriter = new FileWriter(file);
-            while ((line_WarmApp = read.readLine()) != null) {
-                fileWriter.write(line_WarmApp.trim() + "\n");
-            }
-
-            reader = new BufferedReader(new FileReader(file));
-            while ((line_WarmApp = reader.readLine()) != null) {
-                if (line_WarmApp.contains("performance:" + WARM_APP_WARM) && line_WarmApp.contains("key=" + appPackage)) {
-                    timer = splitToTimer(line_WarmApp);
-                    metricsName = WARM_APP_WARM;
-                    condition = true;
-                    metricsChk = 1;
-                }
-            }
-
-            read_New = new BufferedReader(new FileReader(file));
-            while ((line_WarmActivity = read_New.readLine()) != null && metricsChk < 1) {
-                if (line_WarmActivity.contains("performance:" + WARM_APP_COOL) && line_WarmActivity.contains("key=" + appPackage)) {
-                    timer = splitToTimer(line_WarmActivity);
-                    condition = true;
-                    metricsName = WARM_APP_COOL;
-                }
-            }
-
-            if (!condition) {
-                log.error(DEVICE_NAME + ": No Warm Vital Activity value found in logs");
-            }
-
+            return performanceWarmLaunchLogCapture(getVitalsMarkers(DSN, appPackage));
         } catch (Exception e) {
             log.error(DEVICE_NAME + ": Exception occurred while capturing warm vitals/metrics in adb logs: ", e);
-        } finally {
-            if (fileWriter != null) fileWriter.flush();
-            if (fileWriter != null) fileWriter.close();
-            if (read != null) read.close();
-            if (reader != null) reader.close();
-            if (read_New != null) read_New.close();
-            if (Files.exists(path)) Files.delete(path);
+        }
+        return 0;
+    }
+
+    /**
+     * Records the "Warm" launch timer and the marker it was taken from, using launch markers that were already extracted.
+     *
+     * @param markers The launch markers of the iteration.
+     * @return The launch timer for the "Warm" application in milliseconds, or 0 if not found.
+     */
+    public double performanceWarmLaunchLogCapture(LaunchMarkers markers) {
+        int timer = markers.getWarmLaunchTimer();
+        metricsName = markers.getWarmMetricsName(this);
+
+        if (timer == 0) {
+            log.error(DEVICE_NAME + ": No Warm Vital Activity value found in logs");
         }
         log.info(DEVICE_NAME + ": Warm : " + metricsName + " : " + timer + " ms");
         return (double) timer / 1000;
@@ -290,9 +349,8 @@ public class KpiUtils extends DeviceTools {
 
     /**
      * Captures the launch performance metrics for the "Cool" application by analyzing the device logs.
-     * This method retrieves the performance metrics related to the launch of the "Cool" application
-     * from the device logs and writes them to a text file for further analysis. It then parses the logs
-     * to extract the launch timer and the associated metrics. The launch timer is returned in milliseconds.
+     * This method streams one dump of the vitals buffer through the launch marker extractor
+     * and records which cool marker the launch timer was taken from. The launch timer is returned in milliseconds.
      *
      * @param appPackage The package name of the "Cool" application for which performance metrics are captured.
      * @param DSN        The Device Serial Number (DSN) of the device.
@@ -300,65 +358,26 @@ public class KpiUtils extends DeviceTools {
      */
     public double performanceCoolLaunchLogCapture(String appPackage, String DSN) {
         metricsName = "null";
-        int timer = 0;
-        int metricsChk = 0;
-        boolean condition = false;
-        BufferedReader read = null, reader = null, read_New = null;
-        FileWriter fileWriter = null;
-        File file;
-        String pathName = kpiLog + "Cool_ADB_Log_" + appPackage + "_" + DEVICE_NAME + ".txt";
-        Path path = Paths.get(pathName);
         try {
-            read = new BufferedReader(new InputStreamReader(cmd.adb(DSN, cmd.ADB_DUMP_LOGCAT_VITALS).getInputStream(),
-                    StandardCharsets.UTF_8));
-            String line_CoolApp;
-            String line_CoolActivity;
-
-            file = new File(pathName);
-            fileWriter = new FileWriter(file);
-            while ((line_CoolApp = read.readLine()) != null) {
-                fileWriter.write(line_CoolApp.trim() + "\n");
-            }
-            fileWriter.flush();
-
-            reader = new BufferedReader(new FileReader(file));
-            while ((line_CoolApp = reader.readLine()) != null) {
-                if (line_CoolApp.contains("performance:" + COOL_APP) && line_CoolApp.contains("key=" + appPackage)) {
-                    timer = splitToTimer(line_CoolApp);
-                    metricsName = COOL_APP;
-                    condition = true;
-                    metricsChk = 1;
-                }
-            }
-
-            read_New = new BufferedReader(new FileReader(file));
-            while ((line_CoolActivity = read_New.readLine()) != null && metricsChk < 1) {
-                if (line_CoolActivity.contains("performance:" + COOL_ACTIVITY) && line_CoolActivity.contains("key=" + appPackage)) {
-                    timer = splitToTimer(line_CoolActivity);
-                    condition = true;
-                    metricsName = COOL_ACTIVITY;
-                }
-            }
-
-            if (!condition) {
-                log.error(DEVICE_NAME + ": No Cool Vital Latency value found in logs");
-            }
-
+            return performanceCoolLaunchLogCapture(getVitalsMarkers(DSN, appPackage));
         } catch (Exception e) {
             log.error(DEVICE_NAME + ": Exception while capturing cool vitals/metrics in adb logs: ", e);
-        } finally {
-            try {
-                if (fileWriter != null) {
-                    fileWriter.flush();
-                    fileWriter.close();
-                }
-                if (read != null) read.close();
-                if (reader != null) reader.close();
-                if (read_New != null) read_New.close();
-                if (Files.exists(path)) Files.delete(path);
-            } catch (Exception e) {
-                log.error(DEVICE_NAME + ": Exception Occurred while closing Buffer Reader: ", e);
-            }
+        }
+        return 0;
+    }
+
+    /**
+     * Records the "Cool" launch timer and the marker it was taken from, using launch markers that were already extracted.
+     *
+     * @param markers The launch markers of the iteration.
+     * @return The launch timer for the "Cool" application in milliseconds, or 0 if not found.
+     */
+    public double performanceCoolLaunchLogCapture(LaunchMarkers markers) {
+        int timer = markers.getCoolLaunchTimer();
+        metricsName = markers.getCoolMetricsName(this);
+
+        if (timer == 0) {
+            log.error(DEVICE_NAME + ": No Cool Vital Latency value found in logs");
         }
         log.info(DEVICE_NAME + ": Cool : " + metricsName + " : " + timer + " ms");
         return (double) timer / 1000;
@@ -403,9 +422,9 @@ public class KpiUtils extends DeviceTools {
 
     /**
      * Checks for the presence of the RTU (Ready To Use) marker for the specified app package in the adb log file.
-     * This method reads the contents of the adb log file line by line to search for the RTU marker related to the fully drawn event of the specified app.
-     * If the marker is found, it indicates that the app has been fully drawn, and the method returns true.
-     * Additionally, if the `type` parameter is set to "value", the method retrieves the RTU marker value and returns it as a double.
+     * This method scans the adb log file once for the fully drawn event of the specified app.
+     * If the marker is found, it indicates that the app has been fully drawn and fullyDrawnMarker is set.
+     * Additionally, if the `type` parameter is set to "value", the method returns the RTU marker value as a double.
      *
      * @param DSN        The Device Serial Number (DSN) of the device.
      * @param appPackage The package name of the app for which the RTU marker is being checked.
@@ -415,60 +434,36 @@ public class KpiUtils extends DeviceTools {
      * @throws IOException If an I/O error occurs while reading the adb log file.
      */
     public double checkForRTUMarker(String DSN, String appPackage, String type, File adbLog) throws IOException {
-        fullyDrawnMarker = false;
-
-        BufferedReader br = null;
-
-        try {
-            int rtuValue = 0;
-            double rtuFinalValue = 0.00;
-            String appIntent = getAppIntent(DSN, appPackage);
-            String rtuMarker = null;
-            br = new BufferedReader(new FileReader(adbLog));
-            while ((rtuMarker = br.readLine()) != null) {
-                if (rtuMarker.contains(AM_FULLY_DRAWN) || rtuMarker.contains(WM_FULLY_DRAWN)) {
-                    if (rtuMarker.contains(appIntent) || rtuMarker.contains((appPackage))) {
-                        log.info("RTU Marker present for: " + appPackage);
-                        fullyDrawnMarker = true;
-                        log.info(rtuMarker);
-                        break;
-                    } else {
-                        continue;
-                    }
-                }
-            }
+        return getRTUValue(appPackage, type, getLogFileMarkers(DSN, appPackage, adbLog));
+    }
 
-            if (type.equalsIgnoreCase("value")) {
-                if (!(rtuMarker == null)) {
-                    rtuMarker = rtuMarker.split("]")[0];
-                    rtuMarker = rtuMarker.split("\\[")[1];
-                    String[] rtuMarkerArr = rtuMarker.split(",");
-                    int arraySize;
-                    arraySize = rtuMarkerArr.length;
-                    rtuMarker = rtuMarkerArr[arraySize - 1];
-                    rtuValue = Integer.parseInt(rtuMarker);
-                    rtuFinalValue = rtuValue / 1000.00;
-                    log.info("RTU Marker Value: " + rtuFinalValue);
-                    return rtuFinalValue;
-                } else {
-                    log.error(DEVICE_NAME + ": Unable to Find RTU Marker for:" + appPackage);
-                    return 0.00;
-                }
-            } else {
-                return 0.00;
+    /**
+     * Reads the RTU (Ready To Use) marker from launch markers that were already extracted.
+     *
+     * @param appPackage The package name of the app for which the RTU marker is being checked.
+     * @param type       The type of RTU marker value to retrieve ("value" to get the marker value, any other value to skip).
+     * @param markers    The launch markers of the iteration.
+     * @return If `type` is "value", returns the RTU marker value as a double; otherwise, returns 0.00.
+     */
+    public double getRTUValue(String appPackage, String type, LaunchMarkers markers) {
+        fullyDrawnMarker = markers.isFullyDrawnPresent();
+        if (fullyDrawnMarker) log.info("RTU Marker present for: " + appPackage);
+
+        if (type.equalsIgnoreCase("value")) {
+            if (fullyDrawnMarker) {
+                double rtuFinalValue = markers.getFullyDrawn() / 1000.00;
+                log.info("RTU Marker Value: " + rtuFinalValue);
+                return rtuFinalValue;
             }
-        } catch (Exception e) {
-            log.error(DEVICE_NAME + ": Exception occurred while fetching RTU Marker: ", e);
-            return 0.00;
-        } finally {
-            if (br != null) br.close();
+            log.error(DEVICE_NAME + ": Unable to Find RTU Marker for:" + appPackage);
         }
+        return 0.00;
     }
 
     /**
      * Retrieves the First Frame (FF) displayed value for the specified app package from the log file.
-     * This method reads the contents of the log file line by line to search for the First Frame (FF) displayed marker related to the app launch time.
-     * If the marker is found, it returns the displayed value as a double.
+     * This method scans the log file once for the First Frame (FF) displayed marker related to the app launch time,
+     * falling back to the warm activity launch marker. If the marker is found, it returns the displayed value as a double.
      *
      * @param DSN        The Device Serial Number (DSN) of the device.
      * @param appPackage The package name of the app for which the Fully Drawn (FF) displayed value is being retrieved.
@@ -476,64 +471,21 @@ public class KpiUtils extends DeviceTools {
      * @return The Fully Drawn (FF) displayed value for the specified app package as a double.
      */
     public double getFFDisplayedValue(String DSN, String appPackage, File logFile) {
-        BufferedReader br = null, cr = null;
-        try {
-            int ffValue;
-            double ffFinalValue;
-            String appIntent = getAppIntent(DSN, appPackage), displayedMarker, launch_time = null;
-
-            br = new BufferedReader(new FileReader(logFile));
-            while ((displayedMarker = br.readLine()) != null) {
-                if (displayedMarker.contains(AM_ACTIVITY_LAUNCH_TIME) || displayedMarker.contains(WM_ACTIVITY_LAUNCH_TIME)) {
-                    if (displayedMarker.contains(appIntent) || displayedMarker.contains((appPackage))) {
-                        log.info("Displayed Marker present for: " + appPackage);
-                        break;
-                    }
-                }
-            }
-
-            cr = new BufferedReader(new FileReader(logFile));
-            if (displayedMarker == null) {
-                while ((launch_time = cr.readLine()) != null) {
-                    if (launch_time.contains(WARM_ACTIVITY_LAUNCH_TIME)) {
-                        if (launch_time.contains(appIntent) || launch_time.contains((appPackage))) {
-                            log.info("Displayed Marker Present for: " + appPackage);
-                            break;
-                        }
-                    }
-                }
-            }
+        return getDisplayedValue(appPackage, getLogFileMarkers(DSN, appPackage, logFile));
+    }
 
-            if (displayedMarker != null) {
-                displayedMarker = displayedMarker.split("]")[0];
-                displayedMarker = displayedMarker.split("\\[")[1];
-                String[] displayedMarkerArr = displayedMarker.split(",");
-                int arraySize;
-                arraySize = displayedMarkerArr.length;
-                displayedMarker = displayedMarkerArr[arraySize - 1];
-                ffValue = Integer.parseInt(displayedMarker);
-                ffFinalValue = ffValue / 1000.00;
-                log.info("Displayed Marker Value: " + ffFinalValue);
-                return ffFinalValue;
-            } else if (launch_time != null) {
-                launch_time = launch_time.split("Timer=")[1];
-                launch_time = launch_time.split("TI")[0];
-                launch_time = launch_time.split("\\.")[0];
-                ffValue = Integer.parseInt(launch_time);
-                ffFinalValue = ffValue / 1000.00;
-                log.info("Displayed Marker Value: " + ffFinalValue);
-                return ffFinalValue;
-            }
-        } catch (Exception e) {
-            log.error(DEVICE_NAME + ": Error Occurred while getting Displayed Value ", e);
-            return 0;
-        } finally {
-            try {
-                br.close();
-                cr.close();
-            } catch (Exception e) {
-                log.error(DEVICE_NAME + ":Exception Occurred while closing Buffer Reader: ", e);
-            }
+    /**
+     * Reads the First Frame (FF) displayed value from launch markers that were already extracted.
+     *
+     * @param appPackage The package name of the app for which the displayed value is being retrieved.
+     * @param markers    The launch markers of the iteration.
+     * @return The displayed value in seconds, or 0.00 if the marker was not found.
+     */
+    public double getDisplayedValue(String appPackage, LaunchMarkers markers) {
+        if (markers.getDisplayed() != 0) {
+            double ffFinalValue = markers.getDisplayed() / 1000.00;
+            log.info("Displayed Marker Value: " + ffFinalValue);
+            return ffFinalValue;
         }
         log.error(DEVICE_NAME + ": Unable to Find Displayed Marker for:" + appPackage);
         return 0.00;
@@ -599,15 +551,7 @@ public class KpiUtils extends DeviceTools {
      * @throws NumberFormatException If the timer value cannot be parsed as an integer.
      */
     public int splitToTimer(String line) {
-        try {
-            line = line.split("Timer=")[1];
-            line = line.split(";")[0];
-            line = line.replace(".0", "");
-            return Integer.parseInt(line);
-        } catch (Exception e) {
-            log.error(DEVICE_NAME + ": Exception occurred while formatting the timer value from logs: ", e);
-            return 0;
-        }
+        return LaunchMarkerExtractor.parseTimer(line);
     }
 
 }
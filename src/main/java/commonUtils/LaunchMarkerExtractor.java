@@ -0,0 +1,241 @@
+package commonUtils;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts every launch marker of an app (vitals cool/warm timers, Displayed and fully drawn times)
+ * from a log stream in a single pass, matching all marker tags with one compiled pattern.
+ */
+public class LaunchMarkerExtractor {
+
+    private static final Logger log = Logger.getLogger(LaunchMarkerExtractor.class.getSimpleName());
+
+    private static final String TIMER_FIELD = "Timer=";
+    private static final int INVALID = Integer.MIN_VALUE;
+
+    private static final int COOL_APP = 1, COOL_ACTIVITY = 2, WARM_APP_WARM = 3, WARM_APP_COOL = 4,
+            WARM_ACTIVITY = 5, AM_DISPLAYED = 6, WM_DISPLAYED = 7, AM_FULLY_DRAWN = 8, WM_FULLY_DRAWN = 9;
+
+    private final String appPackage, appIntent, appKey;
+    private final Matcher markerMatcher;
+
+    /**
+     * Creates an extractor for the given app.
+     *
+     * @param paths      The paths holding the marker names.
+     * @param appPackage The package name of the app.
+     * @param appIntent  The launch intent of the app, may be null.
+     */
+    public LaunchMarkerExtractor(ReadPaths paths, String appPackage, String appIntent) {
+        this.appPackage = appPackage;
+        this.appIntent = appIntent;
+        this.appKey = "key=" + appPackage;
+        // One capturing group per marker, in the order of the marker constants above.
+        this.markerMatcher = Pattern.compile(String.join("|",
+                group("performance:" + paths.COOL_APP),
+                group("performance:" + paths.COOL_ACTIVITY),
+                group("performance:" + paths.WARM_APP_WARM),
+                group("performance:" + paths.WARM_APP_COOL),
+                group(paths.WARM_ACTIVITY_LAUNCH_TIME),
+                group(paths.AM_ACTIVITY_LAUNCH_TIME),
+                group(paths.WM_ACTIVITY_LAUNCH_TIME),
+                group(paths.AM_FULLY_DRAWN),
+                group(paths.WM_FULLY_DRAWN))).matcher("");
+    }
+
+    /**
+     * Extracts the launch markers from a log file.
+     *
+     * @param logFile The log file to scan.
+     * @return The markers found in the file.
+     * @throws IOException If the file cannot be read.
+     */
+    public LaunchMarkers extract(File logFile) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(logFile.toPath(), StandardCharsets.UTF_8)) {
+            return extract(reader);
+        }
+    }
+
+    /**
+     * Extracts the launch markers from a log stream, e.g. the output of a logcat dump.
+     *
+     * @param logStream The log stream to scan.
+     * @return The markers found in the stream.
+     * @throws IOException If the stream cannot be read.
+     */
+    public LaunchMarkers extract(InputStream logStream) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(logStream, StandardCharsets.UTF_8))) {
+            return extract(reader);
+        }
+    }
+
+    /**
+     * Extracts the launch markers in one pass over the reader.
+     * As in the per-marker scans this replaces, the last cool/warm app vitals line wins,
+     * while the activity vitals, Displayed and fully drawn markers keep their first occurrence.
+     *
+     * @param reader The log lines to scan.
+     * @return The markers found.
+     * @throws IOException If the reader fails.
+     */
+    public LaunchMarkers extract(BufferedReader reader) throws IOException {
+        LaunchMarkers markers = new LaunchMarkers();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            accept(markers, line);
+        }
+        return markers;
+    }
+
+    /**
+     * Matches a single log line against all markers and records its value.
+     * The extractor reuses one matcher, so an instance must not be shared between threads.
+     *
+     * @param markers The markers collected so far.
+     * @param line    The log line.
+     */
+    public void accept(LaunchMarkers markers, String line) {
+        if (!markerMatcher.reset(line).find()) return;
+        int marker = COOL_APP;
+        while (markerMatcher.start(marker) < 0) marker++;
+
+        switch (marker) {
+            case COOL_APP:
+                if (line.contains(appKey)) markers.coolApp = parseTimer(line);
+                break;
+            case COOL_ACTIVITY:
+                if (markers.coolActivity == 0 && line.contains(appKey)) markers.coolActivity = parseTimer(line);
+                break;
+            case WARM_APP_WARM:
+                if (line.contains(appKey)) markers.warmAppWarm = parseTimer(line);
+                break;
+            case WARM_APP_COOL:
+                if (markers.warmAppCool == 0 && line.contains(appKey)) markers.warmAppCool = parseTimer(line);
+                break;
+            case WARM_ACTIVITY:
+                if (markers.warmActivityDisplayed == 0 && isForApp(line))
+                    markers.warmActivityDisplayed = parseTimer(line);
+                break;
+            case AM_FULLY_DRAWN:
+            case WM_FULLY_DRAWN:
+                if (!markers.fullyDrawnPresent && isForApp(line)) {
+                    markers.fullyDrawnPresent = true;
+                    markers.fullyDrawn = parseLastEventValue(line);
+                }
+                break;
+            case AM_DISPLAYED:
+            case WM_DISPLAYED:
+                if (markers.displayed == 0 && isForApp(line)) markers.displayed = parseLastEventValue(line);
+        }
+    }
+
+    private static String group(String marker) {
+        return "(" + Pattern.quote(marker) + ")";
+    }
+
+    private boolean isForApp(String line) {
+        return line.contains(appPackage) || (appIntent != null && line.contains(appIntent));
+    }
+
+    /**
+     * Parses the value of a vitals "Timer=...;" field, ignoring any fractional part.
+     * The digits are scanned in place so no intermediate strings are created.
+     *
+     * @param line The log line holding the timer.
+     * @return The timer value, or 0 if it cannot be parsed.
+     */
+    public static int parseTimer(CharSequence line) {
+        int start = indexOf(line, TIMER_FIELD, 0);
+        int value = start < 0 ? INVALID : parseInt(line, start + TIMER_FIELD.length(), line.length());
+        if (value == INVALID) {
+            log.error("Exception occurred while formatting the timer value from logs: " + line);
+            return 0;
+        }
+        return value;
+    }
+
+    /**
+     * Parses the last field of a bracketed event payload such as "[0,1234,com.app/.Main,250,250]".
+     * The payload is scanned in place so no intermediate strings are created.
+     *
+     * @param line The log line holding the event.
+     * @return The last field value, or 0 if it cannot be parsed.
+     */
+    public static int parseLastEventValue(CharSequence line) {
+        int open = indexOf(line, "[", 0);
+        int close = indexOf(line, "]", 0);
+        int value = INVALID;
+        if (open >= 0 && (close < 0 || open < close)) {
+            int end = close < 0 ? line.length() : close;
+            int start = open + 1;
+            for (int i = start; i < end; i++) {
+                char c = line.charAt(i);
+                if (c == '[') {
+                    end = i;
+                    break;
+                }
+                if (c == ',') start = i + 1;
+            }
+            value = parseInt(line, start, end);
+        }
+        if (value == INVALID) {
+            log.error("Exception occurred while formatting the event value from logs: " + line);
+            return 0;
+        }
+        return value;
+    }
+
+    /**
+     * Parses a signed integer from the given range, skipping surrounding blanks and stopping
+     * at the first fractional part or field separator after the digits.
+     *
+     * @return The value, or {@link #INVALID} if the range holds no digits or overflows an int.
+     */
+    private static int parseInt(CharSequence text, int from, int to) {
+        int i = from;
+        while (i < to && Character.isWhitespace(text.charAt(i))) i++;
+        boolean negative = i < to && text.charAt(i) == '-';
+        if (negative) i++;
+        long value = 0;
+        int digits = 0;
+        for (; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') break;
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) return INVALID;
+            digits++;
+        }
+        if (digits == 0) return INVALID;
+        // Anything but a fraction, blanks or the field terminator means the field was not a number.
+        if (i < to && text.charAt(i) == '.') {
+            i++;
+            while (i < to && text.charAt(i) >= '0' && text.charAt(i) <= '9') i++;
+        }
+        while (i < to && Character.isWhitespace(text.charAt(i))) i++;
+        if (i < to && text.charAt(i) != ';' && text.charAt(i) != 'T') return INVALID;
+        return (int) (negative ? -value : value);
+    }
+
+    private static int indexOf(CharSequence text, String target, int from) {
+        if (text instanceof String) return ((String) text).indexOf(target, from);
+        int last = text.length() - target.length();
+        outer:
+        for (int i = from; i <= last; i++) {
+            for (int j = 0; j < target.length(); j++) {
+                if (text.charAt(i + j) != target.charAt(j)) continue outer;
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,82 @@
+package commonUtils;
+
+/**
+ * Launch markers found in the logs of one iteration, as produced by {@link LaunchMarkerExtractor}.
+ * All values are in milliseconds; a value of 0 means the marker was not present.
+ */
+public class LaunchMarkers {
+
+    int coolApp, coolActivity, warmAppWarm, warmAppCool, displayed, warmActivityDisplayed, fullyDrawn;
+    boolean fullyDrawnPresent;
+
+    /**
+     * Returns the cool launch vitals timer, preferring the app marker over the activity marker.
+     *
+     * @return The cool launch time in milliseconds, or 0 if neither marker was found.
+     */
+    public int getCoolLaunchTimer() {
+        return coolApp != 0 ? coolApp : coolActivity;
+    }
+
+    /**
+     * Returns the vitals marker the cool launch timer was taken from.
+     *
+     * @param paths The paths holding the marker names.
+     * @return The marker name, or "null" if no cool marker was found.
+     */
+    public String getCoolMetricsName(ReadPaths paths) {
+        if (coolApp != 0) return paths.COOL_APP;
+        return coolActivity != 0 ? paths.COOL_ACTIVITY : "null";
+    }
+
+    /**
+     * Returns the warm launch vitals timer, preferring the warm transition marker over the cool transition marker.
+     *
+     * @return The warm launch time in milliseconds, or 0 if neither marker was found.
+     */
+    public int getWarmLaunchTimer() {
+        return warmAppWarm != 0 ? warmAppWarm : warmAppCool;
+    }
+
+    /**
+     * Returns the vitals marker the warm launch timer was taken from.
+     *
+     * @param paths The paths holding the marker names.
+     * @return The marker name, or "null" if no warm marker was found.
+     */
+    public String getWarmMetricsName(ReadPaths paths) {
+        if (warmAppWarm != 0) return paths.WARM_APP_WARM;
+        return warmAppCool != 0 ? paths.WARM_APP_COOL : "null";
+    }
+
+    /**
+     * Returns the first frame (Displayed) time, falling back to the warm activity launch marker.
+     *
+     * @return The displayed time in milliseconds, or 0 if not found.
+     */
+    public int getDisplayed() {
+        return displayed != 0 ? displayed : warmActivityDisplayed;
+    }
+
+    /**
+     * Returns the fully drawn (RTU) time reported through reportFullyDrawn.
+     *
+     * @return The fully drawn time in milliseconds, or 0 if not found.
+     */
+    public int getFullyDrawn() {
+        return fullyDrawn;
+    }
+
+    /**
+     * Tells whether any launch marker (vitals timer or Displayed) has been seen, i.e. the launch has completed.
+     *
+     * @return true if the launch was logged.
+     */
+    public boolean hasLaunchMarker() {
+        return getCoolLaunchTimer() != 0 || getWarmLaunchTimer() != 0 || getDisplayed() != 0;
+    }
+
+    public boolean isFullyDrawnPresent() {
+        return fullyDrawnPresent;
+    }
+}
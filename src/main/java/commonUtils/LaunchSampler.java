@@ -0,0 +1,307 @@
+package commonUtils;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the CPU and memory usage of an app at a fixed rate while it launches.
+ * One shell loop on the device reads {@code /proc/uptime}, {@code /proc/stat} and the {@code stat} and {@code statm}
+ * files of the app process with shell builtins every period, so a sample costs no process start or adb round trip,
+ * and streams them back over a single adb connection. The app process is looked up with {@code pidof} until it
+ * appears, so a cold launch is followed from the moment its process starts.
+ */
+public class LaunchSampler implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(LaunchSampler.class.getSimpleName());
+    // statm reports pages; Fire OS and Android devices use 4 KB pages
+    private static final double PAGE_MB = 4096.0 / (1024 * 1024);
+    private static final long FIRST_SAMPLE_TIMEOUT_MS = 5000;
+
+    private final Process process;
+    private final Thread reader;
+    private final List<String> lines = Collections.synchronizedList(new ArrayList<>());
+    private final Object firstLine = new Object();
+    private volatile boolean started;
+
+    /**
+     * One sample of the launch window. CPU usage is measured since the previous sample.
+     */
+    public static class Sample {
+        public final double elapsedMs, appCpu, deviceCpu, rssMb;
+        public final boolean processRunning;
+
+        Sample(double elapsedMs, double appCpu, double deviceCpu, double rssMb, boolean processRunning) {
+            this.elapsedMs = elapsedMs;
+            this.appCpu = appCpu;
+            this.deviceCpu = deviceCpu;
+            this.rssMb = rssMb;
+            this.processRunning = processRunning;
+        }
+    }
+
+    /**
+     * The samples of one launch, from the first sample (taken right before the launch intent) on.
+     */
+    public static class Window {
+        private final List<Sample> samples;
+
+        Window(List<Sample> samples) {
+            this.samples = samples;
+        }
+
+        /**
+         * Returns the samples taken up to the given time after the first sample.
+         *
+         * @param elapsedMs The end of the window in milliseconds after the launch intent.
+         * @return The shorter window.
+         */
+        public Window until(double elapsedMs) {
+            List<Sample> kept = new ArrayList<>();
+            for (Sample sample : samples) {
+                if (sample.elapsedMs <= elapsedMs) kept.add(sample);
+            }
+            return new Window(kept);
+        }
+
+        /**
+         * @return true if the app process was seen in at least one sample.
+         */
+        public boolean hasProcess() {
+            return samples.stream().anyMatch(sample -> sample.processRunning);
+        }
+
+        public int size() {
+            return samples.size();
+        }
+
+        /**
+         * @return The length of the window in milliseconds.
+         */
+        public double getDurationMs() {
+            return samples.isEmpty() ? 0 : samples.get(samples.size() - 1).elapsedMs;
+        }
+
+        /**
+         * @return The highest CPU usage of the app in percent of the device, 0 without samples.
+         */
+        public double getCpuPeak() {
+            return samples.stream().mapToDouble(sample -> sample.appCpu).max().orElse(0);
+        }
+
+        /**
+         * @return The mean CPU usage of the app in percent of the device over the window, 0 without samples.
+         */
+        public double getCpuMean() {
+            return samples.stream().skip(1).mapToDouble(sample -> sample.appCpu).average().orElse(0);
+        }
+
+        /**
+         * @return The highest CPU usage of the whole device in percent, 0 without samples.
+         */
+        public double getDeviceCpuPeak() {
+            return samples.stream().mapToDouble(sample -> sample.deviceCpu).max().orElse(0);
+        }
+
+        /**
+         * @return The highest resident set size of the app in MB, 0 without samples.
+         */
+        public double getRssPeakMb() {
+            return samples.stream().mapToDouble(sample -> sample.rssMb).max().orElse(0);
+        }
+
+        /**
+         * @return The mean resident set size of the app in MB over the samples in which it was running.
+         */
+        public double getRssMeanMb() {
+            return samples.stream().filter(sample -> sample.processRunning).mapToDouble(sample -> sample.rssMb)
+                    .average().orElse(0);
+        }
+
+        /**
+         * Writes the samples as tab separated values.
+         *
+         * @param file The file to write.
+         * @throws IOException If the file cannot be written.
+         */
+        public void write(File file) throws IOException {
+            try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                out.write("elapsedMs\tappCpuPercent\tdeviceCpuPercent\trssMb\n");
+                for (Sample sample : samples) {
+                    out.write(String.format(Locale.ROOT, "%.0f\t%.2f\t%.2f\t%.2f%n", sample.elapsedMs, sample.appCpu,
+                            sample.deviceCpu, sample.rssMb));
+                }
+            }
+        }
+    }
+
+    private LaunchSampler(Process process, String DSN) {
+        this.process = process;
+        this.reader = new Thread(this::collect, "launch-sampler-" + DSN);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    /**
+     * Starts sampling and waits for the first sample, so the launch that follows is covered from its intent on.
+     *
+     * @param DSN        The Device Serial Number (DSN) of the device.
+     * @param cmd        The command executor used to reach the device.
+     * @param appPackage The package of the app.
+     * @param rateHz     The samples per second.
+     * @param maxSeconds The longest time the device loop runs if it is never stopped.
+     * @return The running sampler.
+     * @throws IOException If sampling cannot be started or no sample arrives.
+     */
+    public static LaunchSampler start(String DSN, Commands cmd, String appPackage, int rateHz, int maxSeconds)
+            throws IOException {
+        int rate = Math.max(1, rateHz);
+        String period = String.format(Locale.ROOT, "%.3f", 1.0 / rate);
+        // Whitespace separated tokens only: adb joins them back into the command line of the device shell
+        String script = "i=0; while [ $i -lt " + (rate * maxSeconds) + " ]; do"
+                + " read u x < /proc/uptime; read c < /proc/stat; echo U $u $c;"
+                + " [ -z \"$p\" ] && p=$(pidof " + appPackage + ");"
+                + " if [ -n \"$p\" ] && read s 2>/dev/null < /proc/$p/stat && read m 2>/dev/null < /proc/$p/statm;"
+                + " then echo P $p $m $s; else p=; fi;"
+                + " sleep " + period + "; i=$((i+1)); done";
+        LaunchSampler sampler = new LaunchSampler(cmd.adbStream(DSN, cmd.ADB_SHELL + script), DSN);
+        if (!sampler.awaitFirstSample()) {
+            sampler.close();
+            throw new IOException("No launch sample received within " + FIRST_SAMPLE_TIMEOUT_MS + " ms");
+        }
+        return sampler;
+    }
+
+    /**
+     * Stops sampling and returns the samples taken.
+     *
+     * @return The samples since the start.
+     */
+    public Window stop() {
+        close();
+        List<String> collected;
+        synchronized (lines) {
+            collected = new ArrayList<>(lines);
+        }
+        return parse(collected);
+    }
+
+    /**
+     * Stops the device loop and the reader.
+     */
+    @Override
+    public void close() {
+        process.destroy();
+        try {
+            reader.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (process.isAlive()) process.destroyForcibly();
+    }
+
+    private boolean awaitFirstSample() {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FIRST_SAMPLE_TIMEOUT_MS);
+        synchronized (firstLine) {
+            try {
+                while (!started && reader.isAlive()) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) break;
+                    firstLine.wait(Math.min(remaining, 100));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return started;
+    }
+
+    private void collect() {
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                lines.add(line);
+                if (!started && line.startsWith("U ")) {
+                    synchronized (firstLine) {
+                        started = true;
+                        firstLine.notifyAll();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // The stream is closed when sampling stops
+        } finally {
+            synchronized (firstLine) {
+                firstLine.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Turns the raw lines into samples. A {@code U} line holds the uptime and the {@code cpu} line of /proc/stat,
+     * the optional {@code P} line after it the pid, the statm fields and the stat line of the app process.
+     *
+     * @param rawLines The lines printed by the device loop.
+     * @return The samples.
+     */
+    static Window parse(List<String> rawLines) {
+        List<Sample> samples = new ArrayList<>();
+        double startUptime = Double.NaN;
+        long lastTotal = -1, lastIdle = -1, lastAppTicks = 0;
+        String lastPid = null;
+        for (int i = 0; i < rawLines.size(); i++) {
+            String[] device = rawLines.get(i).trim().split("\\s+");
+            if (device.length < 7 || !device[0].equals("U") || !device[2].equals("cpu")) continue;
+            try {
+                double uptime = Double.parseDouble(device[1]);
+                long total = 0, idle = Long.parseLong(device[6]) + (device.length > 7 ? Long.parseLong(device[7]) : 0);
+                for (int j = 3; j < Math.min(device.length, 11); j++) total += Long.parseLong(device[j]);
+
+                String pid = null;
+                long appTicks = 0;
+                double rssMb = 0;
+                String next = i + 1 < rawLines.size() ? rawLines.get(i + 1).trim() : "";
+                if (next.startsWith("P ")) {
+                    String[] app = next.split("\\s+");
+                    String[] stat = next.substring(next.lastIndexOf(')') + 1).trim().split("\\s+");
+                    if (app.length > 3 && stat.length > 12) {
+                        pid = app[1];
+                        rssMb = Long.parseLong(app[3]) * PAGE_MB;
+                        appTicks = Long.parseLong(stat[11]) + Long.parseLong(stat[12]);
+                    }
+                    i++;
+                }
+                // A process that appeared since the last sample used all of its CPU time within the window
+                long previousAppTicks = pid != null && pid.equals(lastPid) ? lastAppTicks : 0;
+                double appCpu = 0, deviceCpu = 0;
+                if (lastTotal >= 0 && total > lastTotal) {
+                    double elapsedTicks = total - lastTotal;
+                    if (pid != null) appCpu = Math.max(0, appTicks - previousAppTicks) / elapsedTicks * 100;
+                    deviceCpu = Math.max(0, elapsedTicks - (idle - lastIdle)) / elapsedTicks * 100;
+                }
+                if (Double.isNaN(startUptime)) startUptime = uptime;
+                samples.add(new Sample((uptime - startUptime) * 1000, Math.min(appCpu, 100), deviceCpu, rssMb,
+                        pid != null));
+                lastTotal = total;
+                lastIdle = idle;
+                lastPid = pid;
+                lastAppTicks = appTicks;
+            } catch (NumberFormatException e) {
+                log.debug("Skipping unreadable launch sample: " + rawLines.get(i));
+            }
+        }
+        return new Window(samples);
+    }
+}
@@ -0,0 +1,282 @@
+package commonUtils;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A user-defined KPI timed on the logs of every launch iteration, e.g. the time until the app logs that its
+ * content rail has loaded. It is configured in commonconfig.properties or the side file named by
+ * {@code logMarkersFile}:
+ * <pre>
+ * logMarkers = railLoaded, playerReady
+ * logMarker.railLoaded.end = HomeFragment: content rail loaded
+ * logMarker.playerReady.start = PlayerView: prepare
+ * logMarker.playerReady.end = PlayerView: ready after (\\d+) ms
+ * logMarker.playerReady.group = 1
+ * </pre>
+ * {@code start} is a regular expression or {@code launch}, the activity manager starting the app, which is also
+ * the default. {@code end} is a regular expression matched after the start. Without {@code group} the value is
+ * the time between the two lines from their logcat timestamps; with it, the number the group captures from the
+ * end line, in milliseconds. The values of a launch type are written as their own KPI, e.g. Cool_railLoaded.
+ * The names of the built-in KPIs, FF and RTU, are reserved. The KPI id is derived from the name alone, so adding,
+ * removing or reordering markers keeps the ids of the others in the stored history.
+ */
+public class LogMarkerKpi {
+
+    private static final Logger log = Logger.getLogger(LogMarkerKpi.class.getSimpleName());
+    public static final String LAUNCH = "launch";
+    private static final Pattern NAME = Pattern.compile("\\w+");
+    private static final Pattern LAUNCH_START = Pattern.compile("START u\\d+ \\{");
+    // Suffixes of the built-in KPIs, e.g. Cool_FF and Cool_RTU
+    private static final List<String> RESERVED_NAMES = Arrays.asList("FF", "RTU");
+    // Log marker KPI ids: ID_BASE + 10 * slot of the name + the first frame KPI id of the launch type
+    private static final int ID_BASE = 1000, ID_SLOTS = 100000;
+    private static List<LogMarkerKpi> configured;
+
+    private final String name;
+    private final Pattern start, end;
+    private final int group;
+
+    LogMarkerKpi(String name, Pattern start, Pattern end, int group) {
+        this.name = name;
+        this.start = start;
+        this.end = end;
+        this.group = group;
+    }
+
+    /**
+     * Returns the markers configured in commonconfig.properties and the {@code logMarkersFile} side file.
+     * The patterns are compiled on the first call; markers with an invalid definition are logged and left out.
+     *
+     * @param prop    The properties of commonconfig.properties.
+     * @param userDir The directory the side file path is relative to.
+     * @return The markers in their configured order, empty if none are configured.
+     */
+    public static synchronized List<LogMarkerKpi> configured(Properties prop, String userDir) {
+        if (configured != null) return configured;
+        Properties definitions = new Properties();
+        definitions.putAll(prop);
+        String sideFile = prop.getProperty("logMarkersFile", "").trim();
+        if (!sideFile.isEmpty()) {
+            File file = new File(userDir + sideFile);
+            if (file.exists()) {
+                try (FileInputStream inputStream = new FileInputStream(file)) {
+                    Properties side = new Properties();
+                    side.load(inputStream);
+                    String names = (prop.getProperty("logMarkers", "") + "," + side.getProperty("logMarkers", ""));
+                    definitions.putAll(side);
+                    definitions.setProperty("logMarkers", names);
+                } catch (IOException e) {
+                    log.error("Exception occurred while reading log markers from " + file + ": ", e);
+                }
+            }
+        }
+        configured = Collections.unmodifiableList(parse(definitions));
+        if (!configured.isEmpty()) log.info("Log marker KPIs: " + configured);
+        return configured;
+    }
+
+    /**
+     * Compiles the markers listed in {@code logMarkers}.
+     *
+     * @param definitions The properties holding the marker definitions.
+     * @return The valid markers in their listed order.
+     */
+    static List<LogMarkerKpi> parse(Properties definitions) {
+        List<LogMarkerKpi> markers = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        Map<Integer, String> slots = new HashMap<>();
+        for (String name : definitions.getProperty("logMarkers", "").split(",")) {
+            name = name.trim();
+            if (name.isEmpty() || names.contains(name)) continue;
+            names.add(name);
+            String key = "logMarker." + name + ".";
+            try {
+                if (!NAME.matcher(name).matches()) {
+                    throw new IllegalArgumentException("name must only hold letters, digits and underscores");
+                }
+                for (String reserved : RESERVED_NAMES) {
+                    if (name.equalsIgnoreCase(reserved)) {
+                        throw new IllegalArgumentException("name " + reserved + " is reserved for a built-in KPI");
+                    }
+                }
+                String taken = slots.get(slot(name));
+                if (taken != null) {
+                    throw new IllegalArgumentException("KPI id collides with log marker " + taken + ", rename it");
+                }
+                String end = definitions.getProperty(key + "end", "").trim();
+                if (end.isEmpty()) throw new IllegalArgumentException(key + "end is missing");
+                String start = definitions.getProperty(key + "start", LAUNCH).trim();
+                Pattern endPattern = Pattern.compile(end);
+                int group = Integer.parseInt(definitions.getProperty(key + "group", "0").trim());
+                if (group < 0 || group > endPattern.matcher("").groupCount()) {
+                    throw new IllegalArgumentException(key + "group " + group + " is not a group of " + end);
+                }
+                markers.add(new LogMarkerKpi(name, start.equalsIgnoreCase(LAUNCH) ? null : Pattern.compile(start),
+                        endPattern, group));
+                slots.put(slot(name), name);
+            } catch (IllegalArgumentException e) {
+                log.error("Skipping log marker " + name + ": " + e.getMessage());
+            }
+        }
+        return markers;
+    }
+
+    /**
+     * Evaluates markers on the logs of one iteration in a single pass.
+     *
+     * @param markers    The markers.
+     * @param logs       The {@code logcat -v threadtime} output of the iteration.
+     * @param appPackage The package of the app, identifying its launch.
+     * @return The value of each marker in milliseconds, 0 where its lines were not found.
+     * @throws IOException If the logs cannot be read.
+     */
+    public static double[] evaluate(List<LogMarkerKpi> markers, byte[] logs, String appPackage) throws IOException {
+        Evaluation evaluation = new Evaluation(markers, appPackage);
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(logs),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null && !evaluation.accept(line)) {
+                // Until every marker has its value
+            }
+        }
+        return evaluation.values;
+    }
+
+    /**
+     * The evaluation of markers on the lines of one iteration, fed line by line, e.g. while they are logged.
+     */
+    static class Evaluation {
+
+        private final List<LogMarkerKpi> markers;
+        private final String appPackage;
+        private final double[] values;
+        private final long[] started;
+        private final Matcher[] starts, ends;
+        private int open;
+
+        Evaluation(List<LogMarkerKpi> markers, String appPackage) {
+            this.markers = markers;
+            this.appPackage = appPackage;
+            values = new double[markers.size()];
+            started = new long[markers.size()];
+            starts = new Matcher[markers.size()];
+            ends = new Matcher[markers.size()];
+            for (int i = 0; i < markers.size(); i++) {
+                started[i] = -1;
+                LogMarkerKpi marker = markers.get(i);
+                starts[i] = (marker.start == null ? LAUNCH_START : marker.start).matcher("");
+                ends[i] = marker.end.matcher("");
+            }
+            open = markers.size();
+        }
+
+        /**
+         * Evaluates the next log line.
+         *
+         * @param line The log line.
+         * @return true once every marker has its value.
+         */
+        boolean accept(String line) {
+            for (int i = 0; i < markers.size() && open > 0; i++) {
+                if (values[i] != 0) continue;
+                if (started[i] < 0) {
+                    if (starts[i].reset(line).find() && (markers.get(i).start != null || line.contains(appPackage))) {
+                        started[i] = Math.max(timestamp(line), 0);
+                    }
+                } else if (ends[i].reset(line).find()) {
+                    values[i] = markers.get(i).value(ends[i], started[i], timestamp(line));
+                    if (values[i] != 0) open--;
+                }
+            }
+            return open == 0;
+        }
+    }
+
+    private double value(Matcher end, long startMs, long endMs) {
+        if (group > 0) {
+            String captured = end.group(group);
+            try {
+                if (captured != null) return Double.parseDouble(captured.trim());
+            } catch (NumberFormatException e) {
+                // Logged below
+            }
+            log.error("Log marker " + name + " captured no number: " + end.group());
+            return 0;
+        }
+        return endMs < 0 || startMs <= 0 ? 0 : Math.max(endMs - startMs, 0);
+    }
+
+    /**
+     * Reads the timestamp of a {@code threadtime} log line, e.g. "10-18 12:34:56.789", as milliseconds since the
+     * start of the year; across a new year the difference of two timestamps is wrong, which a launch never spans.
+     *
+     * @param line The log line.
+     * @return The timestamp, or -1 if the line does not start with one.
+     */
+    static long timestamp(String line) {
+        if (line.length() < 18 || line.charAt(2) != '-' || line.charAt(5) != ' ' || line.charAt(8) != ':'
+                || line.charAt(11) != ':' || line.charAt(14) != '.') return -1;
+        try {
+            int month = Integer.parseInt(line.substring(0, 2)), day = Integer.parseInt(line.substring(3, 5));
+            long dayOfYear = LocalDate.of(2000, month, day).getDayOfYear();
+            return (((dayOfYear * 24 + Integer.parseInt(line.substring(6, 8))) * 60
+                    + Integer.parseInt(line.substring(9, 11))) * 60 + Integer.parseInt(line.substring(12, 14))) * 1000
+                    + Integer.parseInt(line.substring(15, 18));
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the name of the KPI the marker is written as for a launch type.
+     *
+     * @param metricsName The first frame metrics of the launch type, e.g. "Cool_FF".
+     * @return The KPI name, e.g. "Cool_railLoaded".
+     */
+    public String seriesName(String metricsName) {
+        return metricsName.split("_")[0] + "_" + name;
+    }
+
+    /**
+     * Returns the KPI id the marker is written with for a launch type, derived from the marker name only.
+     *
+     * @param launchTypeId The KPI id of the first frame KPI of the launch type, 1 to 3.
+     * @return The KPI id, e.g. 1000 + 10 * slot + 1 for the cool launch.
+     */
+    public int kpiId(int launchTypeId) {
+        return ID_BASE + 10 * slot(name) + launchTypeId;
+    }
+
+    // String.hashCode is specified, so the slot of a name never changes between runs or JVMs
+    private static int slot(String name) {
+        return Math.floorMod(name.hashCode(), ID_SLOTS);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + (start == null ? LAUNCH : start.pattern()) + " -> " + end.pattern()
+                + (group > 0 ? ", group " + group : "") + ")";
+    }
+}
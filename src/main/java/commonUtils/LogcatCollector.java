@@ -0,0 +1,386 @@
+package commonUtils;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Tails {@code logcat -v threadtime -b all -b vitals} of a device for the whole session and writes it once
+ * to a set of rotating files, so iterations no longer dump and clear the ring buffers.
+ * An iteration takes a {@link #mark()} when it starts and reads the lines up to a second mark as its slice.
+ * A mark is synchronized with the device by logging a unique sync line and waiting for the stream to reach it,
+ * so a slice always holds every line the device logged before the mark was taken.
+ * When logcat exits, e.g. because the adb transport dropped, it is restarted from the time of the last line read,
+ * skipping the lines already collected, so earlier iterations are never replayed into later slices.
+ */
+public class LogcatCollector {
+
+    private static final Logger log = Logger.getLogger(LogcatCollector.class.getSimpleName());
+    private static final Map<String, LogcatCollector> COLLECTORS = new ConcurrentHashMap<>();
+    private static final AtomicLong SYNC_SEQUENCE = new AtomicLong();
+    private static final String SYNC_TAG = "PerfLogcatSync";
+    private static final long SYNC_TIMEOUT_MS = 10000;
+    private static final long RESTART_DELAY_MS = 2000;
+
+    private final String DSN;
+    private final Commands cmd;
+    private final File directory;
+    private final long rotateBytes;
+    private final int keepFiles;
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Thread reader;
+
+    private volatile Process logcat;
+    private volatile boolean stopped;
+    private OutputStream out;
+    private long position, segmentStart;
+    private int segmentCount;
+    // Sync line the reader is waiting for, and the stream position right after it once seen
+    private String pendingSync;
+    private long syncPosition = -1;
+    // Condition a caller is waiting to see in the stream, and whether a line has met it
+    private Predicate<String> lineWaiter;
+    private boolean lineMatched;
+    // Time of the last line read and the lines read with that time, only used by the reader thread
+    private String lastTimestamp;
+    private final Set<String> linesAtLastTimestamp = new HashSet<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(LogcatCollector::stopAll));
+    }
+
+    private static final class Segment {
+        final File file;
+        final long start;
+
+        Segment(File file, long start) {
+            this.file = file;
+            this.start = start;
+        }
+    }
+
+    private LogcatCollector(String DSN, Commands cmd, File directory, long rotateBytes, int keepFiles) {
+        this.DSN = DSN;
+        this.cmd = cmd;
+        this.directory = directory;
+        this.rotateBytes = rotateBytes;
+        this.keepFiles = keepFiles;
+        this.reader = new Thread(this::collect, "logcat-" + DSN);
+        this.reader.setDaemon(true);
+    }
+
+    /**
+     * Returns the running collector of the device, starting it on first use.
+     *
+     * @param DSN         The Device Serial Number (DSN) of the device.
+     * @param cmd         The command executor used to reach the device.
+     * @param directory   The directory the rotating log files are written to.
+     * @param rotateBytes The size in bytes after which the current log file is rotated.
+     * @param keepFiles   The number of rotated log files kept on disk.
+     * @return The collector of the device.
+     */
+    public static LogcatCollector start(String DSN, Commands cmd, File directory, long rotateBytes, int keepFiles) {
+        return COLLECTORS.computeIfAbsent(DSN, key -> {
+            LogcatCollector collector = new LogcatCollector(key, cmd, directory, rotateBytes, keepFiles);
+            collector.reader.start();
+            log.info(key + ": Logcat collector started in " + directory);
+            return collector;
+        });
+    }
+
+    /**
+     * Returns the running collector of the device.
+     *
+     * @param DSN The Device Serial Number (DSN) of the device.
+     * @return The collector, or null if none was started.
+     */
+    public static LogcatCollector get(String DSN) {
+        return COLLECTORS.get(DSN);
+    }
+
+    /**
+     * Stops the collector of the device, if one is running.
+     *
+     * @param DSN The Device Serial Number (DSN) of the device.
+     */
+    public static void stop(String DSN) {
+        LogcatCollector collector = COLLECTORS.remove(DSN);
+        if (collector != null) collector.close();
+    }
+
+    /**
+     * Stops all running collectors.
+     */
+    public static void stopAll() {
+        for (String DSN : new ArrayList<>(COLLECTORS.keySet())) {
+            stop(DSN);
+        }
+    }
+
+    /**
+     * Marks the current end of the device log.
+     * A sync line is logged on the device and the call waits until the stream has caught up with it,
+     * so the returned position lies after every line logged before this call.
+     *
+     * @return The stream position of the mark.
+     */
+    public long mark() {
+        String token = SYNC_TAG + "_" + DSN + "_" + SYNC_SEQUENCE.incrementAndGet();
+        synchronized (this) {
+            pendingSync = token;
+            syncPosition = -1;
+        }
+        cmd.adb(DSN, cmd.ADB_LOG_SYNC + token);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SYNC_TIMEOUT_MS);
+        synchronized (this) {
+            try {
+                while (syncPosition < 0 && !stopped) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) break;
+                    wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            pendingSync = null;
+            if (syncPosition >= 0) return syncPosition;
+            log.warn(DSN + ": Logcat stream did not reach its sync mark, using the current position");
+            flush();
+            return position;
+        }
+    }
+
+    /**
+     * Waits until a line meeting the condition appears in the stream after the given mark.
+     * Lines already collected since the mark are checked first, then every new line as it arrives.
+     * The condition is only ever called by one thread at a time.
+     *
+     * @param from      The mark to start looking from.
+     * @param condition The condition a line has to meet.
+     * @param timeoutMs The longest time to wait in milliseconds.
+     * @return true if a matching line was seen, false on timeout.
+     * @throws IOException If the collected lines cannot be read.
+     */
+    public synchronized boolean awaitLine(long from, Predicate<String> condition, long timeoutMs) throws IOException {
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(openSlice(from, position),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (condition.test(line)) return true;
+            }
+        }
+        lineWaiter = condition;
+        lineMatched = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            while (!lineMatched && !stopped) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) break;
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lineWaiter = null;
+        }
+        return lineMatched;
+    }
+
+    /**
+     * Opens the log lines between two marks.
+     *
+     * @param from The mark taken when the slice starts.
+     * @param to   The mark taken when the slice ends.
+     * @return A stream over the lines of the slice.
+     * @throws IOException If the rotated files cannot be read.
+     */
+    public InputStream openSlice(long from, long to) throws IOException {
+        ByteArrayOutputStream slice = new ByteArrayOutputStream();
+        writeSlice(from, to, slice);
+        return new ByteArrayInputStream(slice.toByteArray());
+    }
+
+    /**
+     * Appends the log lines between two marks to a file.
+     *
+     * @param from    The mark taken when the slice starts.
+     * @param to      The mark taken when the slice ends.
+     * @param logFile The file the slice is appended to.
+     * @throws IOException If the rotated files cannot be read or the file cannot be written.
+     */
+    public void writeSlice(long from, long to, File logFile) throws IOException {
+        try (OutputStream target = new BufferedOutputStream(new FileOutputStream(logFile, true))) {
+            writeSlice(from, to, target);
+        }
+    }
+
+    private void writeSlice(long from, long to, OutputStream target) throws IOException {
+        List<Segment> snapshot;
+        synchronized (this) {
+            flush();
+            snapshot = new ArrayList<>(segments);
+        }
+        if (!snapshot.isEmpty() && snapshot.get(0).start > from) {
+            log.warn(DSN + ": Start of the logcat slice was already rotated out, slice is truncated");
+        }
+        byte[] buffer = new byte[64 * 1024];
+        for (int i = 0; i < snapshot.size(); i++) {
+            Segment segment = snapshot.get(i);
+            long segmentEnd = i + 1 < snapshot.size() ? snapshot.get(i + 1).start : to;
+            long start = Math.max(from, segment.start), end = Math.min(to, segmentEnd);
+            if (start >= end) continue;
+            try (RandomAccessFile file = new RandomAccessFile(segment.file, "r")) {
+                file.seek(start - segment.start);
+                long remaining = end - start;
+                while (remaining > 0) {
+                    int read = file.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read < 0) break;
+                    target.write(buffer, 0, read);
+                    remaining -= read;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the logcat stream until the collector is stopped, restarting logcat whenever it exits,
+     * e.g. while the device reboots. A restarted logcat resumes at the time of the last line read instead of
+     * replaying the whole ring buffer; the lines of that time already read are skipped.
+     */
+    private void collect() {
+        while (!stopped) {
+            String resumeFrom = lastTimestamp;
+            Set<String> resumeLines = new HashSet<>(linesAtLastTimestamp);
+            try {
+                logcat = cmd.adbStream(DSN, resumeFrom == null ? cmd.ADB_LOGCAT_STREAM
+                        : cmd.ADB_LOGCAT_STREAM_SINCE + "'" + resumeFrom + "'");
+                try (BufferedReader lines = new BufferedReader(new InputStreamReader(logcat.getInputStream(),
+                        StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = lines.readLine()) != null) {
+                        String timestamp = timestampOf(line);
+                        if (resumeFrom != null) {
+                            // Buffer headers and lines up to the resume time were collected before the restart
+                            if (timestamp == null || (timestamp.equals(resumeFrom) && resumeLines.contains(line))) {
+                                continue;
+                            }
+                            if (!timestamp.equals(resumeFrom)) resumeFrom = null;
+                        }
+                        if (timestamp != null && !timestamp.equals(lastTimestamp)) {
+                            lastTimestamp = timestamp;
+                            linesAtLastTimestamp.clear();
+                        }
+                        if (timestamp != null) linesAtLastTimestamp.add(line);
+                        append(line);
+                    }
+                }
+            } catch (IOException e) {
+                if (!stopped) log.error(DSN + ": Exception occurred while reading the logcat stream: ", e);
+            } finally {
+                if (logcat != null) logcat.destroyForcibly();
+            }
+            if (stopped) break;
+            try {
+                Thread.sleep(RESTART_DELAY_MS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            log.info(DSN + ": Restarting logcat collector" + (lastTimestamp == null ? "" : " from " + lastTimestamp));
+        }
+        synchronized (this) {
+            closeOutput();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Returns the time a threadtime line starts with.
+     *
+     * @param line The log line.
+     * @return The time as "MM-DD hh:mm:ss.mmm", or null if the line does not start with one.
+     */
+    static String timestampOf(String line) {
+        if (line.length() < 18 || line.charAt(2) != '-' || line.charAt(5) != ' ' || line.charAt(8) != ':'
+                || line.charAt(11) != ':' || line.charAt(14) != '.') return null;
+        for (int i : new int[]{0, 1, 3, 4, 6, 7, 9, 10, 12, 13, 15, 16, 17}) {
+            if (!Character.isDigit(line.charAt(i))) return null;
+        }
+        return line.substring(0, 18);
+    }
+
+    private synchronized void append(String line) throws IOException {
+        if (out == null || position - segmentStart >= rotateBytes) rotate();
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        position += bytes.length;
+        if (pendingSync != null && line.contains(pendingSync)) {
+            out.flush();
+            syncPosition = position;
+            notifyAll();
+        }
+        if (lineWaiter != null && !lineMatched && lineWaiter.test(line)) {
+            lineMatched = true;
+            notifyAll();
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeOutput();
+        File file = new File(directory, "logcat_" + DSN.replaceAll("[^A-Za-z0-9._-]", "_") + "_"
+                + System.currentTimeMillis() + "_" + (++segmentCount) + ".txt");
+        out = new BufferedOutputStream(new FileOutputStream(file));
+        segmentStart = position;
+        segments.addLast(new Segment(file, position));
+        while (segments.size() > keepFiles) {
+            File oldest = segments.removeFirst().file;
+            if (!oldest.delete()) log.warn(DSN + ": Unable to delete rotated logcat file " + oldest);
+        }
+    }
+
+    private void flush() {
+        try {
+            if (out != null) out.flush();
+        } catch (IOException e) {
+            log.error(DSN + ": Exception occurred while flushing the logcat file: ", e);
+        }
+    }
+
+    private void closeOutput() {
+        try {
+            if (out != null) out.close();
+        } catch (IOException e) {
+            log.error(DSN + ": Exception occurred while closing the logcat file: ", e);
+        }
+        out = null;
+    }
+
+    private void close() {
+        stopped = true;
+        Process process = logcat;
+        if (process != null) process.destroyForcibly();
+        reader.interrupt();
+        log.info(DSN + ": Logcat collector stopped");
+    }
+}
@@ -0,0 +1,159 @@
+package commonUtils;
+
+import org.apache.log4j.Logger;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the memory usage of one app process instead of dumping the meminfo of the whole system.
+ * The process is resolved with {@code pidof} and its {@code /proc/<pid>/smaps_rollup} is read, directly or through
+ * {@code run-as} for debuggable apps; only where neither is readable, e.g. on kernels before 4.14 or for
+ * non-debuggable apps on user builds, {@code dumpsys meminfo <package>} of just the app is parsed instead.
+ * Which source works is remembered per device and app, so later probes cost a single shell command.
+ */
+public class MemoryProbe {
+
+    private static final Logger log = Logger.getLogger(MemoryProbe.class.getSimpleName());
+    public static final String SMAPS_ROLLUP = "smaps_rollup", RUN_AS = "run-as", DUMPSYS = "dumpsys";
+    private static final Map<String, String> SOURCES = new ConcurrentHashMap<>();
+    private static final Pattern SMAPS_LINE = Pattern.compile("^(\\w+):\\s+(\\d+) kB$");
+    private static final Pattern SUMMARY_FIELD = Pattern.compile("([A-Za-z][A-Za-z ()]*?):\\s+(\\d+)");
+
+    /**
+     * The memory usage of an app process, in KB per category as reported by its source.
+     */
+    public static class Snapshot {
+        private final String source;
+        private final Map<String, Long> kb;
+
+        Snapshot(String source, Map<String, Long> kb) {
+            this.source = source;
+            this.kb = Collections.unmodifiableMap(kb);
+        }
+
+        /**
+         * @return Where the values were read from: {@link #SMAPS_ROLLUP}, {@link #RUN_AS} or {@link #DUMPSYS}.
+         */
+        public String getSource() {
+            return source;
+        }
+
+        /**
+         * @return The values in KB by category, e.g. Pss_Anon, Private_Dirty, or Java Heap for dumpsys.
+         */
+        public Map<String, Long> getCategories() {
+            return kb;
+        }
+
+        public double getPssMb() {
+            return mb("Pss", "TOTAL PSS", "TOTAL");
+        }
+
+        public double getRssMb() {
+            return mb("Rss", "TOTAL RSS");
+        }
+
+        public double getSwapMb() {
+            return mb("SwapPss", "Swap", "TOTAL SWAP PSS", "TOTAL SWAP (KB)");
+        }
+
+        /**
+         * @return The categories as text, e.g. "Pss_Anon=41236;Pss_File=12004".
+         */
+        public String getCategoriesText() {
+            StringBuilder text = new StringBuilder();
+            for (Map.Entry<String, Long> category : kb.entrySet()) {
+                if (text.length() > 0) text.append(';');
+                text.append(category.getKey()).append('=').append(category.getValue());
+            }
+            return text.toString();
+        }
+
+        private double mb(String... keys) {
+            for (String key : keys) {
+                Long value = kb.get(key);
+                if (value != null) return value / 1024.0;
+            }
+            return 0;
+        }
+    }
+
+    private MemoryProbe() {
+    }
+
+    /**
+     * Reads the memory usage of an app.
+     *
+     * @param DSN        The Device Serial Number (DSN) of the device.
+     * @param cmd        The command executor used to reach the device.
+     * @param appPackage The package of the app.
+     * @return The memory usage, or null if the app is not running or no source could be read.
+     */
+    public static Snapshot read(String DSN, Commands cmd, String appPackage) {
+        String pid = cmd.adbRun(DSN, cmd.GET_PID + appPackage).getStdout().trim().split("\\s+")[0];
+        if (pid.isEmpty()) return null;
+        String key = DSN + "/" + appPackage;
+        String known = SOURCES.get(key);
+        String[] candidates = known == null ? new String[]{SMAPS_ROLLUP, RUN_AS} : new String[]{known};
+        for (String source : candidates) {
+            if (source.equals(DUMPSYS)) break;
+            String file = pid + "/" + SMAPS_ROLLUP;
+            String command = source.equals(RUN_AS) ? cmd.ADB_RUN_AS + appPackage + " cat /proc/" + file
+                    : cmd.ADB_PROC + file;
+            Map<String, Long> values = parseSmapsRollup(cmd.adbRun(DSN, command).getStdout());
+            if (values.containsKey("Pss")) {
+                if (known == null) log.info(DSN + ": Reading memory of " + appPackage + " from " + source);
+                SOURCES.put(key, source);
+                return new Snapshot(source, values);
+            }
+        }
+        if (known == null) {
+            log.info(DSN + ": smaps_rollup of " + appPackage + " not readable, using dumpsys meminfo " + appPackage);
+            SOURCES.put(key, DUMPSYS);
+        }
+        Map<String, Long> values = parseMeminfoSummary(cmd.adbRun(DSN, cmd.ADB_MEMORY_INFO_FOS5 + appPackage).getStdout());
+        return values.isEmpty() ? null : new Snapshot(DUMPSYS, values);
+    }
+
+    /**
+     * Parses {@code /proc/<pid>/smaps_rollup}, whose lines read e.g. {@code Pss_Anon:   41236 kB}.
+     *
+     * @param output The file content.
+     * @return The values in KB by field, empty if the output is not a smaps_rollup file.
+     */
+    static Map<String, Long> parseSmapsRollup(String output) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (String line : output.split("\n")) {
+            Matcher field = SMAPS_LINE.matcher(line.trim());
+            if (field.matches()) values.put(field.group(1), Long.parseLong(field.group(2)));
+        }
+        return values;
+    }
+
+    /**
+     * Parses the App Summary section of {@code dumpsys meminfo <package>}, e.g. {@code Java Heap:  1234}
+     * and {@code TOTAL PSS:  52345   TOTAL RSS:  98765   TOTAL SWAP PSS:  12}. Where the summary has a PSS and an
+     * RSS column, the categories keep the PSS values.
+     *
+     * @param output The dumpsys output.
+     * @return The values in KB by category, empty if the output holds no summary.
+     */
+    static Map<String, Long> parseMeminfoSummary(String output) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        int summary = output.indexOf("App Summary");
+        if (summary < 0) return values;
+        for (String line : output.substring(summary).split("\n")) {
+            Matcher field = SUMMARY_FIELD.matcher(line);
+            while (field.find()) {
+                values.putIfAbsent(field.group(1).trim(), Long.parseLong(field.group(2)));
+            }
+            if (line.contains("TOTAL")) break;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,335 @@
+package commonUtils;
+
+import java.util.Arrays;
+
+/**
+ * Recorder of one metric (launch time, memory, CPU) from which percentiles are read. Every value is rounded to the
+ * configured decimals and kept exactly, so percentiles are values that were actually recorded, the same as
+ * sorting the samples. Values are also counted in a log-linear histogram in the style of HdrHistogram, with three
+ * significant digits: once more than {@value #EXACT_LIMIT} values are recorded, or a recorder without exact values
+ * is merged in (e.g. one decoded from an encoding without them), only the histogram is kept and percentiles are the
+ * lower bound of their bucket, off by at most 0.1% of the value for values of 2048 units and more.
+ * <p>
+ * Iterations that produced no value are counted separately as missing instead of being recorded as zero.
+ * Recorders of the same metric merge without loss, e.g. across iterations, devices or runs, and can be stored
+ * as a compact string with {@link #encode()}.
+ * <p>
+ * A recorder is not thread-safe.
+ */
+public class QuantileRecorder {
+
+    // 2048 sub-buckets: three significant decimal digits
+    private static final int SUB_BUCKET_HALF_COUNT_MAGNITUDE = 10;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_COUNT_MAGNITUDE;
+    private static final long SUB_BUCKET_MASK = (2L << SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+    // Values kept exactly, far above the iterations of a run or a merged history
+    static final int EXACT_LIMIT = 100000;
+    // Confidence level of getConfidenceInterval, less a rounding margin of the summed probabilities
+    private static final double CONFIDENCE = 0.95 - 1e-12;
+
+    private final int decimals;
+    private final long unitsPerValue;
+    private long[] counts = new long[2 * SUB_BUCKET_HALF_COUNT];
+    private long count, missing, min = Long.MAX_VALUE, max;
+    private double sum;
+    // The recorded values in units, sorted on demand; null once only the histogram is kept
+    private long[] values = new long[16];
+    private int kept;
+    private boolean sorted = true;
+
+    /**
+     * Creates an empty recorder.
+     *
+     * @param decimals The decimals kept of every value, e.g. 0 for milliseconds, 2 for MB or percent.
+     */
+    public QuantileRecorder(int decimals) {
+        this.decimals = decimals;
+        long units = 1;
+        for (int i = 0; i < decimals; i++) units *= 10;
+        this.unitsPerValue = units;
+    }
+
+    /**
+     * Records a value of one iteration. Zero, negative and non-numeric values are counted as missing.
+     *
+     * @param value The value of the iteration.
+     */
+    public void record(double value) {
+        long units = Math.round(value * unitsPerValue);
+        if (!(value > 0) || Double.isInfinite(value) || units <= 0) {
+            missing++;
+            return;
+        }
+        int index = countsIndex(units);
+        if (index >= counts.length) counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+        counts[index]++;
+        count++;
+        sum += value;
+        min = Math.min(min, units);
+        max = Math.max(max, units);
+        keep(units);
+    }
+
+    /**
+     * Counts an iteration that produced no value.
+     */
+    public void recordMissing() {
+        missing++;
+    }
+
+    /**
+     * Adds all values and missing iterations of another recorder of the same metric to this one.
+     *
+     * @param other The recorder to merge.
+     * @throws IllegalArgumentException If the other recorder keeps a different number of decimals.
+     */
+    public void merge(QuantileRecorder other) {
+        if (other.decimals != decimals) {
+            throw new IllegalArgumentException("Cannot merge a recorder with " + other.decimals
+                    + " decimals into one with " + decimals);
+        }
+        if (other.values == null) {
+            values = null;
+        } else {
+            long[] otherValues = other.values;
+            for (int i = 0, otherKept = other.kept; i < otherKept; i++) keep(otherValues[i]);
+        }
+        if (other.counts.length > counts.length) counts = Arrays.copyOf(counts, other.counts.length);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        missing += other.missing;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns the value at a percentile, using the nearest-rank definition.
+     *
+     * @param percentile The percentile, e.g. 50 or 90.
+     * @return The value at the percentile, or 0 if no value was recorded.
+     */
+    public double getPercentile(double percentile) {
+        if (count == 0) return 0;
+        return getValueAtRank((long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100.0 * count));
+    }
+
+    /**
+     * Returns a distribution-free 95% confidence interval of a percentile, bounded by the narrowest pair of order
+     * statistics that enclose the percentile with at least 95% probability. The probability is exact: the number
+     * of values below the percentile follows a binomial distribution. Such a pair only exists once the smallest and
+     * largest values enclose the percentile often enough, from 6 values for TP50 and 29 values for TP90.
+     *
+     * @param percentile The percentile, e.g. 50 or 90.
+     * @return The lower and upper bound, or null while too few values are recorded to bound the percentile.
+     */
+    public double[] getConfidenceInterval(double percentile) {
+        double q = percentile / 100.0;
+        if (count < 2 || !(q > 0 && q < 1)) return null;
+        int n = (int) Math.min(count, Integer.MAX_VALUE - 1);
+        // below[i]: probability that fewer than i values are below the percentile
+        double[] probability = binomial(n, q), below = new double[n + 1];
+        for (int i = 0; i < n; i++) below[i + 1] = below[i] + probability[i];
+        // The ranks l < u enclose the percentile when l to u - 1 values are below it
+        int lower = 0, upper = 0;
+        double coverage = 0;
+        for (int l = 1, u = 2; l < n; l++) {
+            u = Math.max(u, l + 1);
+            while (u <= n && below[u] - below[l] < CONFIDENCE) u++;
+            if (u > n) break;
+            double enclosed = below[u] - below[l];
+            if (lower == 0 || u - l < upper - lower || (u - l == upper - lower && enclosed > coverage)) {
+                lower = l;
+                upper = u;
+                coverage = enclosed;
+            }
+        }
+        if (lower == 0) return null;
+        return new double[]{getValueAtRank(lower), getValueAtRank(upper)};
+    }
+
+    /**
+     * Returns the binomial probabilities of 0 to n successes, computed outwards from the mode so that
+     * they neither underflow nor overflow for large n.
+     *
+     * @param n The number of trials.
+     * @param q The probability of a success, strictly between 0 and 1.
+     * @return The probability of k successes at index k.
+     */
+    private static double[] binomial(int n, double q) {
+        double[] probability = new double[n + 1];
+        int mode = (int) Math.min(n, Math.floor((n + 1) * q));
+        probability[mode] = 1;
+        double total = 1;
+        for (int k = mode; k < n; k++) {
+            probability[k + 1] = probability[k] * (n - k) / (k + 1) * q / (1 - q);
+            total += probability[k + 1];
+        }
+        for (int k = mode; k > 0; k--) {
+            probability[k - 1] = probability[k] * k / (n - k + 1) * (1 - q) / q;
+            total += probability[k - 1];
+        }
+        for (int k = 0; k <= n; k++) probability[k] /= total;
+        return probability;
+    }
+
+    /**
+     * Returns the value at a rank of the sorted values.
+     *
+     * @param rank The rank, from 1 for the smallest to {@link #getCount()} for the largest value.
+     * @return The value at the rank, or 0 if no value was recorded.
+     */
+    public double getValueAtRank(long rank) {
+        if (count == 0) return 0;
+        rank = Math.max(1, rank);
+        if (rank >= count) return getMax();
+        if (values != null) {
+            if (!sorted) {
+                Arrays.sort(values, 0, kept);
+                sorted = true;
+            }
+            return toValue(values[(int) rank - 1]);
+        }
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return toValue(Math.min(max, Math.max(min, valueOf(i))));
+        }
+        return getMax();
+    }
+
+    public double getMin() {
+        return count == 0 ? 0 : toValue(min);
+    }
+
+    public double getMax() {
+        return toValue(max);
+    }
+
+    /**
+     * Returns the arithmetic mean of the recorded values, missing iterations excluded.
+     *
+     * @return The mean, or 0 if no value was recorded.
+     */
+    public double getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The number of iterations that produced no value.
+     */
+    public long getMissing() {
+        return missing;
+    }
+
+    /**
+     * Writes the recorder as a compact string, holding the non-empty buckets and the exact values if still kept.
+     *
+     * @return The encoded recorder, readable with {@link #decode(String)}.
+     */
+    public String encode() {
+        StringBuilder encoded = new StringBuilder();
+        encoded.append(decimals).append('|').append(missing).append('|').append(sum).append('|');
+        boolean first = true;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) continue;
+            if (!first) encoded.append(',');
+            encoded.append(valueOf(i)).append(':').append(counts[i]);
+            first = false;
+        }
+        encoded.append('|').append(count == 0 ? 0 : min).append('|').append(max).append('|');
+        if (values == null) {
+            encoded.append('-');
+        } else {
+            for (int i = 0; i < kept; i++) {
+                if (i > 0) encoded.append(',');
+                encoded.append(values[i]);
+            }
+        }
+        return encoded.toString();
+    }
+
+    /**
+     * Reads a recorder written by {@link #encode()}.
+     *
+     * @param encoded The encoded recorder.
+     * @return The recorder.
+     * @throws IllegalArgumentException If the string is not an encoded recorder.
+     */
+    public static QuantileRecorder decode(String encoded) {
+        try {
+            String[] parts = encoded.split("\\|", -1);
+            QuantileRecorder recorder = new QuantileRecorder(Integer.parseInt(parts[0]));
+            recorder.missing = Long.parseLong(parts[1]);
+            recorder.sum = Double.parseDouble(parts[2]);
+            if (!parts[3].isEmpty()) {
+                for (String bucket : parts[3].split(",")) {
+                    int separator = bucket.indexOf(':');
+                    int index = countsIndex(Long.parseLong(bucket.substring(0, separator)));
+                    long bucketCount = Long.parseLong(bucket.substring(separator + 1));
+                    if (index >= recorder.counts.length) recorder.counts = Arrays.copyOf(recorder.counts, index + 1);
+                    recorder.counts[index] += bucketCount;
+                    recorder.count += bucketCount;
+                }
+            }
+            recorder.min = recorder.count == 0 ? Long.MAX_VALUE : Long.parseLong(parts[4]);
+            recorder.max = Long.parseLong(parts[5]);
+            if (parts.length < 7 || parts[6].equals("-")) {
+                recorder.values = null;
+            } else if (!parts[6].isEmpty()) {
+                for (String value : parts[6].split(",")) recorder.keep(Long.parseLong(value));
+            }
+            if (recorder.values != null && recorder.kept != recorder.count) {
+                throw new IllegalArgumentException("Expected " + recorder.count + " values, found " + recorder.kept);
+            }
+            return recorder;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Not an encoded quantile recorder: " + encoded, e);
+        }
+    }
+
+    /**
+     * Keeps a recorded value exactly, or drops all exact values once more than {@value #EXACT_LIMIT} are recorded.
+     *
+     * @param units The value in units of the configured decimals.
+     */
+    private void keep(long units) {
+        if (values == null) return;
+        if (kept == EXACT_LIMIT) {
+            values = null;
+            return;
+        }
+        if (kept == values.length) values = Arrays.copyOf(values, kept * 2);
+        sorted = sorted && (kept == 0 || values[kept - 1] <= units);
+        values[kept++] = units;
+    }
+
+    private double toValue(long units) {
+        return decimals == 0 ? units : units / (double) unitsPerValue;
+    }
+
+    private static int countsIndex(long units) {
+        int bucket = 64 - Long.numberOfLeadingZeros(units | SUB_BUCKET_MASK) - (SUB_BUCKET_HALF_COUNT_MAGNITUDE + 1);
+        int subBucket = (int) (units >>> bucket);
+        return ((bucket + 1) << SUB_BUCKET_HALF_COUNT_MAGNITUDE) + (subBucket - SUB_BUCKET_HALF_COUNT);
+    }
+
+    private static long valueOf(int index) {
+        int bucket = (index >> SUB_BUCKET_HALF_COUNT_MAGNITUDE) - 1;
+        long subBucket = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+        if (bucket < 0) {
+            subBucket -= SUB_BUCKET_HALF_COUNT;
+            bucket = 0;
+        }
+        return subBucket << bucket;
+    }
+}
@@ -13,7 +13,7 @@ public class ReadPaths {
 
     public String apkPath, kpiLog, reportPath, outputPath, testSuite, extentReportXml, adbLogs, logZipPath,
             appPackage = null, appIntent = null;
-    public String kpi_values_csv;
+    public String kpi_values_csv, historyPath;
     public static String FTV = "ftv", TABLET = "tablet";
     public Properties prop;
     public static String DEVICE_TYPE;
@@ -24,7 +24,9 @@ public class ReadPaths {
     public static String CSV_HEADERS = "KPI_ID," + "APP_PACKAGE," + "APP_VERSION," + "KPI_TYPE," + "KPI_METRICS_NAME,"
             + "KPI_ITERATION_WISE_VALUES," + "KPI_AVERAGE_VALUE," + "KPI_TP50_VALUE," + "KPI_TP90_VALUE,"
             + "TEST_DEVICE_NAME," + "TEST_DEVICE_FOS_VERSION," + "TEST_DEVICE_RAM_USED," + "TEST_DEVICE_CPU_USED,"
-            + "ITERATIONS_EXECUTED," + "TEST_EXECUTION_DATE," + "FAILURE_REASON," + "\n";
+            + "ITERATIONS_EXECUTED," + "TEST_EXECUTION_DATE," + "FAILURE_REASON," + "KPI_TP50_CI_WIDTH,"
+            + "KPI_TP90_CI_WIDTH," + "KPI_STEADY_TP50_VALUE," + "KPI_STEADY_TP90_VALUE," + "EXCLUDED_ITERATIONS,"
+            + "\n";
     public String COOL_APP = "cool_app_launch_time";
     public String COOL_ACTIVITY = "cool_activity_launch_time";
     public String WARM_APP_WARM = "warm_app_warm_transition_launch_time";
@@ -37,9 +39,14 @@ public class ReadPaths {
 
     public String COOL_APP_FF = "Cool_FF";
     public String WARM_APP_FF = "Warm_FF";
+    public String HOT_APP_FF = "Hot_FF";
+    public String COOL_APP_RTU = "Cool_RTU";
+    public String WARM_APP_RTU = "Warm_RTU";
     public static boolean fullyDrawnMarker = false;
 
     public static String DSN, KPI_TYPE, APP_VERSION, DEVICE_NAME, APP_PACKAGE_INPUT = null, APP_FAILURE_REASON, metricsName;
+    // Set when several devices run in one process, so every device writes its own CSV, suite XML and report
+    public static String OUTPUT_TAG = null;
 
     /**
      * Reads the paths from the configuration file and initializes the paths used in the test suite.
@@ -66,9 +73,26 @@ public class ReadPaths {
             testSuite = USER_DIR + prop.getProperty("perfXml_Local");
             outputPath = USER_DIR + prop.getProperty("output_local");
             kpi_values_csv = USER_DIR + prop.getProperty("kpi_values_Local");
+            historyPath = USER_DIR + prop.getProperty("history_Local", "/history/");
+            if (OUTPUT_TAG != null) {
+                testSuite = tagged(testSuite);
+                kpi_values_csv = tagged(kpi_values_csv);
+            }
 
         } catch (Exception e) {
             log.error("Exception occurred while reading properties/paths: ", e);
         }
     }
+
+    /**
+     * Inserts the output tag of the device before the file extension, e.g. kpi_values.csv becomes kpi_values_G070VM.csv.
+     *
+     * @param path The output file path.
+     * @return The path tagged with {@link #OUTPUT_TAG}.
+     */
+    public static String tagged(String path) {
+        int extension = path.lastIndexOf('.');
+        if (extension <= path.lastIndexOf('/')) return path + "_" + OUTPUT_TAG;
+        return path.substring(0, extension) + "_" + OUTPUT_TAG + path.substring(extension);
+    }
 }
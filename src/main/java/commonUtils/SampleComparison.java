@@ -0,0 +1,172 @@
+package commonUtils;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Non-parametric comparison of the per-iteration samples of a baseline and a candidate run.
+ * Launch times are skewed and often bimodal, so neither test assumes a distribution:
+ * the Mann-Whitney U test tells whether the candidate tends to be slower or faster than the baseline,
+ * and a bootstrap of the difference of the medians gives the size of the change with a 95% confidence interval.
+ */
+public class SampleComparison {
+
+    private final int baselineCount, candidateCount;
+    private final double baselineMedian, candidateMedian, difference, differenceLow, differenceHigh;
+    private final double pValue, cliffsDelta;
+
+    /**
+     * Compares two samples.
+     *
+     * @param baseline  The samples of the baseline, at least one.
+     * @param candidate The samples of the candidate, at least one.
+     * @param resamples The bootstrap resamples drawn for the confidence interval, e.g. 2000.
+     * @param seed      The seed of the bootstrap, so a comparison can be reproduced.
+     * @throws IllegalArgumentException If a sample is empty.
+     */
+    public SampleComparison(double[] baseline, double[] candidate, int resamples, long seed) {
+        if (baseline.length == 0 || candidate.length == 0) {
+            throw new IllegalArgumentException("Cannot compare an empty sample");
+        }
+        baselineCount = baseline.length;
+        candidateCount = candidate.length;
+        baselineMedian = median(baseline.clone());
+        candidateMedian = median(candidate.clone());
+        difference = candidateMedian - baselineMedian;
+
+        double[] differences = new double[Math.max(resamples, 1)];
+        double[] baselineDraw = new double[baseline.length], candidateDraw = new double[candidate.length];
+        Random random = new Random(seed);
+        for (int r = 0; r < differences.length; r++) {
+            for (int i = 0; i < baselineDraw.length; i++) baselineDraw[i] = baseline[random.nextInt(baseline.length)];
+            for (int i = 0; i < candidateDraw.length; i++) candidateDraw[i] = candidate[random.nextInt(candidate.length)];
+            differences[r] = median(candidateDraw) - median(baselineDraw);
+        }
+        Arrays.sort(differences);
+        differenceLow = differences[(int) Math.floor(0.025 * (differences.length - 1))];
+        differenceHigh = differences[(int) Math.ceil(0.975 * (differences.length - 1))];
+
+        double[] u = mannWhitney(baseline, candidate);
+        cliffsDelta = 2 * u[0] / ((double) baseline.length * candidate.length) - 1;
+        pValue = u[1];
+    }
+
+    /**
+     * Computes the U statistic of the candidate, the number of pairs in which the candidate is slower
+     * (ties counting half), and its two-sided p-value from the normal approximation with tie and
+     * continuity correction.
+     */
+    private static double[] mannWhitney(double[] baseline, double[] candidate) {
+        int n1 = baseline.length, n2 = candidate.length, n = n1 + n2;
+        double[][] pooled = new double[n][];
+        for (int i = 0; i < n1; i++) pooled[i] = new double[]{baseline[i], 0};
+        for (int i = 0; i < n2; i++) pooled[n1 + i] = new double[]{candidate[i], 1};
+        Arrays.sort(pooled, (a, b) -> Double.compare(a[0], b[0]));
+
+        double candidateRanks = 0, tieTerm = 0;
+        for (int i = 0; i < n; ) {
+            int j = i;
+            while (j < n && pooled[j][0] == pooled[i][0]) j++;
+            double rank = (i + 1 + j) / 2.0;
+            for (int k = i; k < j; k++) {
+                if (pooled[k][1] == 1) candidateRanks += rank;
+            }
+            double ties = j - i;
+            tieTerm += ties * ties * ties - ties;
+            i = j;
+        }
+        double uCandidate = candidateRanks - n2 * (n2 + 1) / 2.0;
+        double mean = n1 * (double) n2 / 2;
+        double variance = n1 * (double) n2 / 12 * ((n + 1) - tieTerm / ((double) n * (n - 1)));
+        if (variance <= 0) return new double[]{uCandidate, 1};
+        double z = Math.max(Math.abs(uCandidate - mean) - 0.5, 0) / Math.sqrt(variance);
+        return new double[]{uCandidate, Math.min(1, erfc(z / Math.sqrt(2)))};
+    }
+
+    /**
+     * Complementary error function, with a fractional error below 1.2e-7 (Numerical Recipes, erfcc).
+     */
+    private static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1 / (1 + 0.5 * z);
+        double result = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? result : 2 - result;
+    }
+
+    /**
+     * Returns the median of the values, the mean of the middle two for an even count. Sorts the array.
+     */
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+
+    public int getBaselineCount() {
+        return baselineCount;
+    }
+
+    public int getCandidateCount() {
+        return candidateCount;
+    }
+
+    public double getBaselineMedian() {
+        return baselineMedian;
+    }
+
+    public double getCandidateMedian() {
+        return candidateMedian;
+    }
+
+    /**
+     * Returns the candidate median minus the baseline median; positive when the candidate is slower.
+     *
+     * @return The difference of the medians.
+     */
+    public double getDifference() {
+        return difference;
+    }
+
+    /**
+     * @return The lower bound of the 95% bootstrap confidence interval of {@link #getDifference()}.
+     */
+    public double getDifferenceLow() {
+        return differenceLow;
+    }
+
+    /**
+     * @return The upper bound of the 95% bootstrap confidence interval of {@link #getDifference()}.
+     */
+    public double getDifferenceHigh() {
+        return differenceHigh;
+    }
+
+    /**
+     * Returns a difference relative to the baseline median.
+     *
+     * @param value The difference, e.g. {@link #getDifference()} or one of its bounds.
+     * @return The difference in percent of the baseline median, NaN if the baseline median is 0.
+     */
+    public double relative(double value) {
+        return baselineMedian == 0 ? Double.NaN : 100 * value / baselineMedian;
+    }
+
+    /**
+     * @return The two-sided p-value of the Mann-Whitney U test.
+     */
+    public double getPValue() {
+        return pValue;
+    }
+
+    /**
+     * Returns Cliff's delta, the probability that a candidate sample is slower than a baseline sample minus the
+     * probability that it is faster: 0 when neither tends to be slower, 1 when every candidate sample is slower.
+     *
+     * @return Cliff's delta, between -1 and 1.
+     */
+    public double getCliffsDelta() {
+        return cliffsDelta;
+    }
+}
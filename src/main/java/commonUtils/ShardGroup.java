@@ -0,0 +1,168 @@
+package commonUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pool of identical devices sharing the iterations of one KPI run.
+ * Every device measures its share of the configured iterations and submits its samples per KPI;
+ * the leader (first device) waits for all shards and reports the merged result.
+ * <p>
+ * Device runs are isolated in their own class loaders, so this class is loaded once by the application
+ * class loader and shared by all of them; it must therefore only depend on JDK classes.
+ */
+public final class ShardGroup {
+
+    private static final Map<String, ShardGroup> GROUPS = new ConcurrentHashMap<>();
+
+    private final List<String> devices;
+    private final Map<String, Integer> shares = new LinkedHashMap<>();
+    private final Map<String, Map<String, Samples>> submitted = new LinkedHashMap<>();
+    private final List<String> finished = new ArrayList<>();
+    private final long timeoutMs;
+
+    /**
+     * Samples one device measured for one KPI.
+     */
+    public static final class Samples {
+        public final double[] timers, displayed, fullyDrawn, memory, cpu;
+        public final double[][] markers;
+
+        Samples(double[] timers, double[] displayed, double[] fullyDrawn, double[][] markers, double[] memory,
+                double[] cpu) {
+            this.timers = timers.clone();
+            this.displayed = displayed.clone();
+            this.fullyDrawn = fullyDrawn.clone();
+            this.markers = new double[markers.length][];
+            for (int i = 0; i < markers.length; i++) this.markers[i] = markers[i].clone();
+            this.memory = memory.clone();
+            this.cpu = cpu.clone();
+        }
+    }
+
+    private ShardGroup(List<String> devices, int totalIterations, long timeoutMs) {
+        this.devices = Collections.unmodifiableList(new ArrayList<>(devices));
+        this.timeoutMs = timeoutMs;
+        for (int i = 0; i < devices.size(); i++) {
+            shares.put(devices.get(i), totalIterations / devices.size() + (i < totalIterations % devices.size() ? 1 : 0));
+        }
+    }
+
+    /**
+     * Creates a shard group spreading the iterations over the given devices and registers it for each of them.
+     * The first devices get one extra iteration when the iterations do not divide evenly.
+     *
+     * @param devices         The Device Serial Numbers (DSN) of the devices, the first one being the leader.
+     * @param totalIterations The iterations of one KPI run to spread over the devices.
+     * @param timeoutMs       How long the leader waits for the other shards of a KPI.
+     * @return The shard group.
+     */
+    public static ShardGroup create(List<String> devices, int totalIterations, long timeoutMs) {
+        ShardGroup group = new ShardGroup(devices, totalIterations, timeoutMs);
+        for (String device : devices) {
+            GROUPS.put(device, group);
+        }
+        return group;
+    }
+
+    /**
+     * Returns the shard group the device belongs to.
+     *
+     * @param DSN The Device Serial Number (DSN) of the device.
+     * @return The shard group, or null if the device runs all iterations itself.
+     */
+    public static ShardGroup forDevice(String DSN) {
+        return DSN == null ? null : GROUPS.get(DSN);
+    }
+
+    public List<String> getDevices() {
+        return devices;
+    }
+
+    /**
+     * Returns the number of iterations the device measures.
+     *
+     * @param DSN The Device Serial Number (DSN) of the device.
+     * @return The share of the device.
+     */
+    public int iterationsFor(String DSN) {
+        return shares.getOrDefault(DSN, 0);
+    }
+
+    /**
+     * Tells whether the device reports the merged result of the group.
+     *
+     * @param DSN The Device Serial Number (DSN) of the device.
+     * @return true for the first device of the group.
+     */
+    public boolean isLeader(String DSN) {
+        return devices.get(0).equals(DSN);
+    }
+
+    /**
+     * Submits the samples a device measured for a KPI.
+     *
+     * @param kpi        The KPI the samples belong to, e.g. "Cool_FF".
+     * @param DSN        The Device Serial Number (DSN) of the device.
+     * @param timers     The vitals launch times per iteration.
+     * @param displayed  The displayed times per iteration.
+     * @param fullyDrawn The fully drawn (RTU) times per iteration.
+     * @param markers    The values per iteration of each log marker KPI.
+     * @param memory     The memory usage per iteration.
+     * @param cpu        The CPU usage per iteration.
+     */
+    public synchronized void submit(String kpi, String DSN, double[] timers, double[] displayed,
+                                    double[] fullyDrawn, double[][] markers, double[] memory, double[] cpu) {
+        submitted.computeIfAbsent(kpi, key -> new LinkedHashMap<>())
+                .put(DSN, new Samples(timers, displayed, fullyDrawn, markers, memory, cpu));
+        notifyAll();
+    }
+
+    /**
+     * Records that the run of a device has ended, so no one waits for shards it will never submit.
+     *
+     * @param DSN The Device Serial Number (DSN) of the device.
+     */
+    public synchronized void finish(String DSN) {
+        finished.add(DSN);
+        notifyAll();
+    }
+
+    /**
+     * Waits until every device of the group has submitted its samples for the KPI or has finished its run.
+     *
+     * @param kpi The KPI to wait for.
+     * @return The submitted samples per device, in device order; devices missing at the timeout are left out.
+     */
+    public synchronized Map<String, Samples> await(String kpi) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        try {
+            while (!complete(kpi)) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) break;
+                wait(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Map<String, Samples> shards = new LinkedHashMap<>();
+        Map<String, Samples> samples = submitted.getOrDefault(kpi, Collections.emptyMap());
+        for (String device : devices) {
+            if (samples.containsKey(device)) shards.put(device, samples.get(device));
+        }
+        return shards;
+    }
+
+    private boolean complete(String kpi) {
+        Map<String, Samples> samples = submitted.getOrDefault(kpi, Collections.emptyMap());
+        for (String device : devices) {
+            if (!samples.containsKey(device) && !finished.contains(device)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,145 @@
+package commonUtils;
+
+import java.util.Arrays;
+
+/**
+ * Separates the steady-state launches of a KPI run from its warm-up prefix and its outliers.
+ * The first launches after the initial cold launch often still pay for dexopt, page cache and JIT profiles;
+ * they are flagged as warm-up while they lie above the typical value of the later launches.
+ * Of the remaining launches, those far from the typical value are flagged as outliers.
+ * Both tests use the modified z-score {@code 0.6745 * (x - median) / MAD}, which a few extreme values cannot skew.
+ */
+public class SteadyStateFilter {
+
+    private static final double MAD_SCALE = 0.6745;
+    private static final int MIN_REFERENCE_VALUES = 5;
+
+    private final int maxWarmup;
+    private final double threshold;
+
+    /**
+     * The iterations a filter excluded.
+     */
+    public static class Result {
+        private final double[] values;
+        private final boolean[] warmup, outlier;
+
+        Result(double[] values) {
+            this.values = values;
+            this.warmup = new boolean[values.length];
+            this.outlier = new boolean[values.length];
+        }
+
+        public boolean isWarmup(int iteration) {
+            return warmup[iteration];
+        }
+
+        public boolean isOutlier(int iteration) {
+            return outlier[iteration];
+        }
+
+        /**
+         * Returns the values of the steady-state iterations, missing iterations left out.
+         *
+         * @return The steady-state values in iteration order.
+         */
+        public double[] getSteadyValues() {
+            double[] steady = new double[values.length];
+            int count = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != 0 && !warmup[i] && !outlier[i]) steady[count++] = values[i];
+            }
+            return Arrays.copyOf(steady, count);
+        }
+
+        /**
+         * Lists the excluded iterations, numbered from 1 like the iteration log files, e.g. "1W;2W;17O"
+         * for two warm-up iterations and one outlier.
+         *
+         * @return The excluded iterations separated by ';', or an empty string.
+         */
+        public String getExcludedText() {
+            StringBuilder excluded = new StringBuilder();
+            for (int i = 0; i < values.length; i++) {
+                if (!warmup[i] && !outlier[i]) continue;
+                if (excluded.length() > 0) excluded.append(';');
+                excluded.append(i + 1).append(warmup[i] ? 'W' : 'O');
+            }
+            return excluded.toString();
+        }
+    }
+
+    /**
+     * Creates a filter.
+     *
+     * @param maxWarmup The most iterations at the start of a run that may be flagged as warm-up.
+     * @param threshold The modified z-score above which an iteration is flagged, e.g. 3.5.
+     */
+    public SteadyStateFilter(int maxWarmup, double threshold) {
+        this.maxWarmup = Math.max(0, maxWarmup);
+        this.threshold = threshold;
+    }
+
+    /**
+     * Flags the warm-up prefix of every run and the outliers of all runs.
+     *
+     * @param values        The values per iteration in iteration order, 0 for a missing iteration.
+     * @param segmentStarts The index at which each run starts when the values of several devices are concatenated,
+     *                      {0} for a single run.
+     * @return The flagged iterations.
+     */
+    public Result apply(double[] values, int[] segmentStarts) {
+        Result result = new Result(values);
+        for (int s = 0; s < segmentStarts.length; s++) {
+            int end = s + 1 < segmentStarts.length ? segmentStarts[s + 1] : values.length;
+            flagWarmup(values, segmentStarts[s], end, result);
+        }
+
+        double[] candidates = new double[values.length];
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != 0 && !result.warmup[i]) candidates[count++] = values[i];
+        }
+        double[] reference = Arrays.copyOf(candidates, count);
+        if (reference.length < MIN_REFERENCE_VALUES) return result;
+        double median = median(reference), mad = mad(reference, median);
+        if (mad == 0) return result;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != 0 && !result.warmup[i]
+                    && Math.abs(MAD_SCALE * (values[i] - median) / mad) > threshold) result.outlier[i] = true;
+        }
+        return result;
+    }
+
+    /**
+     * Flags the leading iterations of a run that lie well above the typical value of its later iterations.
+     * Flagging stops at the first iteration that looks like steady state.
+     */
+    private void flagWarmup(double[] values, int start, int end, Result result) {
+        int warmupEnd = Math.min(end, start + maxWarmup);
+        double[] later = Arrays.stream(values, warmupEnd, end).filter(a -> a != 0).toArray();
+        if (later.length < MIN_REFERENCE_VALUES) return;
+        double median = median(later), mad = mad(later, median);
+        if (mad == 0) return;
+        for (int i = start; i < warmupEnd; i++) {
+            if (values[i] == 0) continue;
+            if (MAD_SCALE * (values[i] - median) / mad <= threshold) break;
+            result.warmup[i] = true;
+        }
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int mid = sorted.length / 2;
+        return sorted.length % 2 == 0 ? (sorted[mid - 1] + sorted[mid]) / 2 : sorted[mid];
+    }
+
+    private static double mad(double[] values, double median) {
+        double[] deviations = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            deviations[i] = Math.abs(values[i] - median);
+        }
+        return median(deviations);
+    }
+}
@@ -0,0 +1,209 @@
+package dataFlow;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads and writes the JSON Lines records of the result files. Records are flat objects whose values are strings,
+ * numbers, booleans or null; numbers are read as {@link Double}.
+ */
+public final class JsonLines {
+
+    private JsonLines() {
+    }
+
+    /**
+     * Reads all records of a JSON Lines file, skipping blank lines.
+     *
+     * @param file The file to read.
+     * @return The records in file order.
+     * @throws IOException If the file cannot be read or holds a line that is not a flat JSON object.
+     */
+    public static List<Map<String, Object>> read(Path file) throws IOException {
+        List<Map<String, Object>> records = new ArrayList<>();
+        try (BufferedReader lines = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while ((line = lines.readLine()) != null) {
+                number++;
+                if (line.trim().isEmpty()) continue;
+                try {
+                    records.add(parse(line));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ":" + number + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Formats a record as one flat JSON object. Values are written as JSON numbers, booleans or strings;
+     * null and non-finite numbers become null.
+     *
+     * @param record The fields of the record, in the order they are written.
+     * @return The JSON object, without a line break.
+     */
+    public static String format(Map<String, ?> record) {
+        StringBuilder line = new StringBuilder("{");
+        for (Map.Entry<String, ?> field : record.entrySet()) {
+            if (line.length() > 1) line.append(',');
+            appendJsonString(line, field.getKey());
+            line.append(':');
+            appendJsonValue(line, field.getValue());
+        }
+        return line.append('}').toString();
+    }
+
+    /**
+     * Parses one flat JSON object.
+     *
+     * @param line The line holding the object.
+     * @return The fields of the object in their order.
+     * @throws IllegalArgumentException If the line is not a flat JSON object.
+     */
+    public static Map<String, Object> parse(String line) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        int[] at = {skipSpace(line, 0)};
+        expect(line, at, '{');
+        if (peek(line, at) == '}') return record;
+        while (true) {
+            String key = readString(line, at);
+            expect(line, at, ':');
+            record.put(key, readValue(line, at));
+            char next = peek(line, at);
+            at[0]++;
+            if (next == '}') return record;
+            if (next != ',') throw new IllegalArgumentException("Expected ',' or '}' at " + (at[0] - 1));
+        }
+    }
+
+    private static Object readValue(String line, int[] at) {
+        char c = peek(line, at);
+        if (c == '"') return readString(line, at);
+        int start = at[0];
+        while (at[0] < line.length() && ",} \t".indexOf(line.charAt(at[0])) < 0) at[0]++;
+        String token = line.substring(start, at[0]);
+        at[0] = skipSpace(line, at[0]);
+        switch (token) {
+            case "null":
+                return null;
+            case "true":
+                return Boolean.TRUE;
+            case "false":
+                return Boolean.FALSE;
+            default:
+                try {
+                    return Double.parseDouble(token);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Unexpected value '" + token + "' at " + start);
+                }
+        }
+    }
+
+    private static String readString(String line, int[] at) {
+        expect(line, at, '"');
+        StringBuilder value = new StringBuilder();
+        int i = at[0];
+        while (i < line.length() && line.charAt(i) != '"') {
+            char c = line.charAt(i++);
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (i >= line.length()) break;
+            char escaped = line.charAt(i++);
+            switch (escaped) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    value.append((char) Integer.parseInt(line.substring(i, i + 4), 16));
+                    i += 4;
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+        if (i >= line.length()) throw new IllegalArgumentException("Unterminated string at " + at[0]);
+        at[0] = skipSpace(line, i + 1);
+        return value.toString();
+    }
+
+    private static void expect(String line, int[] at, char expected) {
+        if (peek(line, at) != expected) throw new IllegalArgumentException("Expected '" + expected + "' at " + at[0]);
+        at[0] = skipSpace(line, at[0] + 1);
+    }
+
+    private static char peek(String line, int[] at) {
+        at[0] = skipSpace(line, at[0]);
+        if (at[0] >= line.length()) throw new IllegalArgumentException("Unexpected end of line");
+        return line.charAt(at[0]);
+    }
+
+    private static int skipSpace(String line, int at) {
+        while (at < line.length() && Character.isWhitespace(line.charAt(at))) at++;
+        return at;
+    }
+
+    private static void appendJsonValue(StringBuilder line, Object value) {
+        if (value == null) {
+            line.append("null");
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            line.append(Double.isFinite(number) ? String.valueOf(number) : "null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            line.append(value);
+        } else {
+            appendJsonString(line, value.toString());
+        }
+    }
+
+    private static void appendJsonString(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) line.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    else line.append(c);
+            }
+        }
+        line.append('"');
+    }
+}
@@ -0,0 +1,187 @@
+package dataFlow;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The aggregate result of one KPI run, as written to one row of the result CSV file
+ * and published on the {@link ResultBus}.
+ */
+public class KpiResult {
+
+    private final int kpiId;
+    private final String appPackage, appVersion, kpiType, metricsName, valuesPerIteration;
+    private final double average, tp50, tp90;
+    private final String deviceName, fireOSBuild, ramConsumed, cpuConsumed;
+    private final int iterations;
+    private final String date, failureReason, tp50Precision, tp90Precision;
+    private final double steadyTp50, steadyTp90;
+    private final String excludedIterations;
+
+    /**
+     * Creates a result.
+     *
+     * @param kpiId              The id of the KPI.
+     * @param appPackage         The package of the application tested.
+     * @param appVersion         The version of the application tested.
+     * @param kpiType            The type of test, e.g. "LATENCY".
+     * @param metricsName        The name of the performance metric, e.g. "Cool_FF".
+     * @param valuesPerIteration The values per iteration of the metric, e.g. "[812.0;790.0]".
+     * @param average            The average value of the metric.
+     * @param tp50               The 50th percentile value of the metric.
+     * @param tp90               The 90th percentile value of the metric.
+     * @param deviceName         The name of the test device.
+     * @param fireOSBuild        The Fire OS build of the test device.
+     * @param ramConsumed        The RAM consumed during the test, e.g. "310.5 MB".
+     * @param cpuConsumed        The CPU consumed during the test, e.g. "42.0%".
+     * @param iterations         The number of iterations executed.
+     * @param date               The execution date.
+     * @param failureReason      The failure reason, if any.
+     * @param tp50Precision      The width of the 95% confidence interval of TP50, e.g. "3.2%" or "NA".
+     * @param tp90Precision      The width of the 95% confidence interval of TP90, e.g. "6.5%" or "NA".
+     * @param steadyTp50         The 50th percentile without warm-up and outlier iterations, NaN if not computed.
+     * @param steadyTp90         The 90th percentile without warm-up and outlier iterations, NaN if not computed.
+     * @param excludedIterations The iterations left out of the steady-state percentiles, e.g. "1W;2W;17O".
+     */
+    public KpiResult(int kpiId, String appPackage, String appVersion, String kpiType, String metricsName,
+                     String valuesPerIteration, double average, double tp50, double tp90, String deviceName,
+                     String fireOSBuild, String ramConsumed, String cpuConsumed, int iterations, String date,
+                     String failureReason, String tp50Precision, String tp90Precision, double steadyTp50,
+                     double steadyTp90, String excludedIterations) {
+        this.kpiId = kpiId;
+        this.appPackage = appPackage;
+        this.appVersion = appVersion;
+        this.kpiType = kpiType;
+        this.metricsName = metricsName;
+        this.valuesPerIteration = valuesPerIteration;
+        this.average = average;
+        this.tp50 = tp50;
+        this.tp90 = tp90;
+        this.deviceName = deviceName;
+        this.fireOSBuild = fireOSBuild;
+        this.ramConsumed = ramConsumed;
+        this.cpuConsumed = cpuConsumed;
+        this.iterations = iterations;
+        this.date = date;
+        this.failureReason = failureReason;
+        this.tp50Precision = tp50Precision;
+        this.tp90Precision = tp90Precision;
+        this.steadyTp50 = steadyTp50;
+        this.steadyTp90 = steadyTp90;
+        this.excludedIterations = excludedIterations;
+    }
+
+    /**
+     * Returns the fields of the result in the column order of {@link commonUtils.ReadPaths#CSV_HEADERS}.
+     *
+     * @return The CSV fields.
+     */
+    public List<String> toCsvFields() {
+        return Arrays.asList(
+                String.valueOf(kpiId),
+                appPackage,
+                appVersion,
+                kpiType,
+                metricsName,
+                valuesPerIteration,
+                String.valueOf(average),
+                String.valueOf(tp50),
+                String.valueOf(tp90),
+                deviceName,
+                fireOSBuild,
+                ramConsumed,
+                cpuConsumed,
+                String.valueOf(iterations),
+                date,
+                failureReason,
+                tp50Precision,
+                tp90Precision,
+                Double.isNaN(steadyTp50) ? "NA" : String.valueOf(steadyTp50),
+                Double.isNaN(steadyTp90) ? "NA" : String.valueOf(steadyTp90),
+                excludedIterations);
+    }
+
+    public int getKpiId() {
+        return kpiId;
+    }
+
+    public String getAppPackage() {
+        return appPackage;
+    }
+
+    public String getAppVersion() {
+        return appVersion;
+    }
+
+    public String getKpiType() {
+        return kpiType;
+    }
+
+    public String getMetricsName() {
+        return metricsName;
+    }
+
+    public String getValuesPerIteration() {
+        return valuesPerIteration;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public double getTp50() {
+        return tp50;
+    }
+
+    public double getTp90() {
+        return tp90;
+    }
+
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    public String getFireOSBuild() {
+        return fireOSBuild;
+    }
+
+    public String getRamConsumed() {
+        return ramConsumed;
+    }
+
+    public String getCpuConsumed() {
+        return cpuConsumed;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public String getDate() {
+        return date;
+    }
+
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    public String getTp50Precision() {
+        return tp50Precision;
+    }
+
+    public String getTp90Precision() {
+        return tp90Precision;
+    }
+
+    public double getSteadyTp50() {
+        return steadyTp50;
+    }
+
+    public double getSteadyTp90() {
+        return steadyTp90;
+    }
+
+    public String getExcludedIterations() {
+        return excludedIterations;
+    }
+}
@@ -0,0 +1,55 @@
+package dataFlow;
+
+import org.apache.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process bus on which the latency runners publish every KPI result as it is written,
+ * so reporters receive results directly instead of reading them back from the result file.
+ * Every device run has its own bus, as its framework classes are loaded by its own class loader.
+ */
+public final class ResultBus {
+
+    private static final Logger log = Logger.getLogger(ResultBus.class.getSimpleName());
+    private static final List<Consumer<KpiResult>> SUBSCRIBERS = new CopyOnWriteArrayList<>();
+
+    private ResultBus() {
+    }
+
+    /**
+     * Registers a subscriber that receives every result published from now on.
+     *
+     * @param subscriber The subscriber.
+     */
+    public static void subscribe(Consumer<KpiResult> subscriber) {
+        SUBSCRIBERS.add(subscriber);
+    }
+
+    /**
+     * Removes a subscriber.
+     *
+     * @param subscriber The subscriber.
+     */
+    public static void unsubscribe(Consumer<KpiResult> subscriber) {
+        SUBSCRIBERS.remove(subscriber);
+    }
+
+    /**
+     * Hands a result to every subscriber on the calling thread.
+     * A failing subscriber is logged and does not keep the result from the others.
+     *
+     * @param result The result.
+     */
+    public static void publish(KpiResult result) {
+        for (Consumer<KpiResult> subscriber : SUBSCRIBERS) {
+            try {
+                subscriber.accept(result);
+            } catch (Exception e) {
+                log.error("Exception occurred while publishing " + result.getMetricsName() + " result: ", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package dataFlow;
+
+import org.apache.log4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only writer of the results of a run. The result files stay open for the whole run:
+ * aggregate rows go to the CSV file, properly escaped, and one JSON Lines record per iteration goes to a file
+ * next to it, so tools can read per-iteration data without parsing the joined values of the CSV row.
+ * Writes are buffered and only reach the disk on {@link #commit()}, which flushes and fsyncs both files.
+ */
+public class ResultSink {
+
+    private static final Logger log = Logger.getLogger(ResultSink.class.getSimpleName());
+    private static final Map<String, ResultSink> SINKS = new ConcurrentHashMap<>();
+
+    private final String csvPath;
+    private FileOutputStream csvFile, jsonFile;
+    private Writer csv, json;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ResultSink::closeAll));
+    }
+
+    private ResultSink(String csvPath) {
+        this.csvPath = csvPath;
+    }
+
+    /**
+     * Returns the sink appending to a result CSV file, opening it on first use.
+     *
+     * @param csvPath The path of the CSV file, which already holds its header.
+     * @return The sink of the file.
+     */
+    public static ResultSink forFile(String csvPath) {
+        return SINKS.computeIfAbsent(csvPath, ResultSink::new);
+    }
+
+    /**
+     * Returns the path of the JSON Lines file kept next to a result CSV file, e.g. kpi_values.jsonl.
+     *
+     * @param csvPath The path of the CSV file.
+     * @return The path of the JSON Lines file.
+     */
+    public static String jsonLinesPath(String csvPath) {
+        return (csvPath.endsWith(".csv") ? csvPath.substring(0, csvPath.length() - 4) : csvPath) + ".jsonl";
+    }
+
+    /**
+     * Closes the sink of a result file, e.g. before the file is recreated.
+     *
+     * @param csvPath The path of the CSV file.
+     */
+    public static void close(String csvPath) {
+        ResultSink sink = SINKS.remove(csvPath);
+        if (sink != null) sink.close();
+    }
+
+    /**
+     * Commits and closes all open sinks.
+     */
+    public static void closeAll() {
+        for (String csvPath : new ArrayList<>(SINKS.keySet())) {
+            close(csvPath);
+        }
+    }
+
+    /**
+     * Appends a row to the CSV file. Fields holding a delimiter, quote or line break are quoted.
+     * Like the header, the row ends with a delimiter.
+     *
+     * @param fields The fields of the row.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized void writeRow(List<String> fields) throws IOException {
+        open();
+        StringBuilder row = new StringBuilder();
+        for (String field : fields) {
+            appendCsvField(row, field);
+            row.append(',');
+        }
+        csv.write(row.append('\n').toString());
+    }
+
+    /**
+     * Appends a record to the JSON Lines file. Values are written as JSON numbers, booleans or strings;
+     * null and non-finite numbers become null.
+     *
+     * @param record The fields of the record, in the order they are written.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized void writeRecord(Map<String, ?> record) throws IOException {
+        open();
+        json.write(JsonLines.format(record) + "\n");
+    }
+
+    /**
+     * Flushes everything written so far and forces it to the disk.
+     *
+     * @throws IOException If the files cannot be written.
+     */
+    public synchronized void commit() throws IOException {
+        if (csv == null) return;
+        csv.flush();
+        json.flush();
+        csvFile.getFD().sync();
+        jsonFile.getFD().sync();
+    }
+
+    private void open() throws IOException {
+        if (csv != null) return;
+        csvFile = new FileOutputStream(csvPath, true);
+        jsonFile = new FileOutputStream(jsonLinesPath(csvPath), true);
+        csv = new BufferedWriter(new OutputStreamWriter(csvFile, StandardCharsets.UTF_8));
+        json = new BufferedWriter(new OutputStreamWriter(jsonFile, StandardCharsets.UTF_8));
+    }
+
+    private synchronized void close() {
+        try {
+            commit();
+        } catch (IOException e) {
+            log.error("Exception occurred while committing results to " + csvPath + ": ", e);
+        }
+        try {
+            if (csv != null) csv.close();
+            if (json != null) json.close();
+        } catch (IOException e) {
+            log.error("Exception occurred while closing " + csvPath + ": ", e);
+        }
+        csv = null;
+        json = null;
+    }
+
+    private static void appendCsvField(StringBuilder row, String field) {
+        if (field == null) return;
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            row.append(field);
+            return;
+        }
+        row.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') row.append('"');
+            row.append(c);
+        }
+        row.append('"');
+    }
+}
@@ -0,0 +1,227 @@
+package dataFlow;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Embedded, file-based store of the results of all runs, kept across runs for trend analysis.
+ * Every KPI run appends one JSON record to the current segment file (runs_1.jsonl, runs_2.jsonl, ...)
+ * and one line to an index that points to it, keyed by app package, app version, device model, Fire OS build
+ * and KPI. Queries filter the index, which is held in memory and only read for the lines added since the
+ * last query, and then read just the matching records, so a series out of tens of thousands of runs is
+ * returned in milliseconds.
+ * <p>
+ * Files are only ever appended to. A record is fsynced before its index line is written, so the index never
+ * points to a partial record; a lock file serializes appends of several processes. Device runs in one process
+ * share the store, as this class is loaded by the parent of the device class loaders.
+ */
+public class RunStore {
+
+    private static final Logger log = Logger.getLogger(RunStore.class.getSimpleName());
+    private static final Map<String, RunStore> STORES = new ConcurrentHashMap<>();
+    private static final long SEGMENT_BYTES = 32L * 1024 * 1024;
+    private static final String INDEX_FILE = "index.tsv", LOCK_FILE = "store.lock", SEGMENT_PREFIX = "runs_";
+
+    public static final String PACKAGE = "appPackage", VERSION = "appVersion", MODEL = "deviceModel",
+            FOS_BUILD = "fosBuild", KPI_ID = "kpiId", KPI = "kpi", TIMESTAMP = "timestamp";
+
+    private final Path directory;
+    private final List<Entry> entries = new ArrayList<>();
+    private long indexLength;
+
+    /**
+     * The index line of one stored run.
+     */
+    private static class Entry {
+        final String appPackage, appVersion, model, fosBuild, kpiId, kpi;
+        final long timestamp, offset;
+        final int segment, length;
+
+        Entry(String[] fields) {
+            appPackage = fields[0];
+            appVersion = fields[1];
+            model = fields[2];
+            fosBuild = fields[3];
+            kpiId = fields[4];
+            kpi = fields[5];
+            timestamp = Long.parseLong(fields[6]);
+            segment = Integer.parseInt(fields[7]);
+            offset = Long.parseLong(fields[8]);
+            length = Integer.parseInt(fields[9]);
+        }
+
+        boolean matches(Map<String, String> filter) {
+            return matches(filter.get(PACKAGE), appPackage) && matches(filter.get(VERSION), appVersion)
+                    && matches(filter.get(MODEL), model) && matches(filter.get(FOS_BUILD), fosBuild)
+                    && (matches(filter.get(KPI), kpi) || matches(filter.get(KPI), kpiId));
+        }
+
+        private static boolean matches(String wanted, String value) {
+            return wanted == null || wanted.equalsIgnoreCase(value);
+        }
+    }
+
+    private RunStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the store kept in a directory, creating the directory on the first append.
+     *
+     * @param directory The directory of the store.
+     * @return The store.
+     */
+    public static RunStore open(String directory) {
+        Path path = Paths.get(directory).toAbsolutePath().normalize();
+        return STORES.computeIfAbsent(path.toString(), key -> new RunStore(path));
+    }
+
+    /**
+     * Appends the record of a run. The record must hold the key fields {@link #PACKAGE}, {@link #VERSION},
+     * {@link #MODEL}, {@link #FOS_BUILD}, {@link #KPI_ID}, {@link #KPI} and {@link #TIMESTAMP}.
+     *
+     * @param record The fields of the run, in the order they are written.
+     * @throws IOException If the store cannot be written.
+     */
+    public synchronized void append(Map<String, ?> record) throws IOException {
+        String[] key = {text(record, PACKAGE), text(record, VERSION), text(record, MODEL), text(record, FOS_BUILD),
+                text(record, KPI_ID), text(record, KPI), text(record, TIMESTAMP)};
+        byte[] line = (JsonLines.format(record) + "\n").getBytes(StandardCharsets.UTF_8);
+        Files.createDirectories(directory);
+        try (FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+             FileLock ignored = lockChannel.lock()) {
+            int segment = currentSegment();
+            Path segmentFile = segmentFile(segment);
+            if (Files.exists(segmentFile) && Files.size(segmentFile) + line.length > SEGMENT_BYTES) {
+                segmentFile = segmentFile(++segment);
+            }
+            long offset;
+            try (FileChannel data = FileChannel.open(segmentFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                offset = data.size();
+                writeFully(data, offset, line);
+                data.force(true);
+            }
+            StringBuilder indexLine = new StringBuilder();
+            for (String field : key) indexLine.append(field).append('\t');
+            indexLine.append(segment).append('\t').append(offset).append('\t').append(line.length).append('\n');
+            try (FileChannel index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                writeFully(index, index.size(), indexLine.toString().getBytes(StandardCharsets.UTF_8));
+                index.force(true);
+            }
+        }
+    }
+
+    /**
+     * Returns the runs matching a filter, oldest first.
+     *
+     * @param filter The wanted values of {@link #PACKAGE}, {@link #VERSION}, {@link #MODEL}, {@link #FOS_BUILD}
+     *               and {@link #KPI} (a KPI name or id), compared ignoring case; absent keys match any value.
+     * @return The records of the matching runs.
+     * @throws IOException If the store cannot be read.
+     */
+    public synchronized List<Map<String, Object>> query(Map<String, String> filter) throws IOException {
+        refreshIndex();
+        List<Entry> matching = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.matches(filter)) matching.add(entry);
+        }
+        matching.sort(Comparator.comparingLong((Entry entry) -> entry.timestamp));
+
+        List<Map<String, Object>> runs = new ArrayList<>(matching.size());
+        Map<Integer, RandomAccessFile> segments = new HashMap<>();
+        try {
+            for (Entry entry : matching) {
+                RandomAccessFile segment = segments.get(entry.segment);
+                if (segment == null) {
+                    segment = new RandomAccessFile(segmentFile(entry.segment).toFile(), "r");
+                    segments.put(entry.segment, segment);
+                }
+                byte[] line = new byte[entry.length];
+                segment.seek(entry.offset);
+                segment.readFully(line);
+                runs.add(JsonLines.parse(new String(line, StandardCharsets.UTF_8)));
+            }
+        } finally {
+            for (RandomAccessFile segment : segments.values()) segment.close();
+        }
+        return runs;
+    }
+
+    /**
+     * Returns the number of runs in the store.
+     *
+     * @return The number of indexed runs.
+     * @throws IOException If the index cannot be read.
+     */
+    public synchronized int size() throws IOException {
+        refreshIndex();
+        return entries.size();
+    }
+
+    /**
+     * Reads the index lines appended since the last read, by this or another process.
+     */
+    private void refreshIndex() throws IOException {
+        File index = directory.resolve(INDEX_FILE).toFile();
+        if (!index.exists() || index.length() <= indexLength) return;
+        try (RandomAccessFile file = new RandomAccessFile(index, "r")) {
+            byte[] added = new byte[(int) (file.length() - indexLength)];
+            file.seek(indexLength);
+            file.readFully(added);
+            int start = 0;
+            for (int i = 0; i < added.length; i++) {
+                if (added[i] != '\n') continue;
+                String line = new String(added, start, i - start, StandardCharsets.UTF_8);
+                try {
+                    entries.add(new Entry(line.split("\t", -1)));
+                } catch (RuntimeException e) {
+                    log.warn("Skipping invalid line of " + index + ": " + line);
+                }
+                start = i + 1;
+            }
+            // A line still being written is read on the next refresh
+            indexLength += start;
+        }
+    }
+
+    private int currentSegment() {
+        int segment = 1;
+        while (Files.exists(segmentFile(segment + 1))) segment++;
+        return segment;
+    }
+
+    private Path segmentFile(int segment) {
+        return directory.resolve(SEGMENT_PREFIX + segment + ".jsonl");
+    }
+
+    private static void writeFully(FileChannel channel, long position, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+    }
+
+    private static String text(Map<String, ?> record, String key) {
+        Object value = record.get(key);
+        if (value == null) throw new IllegalArgumentException("Run record without " + key);
+        return value.toString().replace('\t', ' ').replace('\n', ' ');
+    }
+}
@@ -1,20 +1,16 @@
 package dataFlow;
 
+import commonUtils.AmStartResult;
 import commonUtils.CommonTools;
+import commonUtils.LaunchSampler;
+import commonUtils.MemoryProbe;
 import org.apache.log4j.Logger;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
 public class TestKpiDataWrite extends CommonTools {
     private final Logger log = Logger.getLogger(TestKpiDataWrite.class.getSimpleName());
-    File file = new File(kpi_values_csv);
-    FileWriter fileWriter;
-    final String COMMA_DELIMITER = ",";
-    final String NEW_LINE_SEPARATOR = "\n";
     public String date = new SimpleDateFormat("MM-dd-yyyy", Locale.ROOT).format(new Date());
 
     /**
@@ -41,52 +37,198 @@ public class TestKpiDataWrite extends CommonTools {
                            double average,
                            double tp50,
                            double tp90) {
-        try {
+        writeToCSV(DSN, appVersion, metricsName, valuesPerIteration, ramConsumed, cpuConsumed, iterations, average,
+                tp50, tp90, Double.NaN, Double.NaN, Double.NaN, Double.NaN, "NA");
+    }
 
+    /**
+     * Writes performance metrics data to a CSV file, publishes it on the {@link ResultBus} and appends it to the
+     * {@link RunStore} of past runs, including the precision achieved for TP50 and TP90
+     * and the TP50 and TP90 of the steady-state iterations.
+     *
+     * @param DSN                The Device Serial Number (DSN) identifying the target device.
+     * @param appVersion         The version of the application being tested.
+     * @param metricsName        The name of the performance metric being recorded.
+     * @param valuesPerIteration The values per iteration of the metric.
+     * @param ramConsumed        The RAM consumed during the test.
+     * @param cpuConsumed        The CPU consumed during the test.
+     * @param iterations         The number of iterations of the test.
+     * @param average            The average value of the metric.
+     * @param tp50               The 50th percentile value of the metric.
+     * @param tp90               The 90th percentile value of the metric.
+     * @param tp50Width          The width of the 95% confidence interval of TP50 in percent, NaN if unknown.
+     * @param tp90Width          The width of the 95% confidence interval of TP90 in percent, NaN if unknown.
+     * @param steadyTp50         The 50th percentile without warm-up and outlier iterations, NaN if not computed.
+     * @param steadyTp90         The 90th percentile without warm-up and outlier iterations, NaN if not computed.
+     * @param excludedIterations The iterations left out of the steady-state percentiles, e.g. "1W;2W;17O".
+     */
+    public void writeToCSV(String DSN,
+                           String appVersion,
+                           String metricsName,
+                           String valuesPerIteration,
+                           String ramConsumed,
+                           String cpuConsumed,
+                           int iterations,
+                           double average,
+                           double tp50,
+                           double tp90,
+                           double tp50Width,
+                           double tp90Width,
+                           double steadyTp50,
+                           double steadyTp90,
+                           String excludedIterations) {
+        try {
             String TestType = "LATENCY";
-
-            fileWriter = new FileWriter(file, true);
-            fileWriter.append(String.valueOf(getKpiId(metricsName)));
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(APP_PACKAGE_INPUT);
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(appVersion);
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(TestType);
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(metricsName);
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(valuesPerIteration);
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(String.valueOf(average));
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(String.valueOf(tp50));
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(String.valueOf(tp90));
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(getDeviceName(DSN));
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(getFireOSBuild(DSN));
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(ramConsumed);
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(cpuConsumed);
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(String.valueOf(iterations));
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(date);
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(APP_FAILURE_REASON);
-            fileWriter.append(COMMA_DELIMITER);
-            fileWriter.append(NEW_LINE_SEPARATOR);
+            KpiResult result = new KpiResult(getKpiId(metricsName), APP_PACKAGE_INPUT, appVersion, TestType,
+                    metricsName, valuesPerIteration, average, tp50, tp90, getDeviceName(DSN), getFireOSBuild(DSN),
+                    ramConsumed, cpuConsumed, iterations, date, APP_FAILURE_REASON, precisionText(tp50Width),
+                    precisionText(tp90Width), steadyTp50, steadyTp90, excludedIterations);
+            ResultSink sink = ResultSink.forFile(kpi_values_csv);
+            sink.writeRow(result.toCsvFields());
+            sink.commit();
+            ResultBus.publish(result);
+            archiveRun(DSN, result);
         } catch (Exception e) {
             log.error("Exception occurred while writing kpi data csv: ", e);
-        } finally {
-            try {
-                fileWriter.close();
-            } catch (IOException e) {
-                log.error("Exception occurred while writing kpi data csv: ", e);
+        }
+    }
+
+    /**
+     * Appends a result to the store of past runs, keyed by app package, app version, device model,
+     * Fire OS build and KPI.
+     *
+     * @param DSN    The Device Serial Number (DSN) identifying the target device.
+     * @param result The result of the KPI run.
+     */
+    private void archiveRun(String DSN, KpiResult result) {
+        try {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put(RunStore.TIMESTAMP, System.currentTimeMillis());
+            record.put("date", result.getDate());
+            record.put(RunStore.PACKAGE, result.getAppPackage());
+            record.put(RunStore.VERSION, result.getAppVersion());
+            record.put(RunStore.MODEL, getDeviceModelName(DSN));
+            record.put(RunStore.FOS_BUILD, result.getFireOSBuild());
+            record.put(RunStore.KPI_ID, result.getKpiId());
+            record.put(RunStore.KPI, result.getMetricsName());
+            record.put("kpiType", result.getKpiType());
+            record.put("device", result.getDeviceName());
+            record.put("dsn", DSN);
+            record.put("iterations", result.getIterations());
+            record.put("average", result.getAverage());
+            record.put("tp50", result.getTp50());
+            record.put("tp90", result.getTp90());
+            record.put("steadyTp50", result.getSteadyTp50());
+            record.put("steadyTp90", result.getSteadyTp90());
+            record.put("tp50Precision", result.getTp50Precision());
+            record.put("tp90Precision", result.getTp90Precision());
+            record.put("ramConsumed", result.getRamConsumed());
+            record.put("cpuConsumed", result.getCpuConsumed());
+            record.put("excludedIterations", result.getExcludedIterations());
+            record.put("failureReason", result.getFailureReason());
+            record.put("samples", result.getValuesPerIteration().replace("[", "").replace("]", ""));
+            RunStore.open(historyPath).append(record);
+        } catch (Exception e) {
+            log.error("Exception occurred while archiving " + result.getMetricsName() + " run: ", e);
+        }
+    }
+
+    /**
+     * Writes one JSON Lines record per iteration of a KPI next to the CSV file.
+     * Launch and displayed times are passed in seconds, as stored by the launch loops, and written in milliseconds.
+     * The records become durable with the aggregate row written by
+     * {@link #writeToCSV(String, String, String, String, String, String, int, double, double, double, double, double, double, double, String)}.
+     *
+     * @param DSN         The Device Serial Number (DSN) identifying the target device.
+     * @param appVersion  The version of the application being tested.
+     * @param metricsName The name of the performance metric being recorded.
+     * @param launchTimes The vitals launch time per iteration in seconds (the am start TotalTime of hot launches,
+     *                    the value of RTU and log marker KPIs), 0 if missing.
+     * @param displayed   The displayed time per iteration in seconds, 0 if missing.
+     * @param memory      The memory usage per iteration in MB (the peak RSS of sampled launches), 0 if missing.
+     * @param cpu         The CPU usage per iteration in percent (the peak app CPU usage of sampled launches),
+     *                    0 if missing.
+     * @param excluded    Why each iteration was left out of the steady-state percentiles ("warmup", "outlier"),
+     *                    null entries for kept iterations, or null if not computed.
+     * @param launches    The CPU and memory samples of each launch, null entries for iterations measured with
+     *                    dumpsys, or null if not sampled.
+     * @param snapshots   The memory snapshot of the app after each launch, null entries where none was read,
+     *                    or null if not read.
+     * @param starts      The launch times am start reported for each launch, null entries for iterations not
+     *                    launched with it, or null if not recorded.
+     */
+    public void writeIterations(String DSN,
+                                String appVersion,
+                                String metricsName,
+                                double[] launchTimes,
+                                double[] displayed,
+                                double[] memory,
+                                double[] cpu,
+                                String[] excluded,
+                                LaunchSampler.Window[] launches,
+                                MemoryProbe.Snapshot[] snapshots,
+                                AmStartResult[] starts) {
+        try {
+            ResultSink sink = ResultSink.forFile(kpi_values_csv);
+            String deviceName = getDeviceName(DSN), fireOSBuild = getFireOSBuild(DSN);
+            int kpiId = getKpiId(metricsName);
+            // Tells apart the records of runs of the same KPI on the same device and day
+            long runTimestamp = System.currentTimeMillis();
+            for (int i = 0; i < launchTimes.length; i++) {
+                Map<String, Object> record = new LinkedHashMap<>();
+                record.put("kpiId", kpiId);
+                record.put("kpi", metricsName);
+                record.put("appPackage", APP_PACKAGE_INPUT);
+                record.put("appVersion", appVersion);
+                record.put("device", deviceName);
+                record.put("dsn", DSN);
+                record.put("fosBuild", fireOSBuild);
+                record.put("date", date);
+                record.put("runTimestamp", runTimestamp);
+                record.put("iteration", i + 1);
+                record.put("launchTimeMs", millisOrNull(launchTimes, i));
+                record.put("displayedTimeMs", millisOrNull(displayed, i));
+                record.put("memoryMb", valueOrNull(memory, i));
+                record.put("cpuPercent", valueOrNull(cpu, i));
+                record.put("excluded", excluded == null ? null : excluded[i]);
+                LaunchSampler.Window launch = launches == null ? null : launches[i];
+                if (launch != null) {
+                    record.put("cpuMeanPercent", launch.getCpuMean());
+                    record.put("deviceCpuPeakPercent", launch.getDeviceCpuPeak());
+                    record.put("memoryMeanMb", launch.getRssMeanMb());
+                    record.put("launchSamples", launch.size());
+                }
+                MemoryProbe.Snapshot snapshot = snapshots == null ? null : snapshots[i];
+                if (snapshot != null) {
+                    record.put("pssMb", snapshot.getPssMb());
+                    record.put("rssMb", snapshot.getRssMb());
+                    record.put("swapMb", snapshot.getSwapMb());
+                    record.put("memorySource", snapshot.getSource());
+                    record.put("memoryKb", snapshot.getCategoriesText());
+                }
+                AmStartResult start = starts == null ? null : starts[i];
+                if (start != null) {
+                    record.put("thisTimeMs", start.getThisTime() == 0 ? null : start.getThisTime());
+                    record.put("totalTimeMs", start.getTotalTime());
+                    record.put("waitTimeMs", start.getWaitTime() == 0 ? null : start.getWaitTime());
+                    record.put("launchState", start.getLaunchState());
+                }
+                sink.writeRecord(record);
             }
+        } catch (Exception e) {
+            log.error("Exception occurred while writing kpi iteration records: ", e);
         }
     }
+
+    private static Double valueOrNull(double[] values, int index) {
+        return index < values.length && values[index] != 0 ? values[index] : null;
+    }
+
+    /**
+     * Returns a value in seconds as milliseconds, rounded to the microsecond to drop the error of the conversion.
+     */
+    private static Double millisOrNull(double[] seconds, int index) {
+        Double value = valueOrNull(seconds, index);
+        return value == null ? null : Math.round(value * 1000000) / 1000.0;
+    }
 }
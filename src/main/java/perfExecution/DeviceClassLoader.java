@@ -0,0 +1,63 @@
+package perfExecution;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class loader giving one device run its own copy of the framework classes.
+ * The framework keeps the state of a run (DSN, device name, app version, failure reason, metrics arrays,
+ * device caches) in static fields, so every device loads the framework packages child-first from the
+ * application class path and thereby gets an isolated per-device context.
+ * Libraries (TestNG, log4j, Extent Reports, ...) are still shared through the parent loader,
+ * as are the few framework classes that coordinate device runs, such as {@link commonUtils.ShardGroup},
+ * or guard files written by all of them, such as {@link dataFlow.RunStore}.
+ */
+public class DeviceClassLoader extends URLClassLoader {
+
+    private static final String[] ISOLATED_PACKAGES = {"commonUtils.", "dataFlow.", "perfExecution.",
+            "perfTVKpis.", "perfTabKpis.", "testReporter.", "testUtils."};
+    private static final String[] SHARED_CLASSES = {"commonUtils.ShardGroup", "dataFlow.RunStore"};
+
+    /**
+     * Creates a loader over the class path of the running application.
+     *
+     * @param parent The loader that serves the shared library classes.
+     * @throws MalformedURLException If an entry of the class path is not a valid location.
+     */
+    public DeviceClassLoader(ClassLoader parent) throws MalformedURLException {
+        super(classPath(), parent);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!isIsolated(name)) return super.loadClass(name, resolve);
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) loaded = findClass(name);
+            if (resolve) resolveClass(loaded);
+            return loaded;
+        }
+    }
+
+    private static boolean isIsolated(String name) {
+        for (String shared : SHARED_CLASSES) {
+            if (name.equals(shared) || name.startsWith(shared + "$")) return false;
+        }
+        for (String isolated : ISOLATED_PACKAGES) {
+            if (name.startsWith(isolated)) return true;
+        }
+        return false;
+    }
+
+    private static URL[] classPath() throws MalformedURLException {
+        List<URL> urls = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (!entry.isEmpty()) urls.add(new File(entry).toURI().toURL());
+        }
+        return urls.toArray(new URL[0]);
+    }
+}
@@ -7,67 +7,215 @@ import commonUtils.CreateDataFiles;
 import commonUtils.ReadPaths;
 
 import commonUtils.Assertion;
+import commonUtils.ShardGroup;
 import dataFlow.CreateTestSuite;
 import org.apache.log4j.Logger;
+import testReporter.OfflineReport;
+import testReporter.RegressionCheck;
+import testReporter.RunHistory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class TestExecutor {
     static long startTime, endTime;
 
     public static final Logger log = Logger.getLogger(TestExecutor.class.getSimpleName());
     public static String KpiType = null, DSN = null;
+    private static final String SHARD_OPTION = "--shard";
+    private static final String REPORT_COMMAND = "report";
+    private static final String HISTORY_COMMAND = "history";
+    private static final String COMPARE_COMMAND = "compare";
+    private static final int COMPARE_ERROR_STATUS = 2;
 
     /**
      * The main entry point of the PerfTesting application.
      *
      * @param args The command-line arguments passed to the application. The first argument should be the KPI type
-     *             and the second argument should be the Device Serial Number (DSN).
+     *             and the following arguments the Device Serial Numbers (DSN) of the devices to test,
+     *             either as separate arguments or comma separated. With the {@code --shard} option the
+     *             iterations of each KPI are split across the devices instead of every device running all of them.
+     *             With {@code report} as the first argument no test runs; an offline report is rendered from the
+     *             stored results in the following files or directories, or in the output directory.
+     *             With {@code history} as the first argument the past runs matching the following
+     *             {@code key=value} filters are printed from the store of past runs.
+     *             With {@code compare} as the first argument the {@code baseline=} and {@code candidate=} app versions
+     *             are compared; the process exits with status 1 if a KPI regressed and with status
+     *             {@value #COMPARE_ERROR_STATUS} if the versions could not be compared.
      */
     public static void main(String[] args) {
         try {
             startTime = System.currentTimeMillis();
 
-            KpiType = args[0].trim();
-            DSN = args[1].trim();
+            if (args[0].trim().equalsIgnoreCase(REPORT_COMMAND)) {
+                new OfflineReport().generate(Arrays.asList(args).subList(1, args.length));
+                return;
+            }
+            if (args[0].trim().equalsIgnoreCase(HISTORY_COMMAND)) {
+                new RunHistory().print(Arrays.asList(args).subList(1, args.length), System.out);
+                return;
+            }
+            if (args[0].trim().equalsIgnoreCase(COMPARE_COMMAND)) {
+                int regressions;
+                try {
+                    regressions = new RegressionCheck().compare(Arrays.asList(args).subList(1, args.length),
+                            System.out);
+                } catch (Exception e) {
+                    // A gate that cannot compare must not pass
+                    log.error("Exception Occurred while comparing app versions: ", e);
+                    System.exit(COMPARE_ERROR_STATUS);
+                    return;
+                }
+                if (regressions > 0) System.exit(1);
+                return;
+            }
 
-            DeviceTools deviceTools = new DeviceTools();
+            KpiType = args[0].trim();
+            boolean shard = Arrays.asList(args).contains(SHARD_OPTION);
+            List<String> devices = parseDevices(args);
 
             log.info("PerfTesting Version - 1.0");
             log.info("Test Parameters - ");
             log.info("KPI TYPE: " + KpiType);
-            log.info("DSN: " + DSN);
+            log.info("DSN: " + String.join(", ", devices));
 
+            if (devices.size() == 1) {
+                runDevice(KpiType, devices.get(0), true);
+            } else {
+                if (shard) createShardGroup(devices);
+                runDevicesInParallel(KpiType, devices);
+            }
 
-            if (deviceTools.validateDevice(DSN) && deviceTools.validateTestType(KpiType)) {
-                CommonTools commonTools = new CommonTools();
-                CreateDataFiles dataFiles = new CreateDataFiles();
-                CreateTestSuite testSuite = new CreateTestSuite();
+            endTime = System.currentTimeMillis();
+
+            int totalTime = (int) ((endTime - startTime) / 1000);
+            log.info("Total Test Execution Time: " + totalTime + " seconds");
+        } catch (Exception e) {
+            log.error("Exception Occurred while executing Test Executor class: ", e);
+        }
+    }
+
+    /**
+     * Runs the test suite for a single device in the current class loader.
+     *
+     * @param kpiType       The KPI type to execute.
+     * @param dsn           The Device Serial Number (DSN) of the device.
+     * @param cleanOutputs  Whether the output directories are cleaned first; false when other devices share them.
+     */
+    public static void runDevice(String kpiType, String dsn, boolean cleanOutputs) {
+        KpiType = kpiType;
+        DSN = dsn;
+        DeviceTools deviceTools = new DeviceTools();
+
+        if (deviceTools.validateDevice(DSN) && deviceTools.validateTestType(KpiType)) {
+            CommonTools commonTools = new CommonTools();
+            CreateDataFiles dataFiles = new CreateDataFiles();
+            CreateTestSuite testSuite = new CreateTestSuite();
 
 
-                commonTools.testInitiate();
-                dataFiles.createCsvFile(deviceTools.kpi_values_csv);
+            if (cleanOutputs) commonTools.testInitiate();
+            dataFiles.createCsvFile(deviceTools.kpi_values_csv);
 
-                String kpi = KpiType;
-                log.info("Found KPI Type as: " + kpi + " in config");
+            String kpi = KpiType;
+            log.info("Found KPI Type as: " + kpi + " in config");
+
+            if (ReadPaths.DEVICE_TYPE.equals(ReadPaths.TABLET)) {
+                log.info("Creating & Executing XML Suite for Tablet");
+                testSuite.createXMLFile(KpiType, DSN);
+            } else if (ReadPaths.DEVICE_TYPE.equals(ReadPaths.FTV)) {
+                log.info("Creating & Executing XML Suite for FTV");
+                testSuite.createXMLFile(KpiType, DSN);
+            }
+        } else {
+            log.error(DeviceTools.APP_FAILURE_REASON);
+            Assertion.fail(DeviceTools.APP_FAILURE_REASON);
+        }
+    }
 
-                if (ReadPaths.DEVICE_TYPE.equals(ReadPaths.TABLET)) {
-                    log.info("Creating & Executing XML Suite for Tablet");
-                    testSuite.createXMLFile(KpiType, DSN);
-                } else if (ReadPaths.DEVICE_TYPE.equals(ReadPaths.FTV)) {
-                    log.info("Creating & Executing XML Suite for FTV");
-                    testSuite.createXMLFile(KpiType, DSN);
+    /**
+     * Runs the test suite on several devices at once, each on its own thread.
+     * Every device gets its own {@link DeviceClassLoader}, so the framework state of one device run
+     * (paths, metrics arrays, failure reason, caches) is never seen by another, and its own output tag,
+     * so it writes its own CSV file, suite XML and report. The output directories are cleaned once up front.
+     *
+     * @param kpiType The KPI type to execute.
+     * @param devices The Device Serial Numbers (DSN) of the devices.
+     * @throws InterruptedException If interrupted while waiting for the device runs.
+     */
+    private static void runDevicesInParallel(String kpiType, List<String> devices) throws InterruptedException {
+        new CommonTools().testInitiate();
+        List<Thread> runs = new ArrayList<>();
+        for (String device : devices) {
+            Thread run = new Thread(() -> {
+                try {
+                    // Kept open for the lifetime of the process; shutdown hooks of the device run still load from it
+                    DeviceClassLoader loader = new DeviceClassLoader(TestExecutor.class.getClassLoader());
+                    Thread.currentThread().setContextClassLoader(loader);
+                    loader.loadClass(ReadPaths.class.getName()).getField("OUTPUT_TAG")
+                            .set(null, device.replaceAll("[^A-Za-z0-9._-]", "_"));
+                    loader.loadClass(TestExecutor.class.getName())
+                            .getMethod("runDevice", String.class, String.class, boolean.class)
+                            .invoke(null, kpiType, device, false);
+                } catch (Exception e) {
+                    log.error("Exception Occurred while executing tests on device " + device + ": ", e);
+                } finally {
+                    ShardGroup shards = ShardGroup.forDevice(device);
+                    if (shards != null) shards.finish(device);
                 }
+            }, "device-" + device);
+            run.start();
+            runs.add(run);
+            log.info("Started test execution on device: " + device);
+        }
+        for (Thread run : runs) {
+            run.join();
+        }
+    }
 
-                endTime = System.currentTimeMillis();
+    /**
+     * Splits the configured iterations of each KPI across the devices, which then report one merged result.
+     * Sharding only gives comparable numbers on identical hardware, so it is skipped with an error
+     * when the devices are not all of the same model.
+     *
+     * @param devices The Device Serial Numbers (DSN) of the devices, the first one reporting the merged result.
+     */
+    private static void createShardGroup(List<String> devices) {
+        DeviceTools deviceTools = new DeviceTools();
+        String model = deviceTools.getDeviceModelName(devices.get(0));
+        for (String device : devices) {
+            String deviceModel = deviceTools.getDeviceModelName(device);
+            if (model == null || "NA".equals(model) || !model.equals(deviceModel)) {
+                log.error("Not sharding iterations: device " + device + " is a " + deviceModel + ", expected " + model
+                        + "; every device runs all iterations");
+                return;
+            }
+        }
+        int iterations = Integer.parseInt(deviceTools.prop.getProperty("latencyIterations").trim());
+        long timeout = Long.parseLong(deviceTools.prop.getProperty("timeout").trim());
+        ShardGroup shards = ShardGroup.create(devices, iterations, timeout);
+        for (String device : devices) {
+            log.info("Device " + device + " runs " + shards.iterationsFor(device) + " of " + iterations + " iterations"
+                    + (shards.isLeader(device) ? " and reports the merged result" : ""));
+        }
+    }
 
-                int totalTime = (int) ((endTime - startTime) / 1000);
-                log.info("Total Test Execution Time: " + totalTime + " seconds");
-            } else {
-                log.error(DeviceTools.APP_FAILURE_REASON);
-                Assertion.fail(DeviceTools.APP_FAILURE_REASON);
+    /**
+     * Reads the device serial numbers following the KPI type, accepting separate or comma separated values.
+     *
+     * @param args The command-line arguments.
+     * @return The distinct device serial numbers in the given order.
+     */
+    private static List<String> parseDevices(String[] args) {
+        List<String> devices = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].trim().equals(SHARD_OPTION)) continue;
+            for (String device : args[i].split(",")) {
+                if (!device.trim().isEmpty() && !devices.contains(device.trim())) devices.add(device.trim());
             }
-        } catch (Exception e) {
-            log.error("Exception Occurred while executing Test Executor class: ", e);
         }
+        if (devices.isEmpty()) throw new IllegalArgumentException("No device serial number (DSN) given");
+        return devices;
     }
 
-}
\ No newline at end of file
+}
@@ -1,6 +1,11 @@
 package perfTVKpis.LatencyTestTV;
 
+import commonUtils.AmStartResult;
 import commonUtils.CommonTools;
+import commonUtils.IterationPipeline;
+import commonUtils.LaunchMarkers;
+import commonUtils.LaunchSampler;
+import commonUtils.MemoryProbe;
 import org.apache.log4j.Logger;
 
 import java.io.File;
@@ -9,10 +14,10 @@ public class LatencyRead extends CommonTools {
     Logger log = Logger.getLogger(LatencyRead.class.getSimpleName());
 
     /**
-     * Captures latency for the specified type (cool or warm launch) on the given device.
+     * Captures latency for the specified type (cool, warm or hot launch) on the given device.
      *
      * @param DSN         The Device Serial Number (DSN) identifying the target device.
-     * @param latencyType The type of latency to capture ("Cool" or "Warm" launch).
+     * @param latencyType The type of latency to capture ("Cool", "Warm" or "Hot" launch).
      * @param appPackage  The package name of the app for which latency is being captured.
      * @param appIntent   The intent used to launch the app.
      * @return The tp50 latency value captured during the test.
@@ -23,6 +28,8 @@ public class LatencyRead extends CommonTools {
                 executeCoolLaunch(DSN, appPackage, DEVICE_NAME, COOL_APP_FF, appIntent);
             } else if (latencyType.equalsIgnoreCase(WARM_APP_FF)) {
                 executeWarmLaunch(DSN, appPackage, DEVICE_NAME, WARM_APP_FF, appIntent);
+            } else if (latencyType.equalsIgnoreCase(HOT_APP_FF)) {
+                executeHotLaunch(DSN, appPackage, DEVICE_NAME, HOT_APP_FF, appIntent);
             }
             writeLatencyValues(APP_VERSION, DSN, latencyType);
             log.info(DEVICE_NAME + ": Latency Test Execution Completed");
@@ -47,30 +54,49 @@ public class LatencyRead extends CommonTools {
             log.info("------------------------ Cool KPI Measurement -----------------------");
             log.info(deviceName + ": Starting capture for " + iterations + " iterations and wait of " + waitTime
                     + "s/iteration");
-            for (int i = 0; i < iterations; i++) {
-                try {
-                    File adbLogFile = new File(adbLogs + appPackage + "_" + DEVICE_NAME + "_" + "Loop_" + (i + 1)
-                            + "_" + metricsName + "_ADB.txt");
-                    launchApp(appPackage, appIntent);
-                    waitInSec(waitTime);
-                    timerArr[i] = performanceCoolLaunchLogCapture(appPackage, DSN);
-
-                    cpuConsumption = getCpuConsumption(DSN).split("%")[0];
-                    memConsumption = getApp_Memory_Usage(DSN, appPackage).trim();
-                    memUsage[i] = Double.parseDouble(memConsumption);
-                    cpuUsage[i] = Double.parseDouble(cpuConsumption);
-
-                    forceStopApp(DSN, appPackage);
-                    waitInSec(waitTime);
-
-                    getApp_ADBLogsFile(adbLogFile, DSN);
-                    displayedArr[i] = getFFDisplayedValue(DSN, appPackage, adbLogFile);
-
-                    clearLogcatBuffer(DSN);
-                    clearLogcatVitals(DSN);
-                } catch (Exception e) {
-                    APP_FAILURE_REASON = "Error Occurred while Executing Cool Launch";
-                    log.error(APP_FAILURE_REASON + ": ", e);
+            try (IterationPipeline pipeline = newIterationPipeline()) {
+                for (int i = 0; nextIteration(i); i++) {
+                    try {
+                        File adbLogFile = iterationLogFile(DSN, appPackage, "Loop_" + (i + 1), metricsName);
+                        startIterationLogs(DSN);
+                        LaunchSampler sampler = startLaunchSampler(DSN, appPackage);
+                        AmStartResult start = launchIteration(DSN, appPackage, appIntent);
+                        waitForLaunch(DSN, appPackage, waitTime);
+                        waitForLaunchEnd(DSN, appPackage, true);
+                        byte[] vitalsLogs = captureVitalsLogs(DSN);
+
+                        LaunchSampler.Window window = stopLaunchSampler(sampler);
+                        String cpu = window == null ? getCpuConsumption(DSN) : null;
+                        MemoryProbe.Snapshot memory = probeMemory(DSN, appPackage);
+
+                        forceStopApp(DSN, appPackage, waitTime);
+                        byte[] iterationLogs = captureIterationLogs(DSN);
+
+                        int index = i;
+                        pipeline.submit("Error Occurred while Executing Cool Launch: ", () -> {
+                            try {
+                                timerArr[index] = performanceCoolLaunchLogCapture(
+                                        extractMarkers(appPackage, appIntent, vitalsLogs));
+
+                                writeIterationLogs(adbLogFile, iterationLogs);
+                                LaunchMarkers markers = extractMarkers(appPackage, appIntent, iterationLogs);
+                                displayedArr[index] = getDisplayedValue(appPackage, markers);
+                                fullyDrawnArr[index] = getRTUValue(appPackage, "value", markers);
+                                recordAmStart(index, start);
+                                recordLogMarkers(index, appPackage, iterationLogs);
+                                recordResources(index, window, cpu, memory, adbLogFile);
+                                updatePrecision();
+                            } catch (Exception e) {
+                                APP_FAILURE_REASON = "Error Occurred while Executing Cool Launch";
+                                throw e;
+                            }
+                        });
+
+                        clearIterationLogs(DSN);
+                    } catch (Exception e) {
+                        APP_FAILURE_REASON = "Error Occurred while Executing Cool Launch";
+                        log.error(APP_FAILURE_REASON + ": ", e);
+                    }
                 }
             }
         } else {
@@ -95,32 +121,53 @@ public class LatencyRead extends CommonTools {
             log.info("------------------------ Warm KPI Measurement -----------------------");
             log.info(deviceName + ": Starting capture for " + iterations + " iterations and wait of " +
                     waitTime + "s/iteration");
-            for (int i = 0; i < iterations; i++) {
-                try {
-                    File adbLogFile = new File(adbLogs + appPackage + "_" + DEVICE_NAME + "_"
-                            + "Loop_" + (i + 1) + "_" + metricsName + "_ADB.txt");
-                    log.info("Loop: " + (i + 1));
-                    launchApp(appPackage, appIntent);
-                    waitInSec(waitTime);
-                    timerArr[i] = performanceWarmLaunchLogCapture(appPackage, DSN);
-
-                    cpuConsumption = getCpuConsumption(DSN).split("%")[0];
-                    memConsumption = getApp_Memory_Usage(DSN, appPackage).trim();
-                    memUsage[i] = Double.parseDouble(memConsumption);
-                    cpuUsage[i] = Double.parseDouble(cpuConsumption);
-
-                    getApp_ADBLogsFile(adbLogFile, DSN);
-                    displayedArr[i] = getFFDisplayedValue(DSN, appPackage, adbLogFile);
-                    goHome(DSN);
-
-                    clearLogcatVitals(DSN);
-                    clearLogcatBuffer(DSN);
-                    waitInSec(waitTime);
-                } catch (Exception e) {
-                    APP_FAILURE_REASON = "Exception Occurred While Executing Warm Launch";
-                    log.error(APP_FAILURE_REASON + ": " + e);
-                }
+            try (IterationPipeline pipeline = newIterationPipeline()) {
+                for (int i = 0; nextIteration(i); i++) {
+                    try {
+                        File adbLogFile = iterationLogFile(DSN, appPackage, "Loop_" + (i + 1), metricsName);
+                        log.info("Loop: " + (i + 1));
+                        startIterationLogs(DSN);
+                        LaunchSampler sampler = startLaunchSampler(DSN, appPackage);
+                        AmStartResult start = launchIteration(DSN, appPackage, appIntent);
+                        waitForLaunch(DSN, appPackage, waitTime);
+                        waitForLaunchEnd(DSN, appPackage, true);
+                        byte[] vitalsLogs = captureVitalsLogs(DSN);
+
+                        LaunchSampler.Window window = stopLaunchSampler(sampler);
+                        String cpu = window == null ? getCpuConsumption(DSN) : null;
+                        MemoryProbe.Snapshot memory = probeMemory(DSN, appPackage);
+
+                        byte[] iterationLogs = captureIterationLogs(DSN);
+                        goHome(DSN);
+
+                        int index = i;
+                        pipeline.submit("Exception Occurred While Executing Warm Launch: ", () -> {
+                            try {
+                                timerArr[index] = performanceWarmLaunchLogCapture(
+                                        extractMarkers(appPackage, appIntent, vitalsLogs));
+
+                                writeIterationLogs(adbLogFile, iterationLogs);
+                                LaunchMarkers markers = extractMarkers(appPackage, appIntent, iterationLogs);
+                                displayedArr[index] = getDisplayedValue(appPackage, markers);
+                                fullyDrawnArr[index] = getRTUValue(appPackage, "value", markers);
+                                recordAmStart(index, start);
+                                recordLogMarkers(index, appPackage, iterationLogs);
+                                recordResources(index, window, cpu, memory, adbLogFile);
+                                updatePrecision();
+                            } catch (Exception e) {
+                                APP_FAILURE_REASON = "Exception Occurred While Executing Warm Launch";
+                                throw e;
+                            }
+                        });
+
+                        clearIterationLogs(DSN);
+                        waitForAppBackground(DSN, appPackage, waitTime);
+                    } catch (Exception e) {
+                        APP_FAILURE_REASON = "Exception Occurred While Executing Warm Launch";
+                        log.error(APP_FAILURE_REASON + ": " + e);
+                    }
 
+                }
             }
             forceStopApp(DSN, appPackage);
         } else {
@@ -129,5 +176,75 @@ public class LatencyRead extends CommonTools {
         }
     }
 
+    /**
+     * Executes the hot launch performance measurement for the specified app on the given device.
+     * The app is kept in memory with its activity in the background; every iteration brings it back to the
+     * foreground with am start-activity -W and takes the TotalTime the activity manager reports as launch time.
+     *
+     * @param DSN         The Device Serial Number (DSN) identifying the target device.
+     * @param appPackage  The package name of the app for which the hot launch is being measured.
+     * @param deviceName  The name of the device where the measurement is being executed.
+     * @param metricsName The name of the performance metric being captured (e.g., "Hot App FF").
+     * @param appIntent   The intent used to launch the app.
+     */
+    public void executeHotLaunch(String DSN, String appPackage, String deviceName,
+                                 String metricsName, String appIntent) {
+        emptyExistingArray();
+        if (executeFirstColdLaunch(DSN, metricsName, appPackage, appIntent)) {
+            log.info("------------------------ Hot KPI Measurement -----------------------");
+            log.info(deviceName + ": Starting capture for " + iterations + " iterations and wait of " +
+                    waitTime + "s/iteration");
+            try (IterationPipeline pipeline = newIterationPipeline()) {
+                for (int i = 0; nextIteration(i); i++) {
+                    try {
+                        File adbLogFile = iterationLogFile(DSN, appPackage, "Loop_" + (i + 1), metricsName);
+                        log.info("Loop: " + (i + 1));
+                        startIterationLogs(DSN);
+                        LaunchSampler sampler = startLaunchSampler(DSN, appPackage);
+                        // am start -W returns once the launch has been drawn
+                        AmStartResult start = launchAppUsingAmStart(DSN, appIntent, true);
+                        if (start == null) waitForLaunch(DSN, appPackage, waitTime);
+                        waitForLaunchEnd(DSN, appPackage, false);
+
+                        LaunchSampler.Window window = stopLaunchSampler(sampler);
+                        String cpu = window == null ? getCpuConsumption(DSN) : null;
+                        MemoryProbe.Snapshot memory = probeMemory(DSN, appPackage);
+
+                        byte[] iterationLogs = captureIterationLogs(DSN);
+                        goHome(DSN);
+
+                        int index = i;
+                        pipeline.submit("Exception Occurred While Executing Hot Launch: ", () -> {
+                            try {
+                                timerArr[index] = getHotLaunchTimer(start);
+
+                                writeIterationLogs(adbLogFile, iterationLogs);
+                                displayedArr[index] = getDisplayedValue(appPackage,
+                                        extractMarkers(appPackage, appIntent, iterationLogs));
+                                recordAmStart(index, start);
+                                recordLogMarkers(index, appPackage, iterationLogs);
+                                recordResources(index, window, cpu, memory, adbLogFile);
+                                updatePrecision();
+                            } catch (Exception e) {
+                                APP_FAILURE_REASON = "Exception Occurred While Executing Hot Launch";
+                                throw e;
+                            }
+                        });
+
+                        clearIterationLogs(DSN);
+                        waitForAppBackground(DSN, appPackage, waitTime);
+                    } catch (Exception e) {
+                        APP_FAILURE_REASON = "Exception Occurred While Executing Hot Launch";
+                        log.error(APP_FAILURE_REASON + ": " + e);
+                    }
+
+                }
+            }
+            forceStopApp(DSN, appPackage);
+        } else {
+            APP_FAILURE_REASON = "Error Occurred while performing pre launch test";
+            log.error(APP_FAILURE_REASON);
+        }
+    }
 
 }
\ No newline at end of file
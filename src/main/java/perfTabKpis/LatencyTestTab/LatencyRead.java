@@ -1,6 +1,11 @@
 package perfTabKpis.LatencyTestTab;
 
+import commonUtils.AmStartResult;
 import commonUtils.CommonTools;
+import commonUtils.IterationPipeline;
+import commonUtils.LaunchMarkers;
+import commonUtils.LaunchSampler;
+import commonUtils.MemoryProbe;
 import org.apache.log4j.Logger;
 
 import java.io.File;
@@ -12,7 +17,7 @@ public class LatencyRead extends CommonTools {
     /**
      * Captures latency data for the specified type of launch.
      *
-     * @param latencyType The type of latency to capture (e.g., "Cool" or "Warm" launch).
+     * @param latencyType The type of latency to capture (e.g., "Cool", "Warm" or "Hot" launch).
      * @param DSN         The Device Serial Number (DSN) identifying the target device.
      * @param appPackage  The package name of the application being launched.
      * @param appIntent   The intent of the application being launched.
@@ -29,6 +34,8 @@ public class LatencyRead extends CommonTools {
                 executeCoolLaunch(deviceName, DSN, appPackage, COOL_APP_FF, appIntent);
             } else if (latencyType.equalsIgnoreCase(WARM_APP_FF)) {
                 executeWarmLaunch(deviceName, DSN, appPackage, WARM_APP_FF, appIntent);
+            } else if (latencyType.equalsIgnoreCase(HOT_APP_FF)) {
+                executeHotLaunch(deviceName, DSN, appPackage, HOT_APP_FF, appIntent);
             }
             writeLatencyValues(APP_VERSION, DSN, latencyType);
         } catch (Exception e) {
@@ -52,30 +59,41 @@ public class LatencyRead extends CommonTools {
                 log.info("------------------------ Cool KPI Measurement -----------------------");
                 log.info(deviceName + ": Starting capture for " + iterations + " iterations");
 
-                for (int i = 0; i < iterations; i++) {
-                    try {
-                        File adbLogFile = new File(adbLogs + appPackage + "_" + DEVICE_NAME + "_" + "Loop_"
-                                + (i + 1) + "_" + metricsName + "_ADB.txt");
-                        launchApp(appPackage, appIntent);
-                        explicitWait(waitTime);
-
-                        timerArr[i] = getCoolLaunchTimer(DSN, appPackage);
-                        cpuConsumption = getCpuConsumption(DSN).split("%")[0];
-                        memConsumption = getApp_Memory_Usage(DSN, appPackage).trim();
-                        memUsage[i] = Double.parseDouble(memConsumption);
-                        cpuUsage[i] = Double.parseDouble(cpuConsumption);
-
-                        getApp_ADBLogsFile(adbLogFile, DSN);
-                        displayedArr[i] = getFFDisplayedValue(DSN, appPackage, adbLogFile);
-                        checkForRTUMarker(DSN, appPackage, "status", adbLogFile);
-                        log.info("Fully Drawn Marker : - " + fullyDrawnMarker);
-
-                        forceStopApp(DSN, appPackage);
-                        explicitWait(waitTime);
-                        clearLogcatVitals(DSN);
-                        clearLogcatBuffer(DSN);
-                    } catch (Exception e) {
-                        log.error("Exception in executing Cool Launch latency until first frame", e);
+                try (IterationPipeline pipeline = newIterationPipeline()) {
+                    for (int i = 0; nextIteration(i); i++) {
+                        try {
+                            File adbLogFile = iterationLogFile(DSN, appPackage, "Loop_" + (i + 1), metricsName);
+                            startIterationLogs(DSN);
+                            LaunchSampler sampler = startLaunchSampler(DSN, appPackage);
+                            AmStartResult start = launchIteration(DSN, appPackage, appIntent);
+                            waitForLaunch(DSN, appPackage, waitTime);
+                            waitForLaunchEnd(DSN, appPackage, true);
+
+                            byte[] vitalsLogs = captureVitalsLogs(DSN);
+                            LaunchSampler.Window window = stopLaunchSampler(sampler);
+                            String cpu = window == null ? getCpuConsumption(DSN) : null;
+                            MemoryProbe.Snapshot memory = probeMemory(DSN, appPackage);
+                            byte[] iterationLogs = captureIterationLogs(DSN);
+
+                            int index = i;
+                            pipeline.submit("Exception in executing Cool Launch latency until first frame", () -> {
+                                timerArr[index] = getCoolLaunchTimer(extractMarkers(appPackage, appIntent, vitalsLogs));
+
+                                writeIterationLogs(adbLogFile, iterationLogs);
+                                LaunchMarkers markers = extractMarkers(appPackage, appIntent, iterationLogs);
+                                displayedArr[index] = getDisplayedValue(appPackage, markers);
+                                fullyDrawnArr[index] = getRTUValue(appPackage, "value", markers);
+                                recordAmStart(index, start);
+                                recordLogMarkers(index, appPackage, iterationLogs);
+                                recordResources(index, window, cpu, memory, adbLogFile);
+                                updatePrecision();
+                            });
+
+                            forceStopApp(DSN, appPackage, waitTime);
+                            clearIterationLogs(DSN);
+                        } catch (Exception e) {
+                            log.error("Exception in executing Cool Launch latency until first frame", e);
+                        }
                     }
                 }
             } else {
@@ -100,36 +118,108 @@ public class LatencyRead extends CommonTools {
             if (executeFirstColdLaunch(DSN, metricsName, appPackage, appIntent)) {
                 log.info("------------------------ Warm KPI Measurement -----------------------");
                 log.info(deviceName + ": Starting capture for " + iterations + " iterations");
-                for (int i = 0; i < iterations; i++) {
+                try (IterationPipeline pipeline = newIterationPipeline()) {
+                    for (int i = 0; nextIteration(i); i++) {
+                        try {
+                            File adbLogFile = iterationLogFile(DSN, appPackage, "Loop_" + (i + 1), metricsName);
+                            startIterationLogs(DSN);
+                            LaunchSampler sampler = startLaunchSampler(DSN, appPackage);
+                            AmStartResult start = launchIteration(DSN, appPackage, appIntent);
+                            waitForLaunch(DSN, appPackage, waitTime);
+                            waitForLaunchEnd(DSN, appPackage, true);
+
+                            byte[] vitalsLogs = captureVitalsLogs(DSN);
+                            LaunchSampler.Window window = stopLaunchSampler(sampler);
+                            String cpu = window == null ? getCpuConsumption(DSN) : null;
+                            MemoryProbe.Snapshot memory = probeMemory(DSN, appPackage);
+                            byte[] iterationLogs = captureIterationLogs(DSN);
+
+                            int index = i;
+                            pipeline.submit("Exception in executing Warm launch latency until first frame", () -> {
+                                timerArr[index] = getWarmLaunchTimer(extractMarkers(appPackage, appIntent, vitalsLogs));
+
+                                writeIterationLogs(adbLogFile, iterationLogs);
+                                LaunchMarkers markers = extractMarkers(appPackage, appIntent, iterationLogs);
+                                displayedArr[index] = getDisplayedValue(appPackage, markers);
+                                fullyDrawnArr[index] = getRTUValue(appPackage, "value", markers);
+                                recordAmStart(index, start);
+                                recordLogMarkers(index, appPackage, iterationLogs);
+                                recordResources(index, window, cpu, memory, adbLogFile);
+                                updatePrecision();
+                            });
+
+                            goHome(DSN);
+                            waitForAppBackground(DSN, appPackage, 10);
+                            clearIterationLogs(DSN);
+                        } catch (Exception e) {
+                            log.error("Exception in executing Warm launch latency until first frame", e);
+                        }
+                    }
+                }
+            } else {
+                APP_FAILURE_REASON = "Error Occurred while performing pre launch test";
+                log.error(APP_FAILURE_REASON);
+            }
+    }
+
+    /**
+     * Executes measurements for hot launch latency. The app is kept in memory with its activity in the background;
+     * every iteration brings it back to the foreground with am start-activity -W and takes the TotalTime the
+     * activity manager reports as launch time.
+     *
+     * @param deviceName   The name of the device where the app is launched.
+     * @param DSN          The Device Serial Number (DSN) identifying the target device.
+     * @param appPackage   The package name of the application being launched.
+     * @param metricsName  The name of the metrics being measured (e.g., "Hot" launch).
+     * @param appIntent    The intent of the application being launched.
+     */
+    private void executeHotLaunch(String deviceName, String DSN,
+                                  String appPackage, String metricsName, String appIntent) {
+        emptyExistingArray();
+        if (executeFirstColdLaunch(DSN, metricsName, appPackage, appIntent)) {
+            log.info("------------------------ Hot KPI Measurement -----------------------");
+            log.info(deviceName + ": Starting capture for " + iterations + " iterations");
+            try (IterationPipeline pipeline = newIterationPipeline()) {
+                for (int i = 0; nextIteration(i); i++) {
                     try {
-                        File adbLogFile = new File(adbLogs + appPackage + "_" + DEVICE_NAME + "_" + "Loop_"
-                                + (i + 1) + "_" + metricsName + "_ADB.txt");
-                        launchApp(appPackage, appIntent);
-                        explicitWait(waitTime);
-
-                        timerArr[i] = getWarmLaunchTimer(DSN, appPackage);
-                        cpuConsumption = getCpuConsumption(DSN).split("%")[0];
-                        memConsumption = getApp_Memory_Usage(DSN, appPackage).trim();
-                        memUsage[i] = Double.parseDouble(memConsumption);
-                        cpuUsage[i] = Double.parseDouble(cpuConsumption);
-
-                        getApp_ADBLogsFile(adbLogFile, DSN);
-                        displayedArr[i] = getFFDisplayedValue(DSN, appPackage, adbLogFile);
-                        checkForRTUMarker(DSN, appPackage, "status", adbLogFile);
-                        log.info("Fully Drawn Marker : - " + fullyDrawnMarker);
+                        File adbLogFile = iterationLogFile(DSN, appPackage, "Loop_" + (i + 1), metricsName);
+                        startIterationLogs(DSN);
+                        LaunchSampler sampler = startLaunchSampler(DSN, appPackage);
+                        // am start -W returns once the launch has been drawn
+                        AmStartResult start = launchAppUsingAmStart(DSN, appIntent, true);
+                        if (start == null) waitForLaunch(DSN, appPackage, waitTime);
+                        waitForLaunchEnd(DSN, appPackage, false);
+
+                        LaunchSampler.Window window = stopLaunchSampler(sampler);
+                        String cpu = window == null ? getCpuConsumption(DSN) : null;
+                        MemoryProbe.Snapshot memory = probeMemory(DSN, appPackage);
+                        byte[] iterationLogs = captureIterationLogs(DSN);
+
+                        int index = i;
+                        pipeline.submit("Exception in executing Hot launch latency until first frame", () -> {
+                            timerArr[index] = getHotLaunchTimer(start);
+
+                            writeIterationLogs(adbLogFile, iterationLogs);
+                            LaunchMarkers markers = extractMarkers(appPackage, appIntent, iterationLogs);
+                            displayedArr[index] = getDisplayedValue(appPackage, markers);
+                            recordAmStart(index, start);
+                            recordLogMarkers(index, appPackage, iterationLogs);
+                            recordResources(index, window, cpu, memory, adbLogFile);
+                            updatePrecision();
+                        });
 
                         goHome(DSN);
-                        explicitWait(10);
-                        clearLogcatVitals(DSN);
-                        clearLogcatBuffer(DSN);
+                        waitForAppBackground(DSN, appPackage, 10);
+                        clearIterationLogs(DSN);
                     } catch (Exception e) {
-                        log.error("Exception in executing Warm launch latency until first frame", e);
+                        log.error("Exception in executing Hot launch latency until first frame", e);
                     }
                 }
-            } else {
-                APP_FAILURE_REASON = "Error Occurred while performing pre launch test";
-                log.error(APP_FAILURE_REASON);
             }
+        } else {
+            APP_FAILURE_REASON = "Error Occurred while performing pre launch test";
+            log.error(APP_FAILURE_REASON);
+        }
     }
 
 }
\ No newline at end of file
@@ -68,6 +68,21 @@ public class TestKpiExecutorTablets extends CommonTools {
     }
 
 
+    /**
+     * Tests the latency for the first frame after bringing the "Hot" application back to the foreground.
+     * This test method is annotated with @Test, indicating that it is a test method to be executed by the test framework.
+     * It has a priority of 3 and belongs to the groups "hot".
+     * The method executes the latency test for bringing the "Hot" application, kept in memory, back to the foreground on the device identified by the provided DSN.
+     * After the test is completed, it forcefully stops the application.
+     *
+     * @throws IOException if an I/O exception occurs while running the test.
+     */
+    @Test(priority = 3, groups = {"hot"})
+    public void Hot_Latency_FirstFrame() throws IOException {
+        latencyTest.run_LatencyTest(DSN, "Hot_FF");
+        forceStopApp(DSN, getAppPackage(DSN));
+    }
+
     /**
      * Uninstalls all third-party applications after the test suite execution.
      * This method is annotated with @AfterSuite, indicating that it should be executed after all tests in the suite have been run.
@@ -8,30 +8,35 @@ import com.aventstack.extentreports.markuputils.MarkupHelper;
 import com.aventstack.extentreports.reporter.ExtentSparkReporter;
 import com.aventstack.extentreports.reporter.configuration.Protocol;
 import com.aventstack.extentreports.reporter.configuration.Theme;
-import com.opencsv.CSVReader;
 import commonUtils.DeviceTools;
+import commonUtils.LogMarkerKpi;
 import commonUtils.ReadPaths;
+import dataFlow.KpiResult;
+import dataFlow.ResultBus;
 import org.apache.log4j.Logger;
 import org.testng.ITestContext;
 import org.testng.ITestResult;
 import org.testng.Reporter;
 import org.testng.TestListenerAdapter;
 
-import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public class ExtentReporter extends TestListenerAdapter {
 
     private final Logger log = Logger.getLogger(ExtentReporter.class.getSimpleName());
     private static ExtentReports extent;
     private static ExtentTest logger;
-    ReadPaths paths = new ReadPaths();
     DeviceTools setup = new DeviceTools();
+    // Results published by the latency runners, by metrics name; the first result of a metric is kept
+    private final Map<String, KpiResult> results = new ConcurrentHashMap<>();
+    private final Consumer<KpiResult> resultSubscriber = result -> results.putIfAbsent(result.getMetricsName(), result);
     String DSN = DeviceTools.DSN;
     String kpiType = DeviceTools.KPI_TYPE;
     private final String timeStamp = new SimpleDateFormat("MMdd", Locale.ROOT).format(new Date());
@@ -45,8 +50,10 @@ public class ExtentReporter extends TestListenerAdapter {
      */
     @Override
     public void onStart(ITestContext testContext) {
+        ResultBus.subscribe(resultSubscriber);
 
         String repName = "Performance_Test_Report_" + timeStamp + ".html";
+        if (ReadPaths.OUTPUT_TAG != null) repName = ReadPaths.tagged(repName);
         String fileName = setup.reportPath + repName;
         ExtentSparkReporter htmlReporter = new ExtentSparkReporter(fileName);
         try {
@@ -83,6 +90,7 @@ public class ExtentReporter extends TestListenerAdapter {
      */
     @Override
     public void onFinish(ITestContext testContext) {
+        ResultBus.unsubscribe(resultSubscriber);
         try {
             extent.flush();
         } catch (Exception e) {
@@ -158,29 +166,32 @@ public class ExtentReporter extends TestListenerAdapter {
      * Retrieves the details of the application and the test from the test result.
      * Returns a formatted string containing the application package name, version, test name, and device name.
      *
-     * @param tr The test result.
+     * @param tr     The test result.
+     * @param result The KPI result of the test.
      * @return A string containing the application details.
      */
-    private String getAppDetails(ITestResult tr) {
+    private String getAppDetails(ITestResult tr, KpiResult result) {
         String kpiDetails = "[" + tr.getName() + "]";
         return DeviceTools.APP_PACKAGE_INPUT + " [" + DeviceTools.APP_VERSION + "] " + kpiDetails
-                + " [" + setup.getDeviceName(DeviceTools.DSN) + "]";
+                + " [" + result.getDeviceName() + "]";
     }
 
     /**
      * Logs the key performance indicator (KPI) details to the logger.
      *
-     * @param outputCSV An array containing the KPI details.
+     * @param test   The extent test or node the details are logged to.
+     * @param result The KPI result of the test.
      */
-    private void getKpiDetails(String[] outputCSV) {
-        logger.info("App Package: <b>" + outputCSV[1] + "</b>");
-        logger.info("Test Device: <b>" + outputCSV[10] + "</b>");
-        logger.info("App Package: <b>" + outputCSV[1] + "</b>");
-        logger.info("App Version: <b>" + outputCSV[2] + "</b>");
-        logger.info("KPI Tested: <b>" + outputCSV[3] + "</b>");
-        logger.info("Latency Metrics Name: <b>" + outputCSV[4] + "</b>");
-        logger.info("Latency_Values: <b>" + outputCSV[5] + "</b>");
-        logger.info("Average: <b>" + outputCSV[6] + " ms </b> | " + "TP 50 Value: <b>" + outputCSV[7] + " ms" + "</b>");
+    private void getKpiDetails(ExtentTest test, KpiResult result) {
+        test.info("App Package: <b>" + result.getAppPackage() + "</b>");
+        test.info("Test Device: <b>" + result.getFireOSBuild() + "</b>");
+        test.info("App Package: <b>" + result.getAppPackage() + "</b>");
+        test.info("App Version: <b>" + result.getAppVersion() + "</b>");
+        test.info("KPI Tested: <b>" + result.getKpiType() + "</b>");
+        test.info("Latency Metrics Name: <b>" + result.getMetricsName() + "</b>");
+        test.info("Latency_Values: <b>" + result.getValuesPerIteration() + "</b>");
+        test.info("Average: <b>" + result.getAverage() + " ms </b> | " + "TP 50 Value: <b>" + result.getTp50()
+                + " ms" + "</b>");
     }
 
 
@@ -232,28 +243,43 @@ public class ExtentReporter extends TestListenerAdapter {
     private void createExtentTest(ITestResult tr) {
         try {
             String testName = tr.getName();
+            String fullyDrawnName = null;
 
             switch (testName) {
                 case "Cool_Latency_FirstFrame":
                     testName = setup.COOL_APP_FF;
+                    fullyDrawnName = setup.COOL_APP_RTU;
                     break;
                 case "Warm_Latency_FirstFrame":
                     testName = setup.WARM_APP_FF;
+                    fullyDrawnName = setup.WARM_APP_RTU;
+                    break;
+                case "Hot_Latency_FirstFrame":
+                    testName = setup.HOT_APP_FF;
                     break;
             }
 
-            File kpiFile = new File(paths.kpi_values_csv);
-            CSVReader csvReader = new CSVReader(new FileReader(kpiFile));
-            String[] outputCSV = csvReader.readNext();
-
-            while ((outputCSV = csvReader.readNext()) != null) {
-                if (outputCSV[4].contains(testName)) {
-                    logger = extent.createTest(getAppDetails(tr));
-                    getKpiDetails(outputCSV);
-                    break;
+            KpiResult result = results.get(testName);
+            if (result == null) {
+                for (KpiResult published : results.values()) {
+                    if (published.getMetricsName().contains(testName)) {
+                        result = published;
+                        break;
+                    }
+                }
+            }
+            if (result != null) {
+                logger = extent.createTest(getAppDetails(tr, result));
+                getKpiDetails(logger, result);
+                KpiResult fullyDrawn = fullyDrawnName == null ? null : results.get(fullyDrawnName);
+                if (fullyDrawn != null) getKpiDetails(logger.createNode(fullyDrawn.getMetricsName()), fullyDrawn);
+                for (LogMarkerKpi marker : LogMarkerKpi.configured(setup.prop, setup.USER_DIR)) {
+                    KpiResult markerResult = results.get(marker.seriesName(testName));
+                    if (markerResult != null) {
+                        getKpiDetails(logger.createNode(markerResult.getMetricsName()), markerResult);
+                    }
                 }
             }
-            csvReader.close();
         } catch (Exception e) {
             log.error("Exception occurred while creating Extent Test", e);
         }
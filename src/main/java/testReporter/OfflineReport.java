@@ -0,0 +1,320 @@
+package testReporter;
+
+import commonUtils.QuantileRecorder;
+import commonUtils.ReadPaths;
+import dataFlow.JsonLines;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Renders a self-contained HTML report from stored per-iteration results (the JSON Lines files next to the
+ * result CSV files), without a device or a TestNG run. Every KPI run gets a per-iteration scatter with
+ * TP50/TP90/TP99 bands, a histogram, a CDF and its memory and CPU usage per iteration.
+ * The charts are inline SVG, so the report opens offline, and hundreds of runs render in about a second.
+ */
+public class OfflineReport extends ReadPaths {
+
+    private final Logger log = Logger.getLogger(OfflineReport.class.getSimpleName());
+
+    private static final int WIDTH = 460, HEIGHT = 200, LEFT = 56, RIGHT = 12, TOP = 12, BOTTOM = 28;
+    // Latencies are stored in milliseconds and kept to the tenth the report prints
+    private static final int LATENCY_DECIMALS = 1;
+
+    /**
+     * The iterations of one KPI run.
+     */
+    private static class Run {
+        final String kpi, appPackage, appVersion, device, dsn, fosBuild, date, started;
+        final List<Double> launchTimes = new ArrayList<>(), displayed = new ArrayList<>(),
+                memory = new ArrayList<>(), cpu = new ArrayList<>();
+        final List<String> excluded = new ArrayList<>();
+
+        Run(Map<String, Object> record) {
+            kpi = text(record, "kpi");
+            appPackage = text(record, "appPackage");
+            appVersion = text(record, "appVersion");
+            device = text(record, "device");
+            dsn = text(record, "dsn");
+            fosBuild = text(record, "fosBuild");
+            date = text(record, "date");
+            Object runTimestamp = record.get("runTimestamp");
+            started = runTimestamp instanceof Number ? new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.ROOT)
+                    .format(new Date(((Number) runTimestamp).longValue())) : date;
+        }
+
+        void add(Map<String, Object> record) {
+            launchTimes.add(number(record, "launchTimeMs"));
+            displayed.add(number(record, "displayedTimeMs"));
+            memory.add(number(record, "memoryMb"));
+            cpu.add(number(record, "cpuPercent"));
+            excluded.add((String) record.get("excluded"));
+        }
+
+        /**
+         * Returns the latency per iteration the CSV row reports: displayed times if the run has any,
+         * vitals launch times otherwise.
+         */
+        List<Double> latencies() {
+            return displayed.stream().anyMatch(value -> !value.isNaN()) ? displayed : launchTimes;
+        }
+
+        String latencyName() {
+            return latencies() == displayed ? "Displayed time" : "Launch time";
+        }
+    }
+
+    /**
+     * Generates a report from the given result files and directories.
+     *
+     * @param inputs JSON Lines files, or directories searched for them; the output directory if empty.
+     * @return The path of the generated report.
+     * @throws IOException If the results cannot be read or the report cannot be written.
+     */
+    public Path generate(List<String> inputs) throws IOException {
+        long start = System.currentTimeMillis();
+        List<Path> files = new ArrayList<>();
+        for (String input : inputs.isEmpty() ? Arrays.asList(outputPath) : inputs) {
+            Path path = Paths.get(input);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> found = Files.walk(path)) {
+                    files.addAll(found.filter(file -> file.toString().endsWith(".jsonl")).sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                files.add(path);
+            }
+        }
+
+        Map<String, Run> runs = new LinkedHashMap<>();
+        for (Path file : files) {
+            for (Map<String, Object> record : JsonLines.read(file)) {
+                // Records written before runTimestamp was added fall back to one run per day
+                String key = String.join("|", text(record, "kpi"), text(record, "appPackage"),
+                        text(record, "appVersion"), text(record, "dsn"), text(record, "date"),
+                        text(record, "runTimestamp"));
+                runs.computeIfAbsent(key, k -> new Run(record)).add(record);
+            }
+        }
+
+        String timeStamp = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.ROOT).format(new Date());
+        Path report = Paths.get(reportPath, "Offline_Performance_Report_" + timeStamp + ".html");
+        Files.createDirectories(report.getParent());
+        try (Writer html = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            html.write(render(new ArrayList<>(runs.values()), files.size()));
+        }
+        log.info("Offline report of " + runs.size() + " runs from " + files.size() + " result files written to "
+                + report + " in " + (System.currentTimeMillis() - start) + " ms");
+        return report;
+    }
+
+    private String render(List<Run> runs, int fileCount) {
+        StringBuilder html = new StringBuilder(64 * 1024 + runs.size() * 16 * 1024);
+        html.append("<!DOCTYPE html><html><head><meta charset=\"UTF-8\"><title>Performance Test Report</title><style>")
+                .append("body{font-family:sans-serif;background:#1e1e2e;color:#ddd;margin:24px}")
+                .append("table{border-collapse:collapse;margin-bottom:24px}td,th{border:1px solid #444;padding:4px 8px;")
+                .append("text-align:right}th{background:#2e2e3e}td:first-child,th:first-child{text-align:left}")
+                .append("a{color:#8ab4f8}section{margin-bottom:32px}svg{background:#262636;margin:4px}")
+                .append("text{fill:#aaa;font-size:10px}</style></head><body>")
+                .append("<h1>Performance Test Report</h1><p>").append(runs.size()).append(" KPI runs from ")
+                .append(fileCount).append(" result files</p>");
+
+        html.append("<table><tr><th>Run</th><th>Device</th><th>Date</th><th>Iterations</th><th>Missing</th>")
+                .append("<th>Average</th><th>TP50</th><th>TP90</th><th>TP99</th><th>Memory TP50</th>")
+                .append("<th>CPU TP90</th></tr>");
+        for (int i = 0; i < runs.size(); i++) {
+            Run run = runs.get(i);
+            QuantileRecorder stats = recorder(run.latencies(), LATENCY_DECIMALS);
+            html.append("<tr><td><a href=\"#run").append(i).append("\">").append(escape(title(run))).append("</a></td><td>")
+                    .append(escape(run.device)).append("</td><td>").append(escape(run.started)).append("</td><td>")
+                    .append(stats.getCount()).append("</td><td>").append(stats.getMissing()).append("</td><td>")
+                    .append(format(stats.getMean())).append("</td><td>").append(format(stats.getPercentile(50)))
+                    .append("</td><td>").append(format(stats.getPercentile(90))).append("</td><td>")
+                    .append(format(stats.getPercentile(99))).append("</td><td>")
+                    .append(format(recorder(run.memory, 2).getPercentile(50))).append(" MB</td><td>")
+                    .append(format(recorder(run.cpu, 2).getPercentile(90))).append("%</td></tr>");
+        }
+        html.append("</table>");
+
+        for (int i = 0; i < runs.size(); i++) {
+            Run run = runs.get(i);
+            List<Double> latencies = run.latencies();
+            QuantileRecorder stats = recorder(latencies, LATENCY_DECIMALS);
+            html.append("<section id=\"run").append(i).append("\"><h2>").append(escape(title(run))).append("</h2><p>")
+                    .append(escape(run.device)).append(" (").append(escape(run.dsn)).append(", ")
+                    .append(escape(run.fosBuild)).append("), ").append(escape(run.started)).append(" &middot; ")
+                    .append(run.latencyName()).append(" in ms, excluded iterations in orange</p>");
+            scatter(html, latencies, run.excluded, stats);
+            histogram(html, latencies);
+            cdf(html, latencies);
+            series(html, run.memory, "Memory (MB)", "#7fd1b9");
+            series(html, run.cpu, "CPU (%)", "#f28fad");
+            html.append("</section>");
+        }
+        return html.append("</body></html>").toString();
+    }
+
+    private void scatter(StringBuilder svg, List<Double> values, List<String> excluded, QuantileRecorder stats) {
+        double[] range = range(values);
+        open(svg, "Per iteration", 1, Math.max(2, values.size()), range[0], range[1]);
+        double[] bands = {stats.getPercentile(50), stats.getPercentile(90), stats.getPercentile(99)};
+        String[] names = {"TP50", "TP90", "TP99"};
+        for (int b = 0; b < bands.length && stats.getCount() > 0; b++) {
+            double y = y(bands[b], range[0], range[1]);
+            svg.append("<line x1=\"").append(LEFT).append("\" x2=\"").append(WIDTH - RIGHT).append("\" y1=\"")
+                    .append(format(y)).append("\" y2=\"").append(format(y))
+                    .append("\" stroke=\"#f9e2af\" stroke-dasharray=\"4 3\" opacity=\"").append(0.9 - b * 0.25)
+                    .append("\"/><text x=\"").append(WIDTH - RIGHT - 2).append("\" y=\"").append(format(y - 2))
+                    .append("\" text-anchor=\"end\">").append(names[b]).append(' ').append(format(bands[b]))
+                    .append("</text>");
+        }
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i).isNaN()) continue;
+            svg.append("<circle r=\"2.5\" cx=\"").append(format(x(i + 1, 1, Math.max(2, values.size()))))
+                    .append("\" cy=\"").append(format(y(values.get(i), range[0], range[1])))
+                    .append("\" fill=\"").append(excluded.get(i) == null ? "#89b4fa" : "#fab387").append("\"/>");
+        }
+        svg.append("</svg>");
+    }
+
+    private void histogram(StringBuilder svg, List<Double> values) {
+        double[] present = present(values);
+        double[] range = range(values);
+        int bins = Math.max(5, Math.min(30, (int) Math.ceil(Math.sqrt(present.length))));
+        int[] counts = new int[bins];
+        int highest = 1;
+        for (double value : present) {
+            int bin = (int) Math.min(bins - 1, (value - range[0]) / (range[1] - range[0]) * bins);
+            highest = Math.max(highest, ++counts[bin]);
+        }
+        open(svg, "Histogram", range[0], range[1], 0, highest);
+        double width = (WIDTH - LEFT - RIGHT) / (double) bins;
+        for (int bin = 0; bin < bins; bin++) {
+            double top = y(counts[bin], 0, highest);
+            svg.append("<rect x=\"").append(format(LEFT + bin * width + 1)).append("\" y=\"").append(format(top))
+                    .append("\" width=\"").append(format(width - 2)).append("\" height=\"")
+                    .append(format(HEIGHT - BOTTOM - top)).append("\" fill=\"#89b4fa\"/>");
+        }
+        svg.append("</svg>");
+    }
+
+    private void cdf(StringBuilder svg, List<Double> values) {
+        double[] sorted = present(values);
+        Arrays.sort(sorted);
+        double[] range = range(values);
+        open(svg, "CDF", range[0], range[1], 0, 1);
+        svg.append("<polyline fill=\"none\" stroke=\"#89b4fa\" stroke-width=\"1.5\" points=\"");
+        for (int i = 0; i < sorted.length; i++) {
+            double x = x(sorted[i], range[0], range[1]);
+            svg.append(format(x)).append(',').append(format(y(i / (double) sorted.length, 0, 1))).append(' ')
+                    .append(format(x)).append(',').append(format(y((i + 1) / (double) sorted.length, 0, 1))).append(' ');
+        }
+        svg.append("\"/></svg>");
+    }
+
+    private void series(StringBuilder svg, List<Double> values, String name, String color) {
+        double[] range = range(values);
+        open(svg, name, 1, Math.max(2, values.size()), range[0], range[1]);
+        svg.append("<polyline fill=\"none\" stroke=\"").append(color).append("\" stroke-width=\"1.5\" points=\"");
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i).isNaN()) continue;
+            svg.append(format(x(i + 1, 1, Math.max(2, values.size())))).append(',')
+                    .append(format(y(values.get(i), range[0], range[1]))).append(' ');
+        }
+        svg.append("\"/></svg>");
+    }
+
+    /**
+     * Opens a chart with its frame, title and the bounds of both axes.
+     */
+    private void open(StringBuilder svg, String title, double xMin, double xMax, double yMin, double yMax) {
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(WIDTH).append("\" height=\"")
+                .append(HEIGHT).append("\"><rect x=\"").append(LEFT).append("\" y=\"").append(TOP)
+                .append("\" width=\"").append(WIDTH - LEFT - RIGHT).append("\" height=\"").append(HEIGHT - TOP - BOTTOM)
+                .append("\" fill=\"none\" stroke=\"#444\"/><text x=\"").append(LEFT + 4).append("\" y=\"")
+                .append(TOP + 12).append("\">").append(escape(title)).append("</text>")
+                .append("<text x=\"").append(LEFT - 4).append("\" y=\"").append(HEIGHT - BOTTOM)
+                .append("\" text-anchor=\"end\">").append(format(yMin)).append("</text>")
+                .append("<text x=\"").append(LEFT - 4).append("\" y=\"").append(TOP + 8)
+                .append("\" text-anchor=\"end\">").append(format(yMax)).append("</text>")
+                .append("<text x=\"").append(LEFT).append("\" y=\"").append(HEIGHT - BOTTOM + 14).append("\">")
+                .append(format(xMin)).append("</text>")
+                .append("<text x=\"").append(WIDTH - RIGHT).append("\" y=\"").append(HEIGHT - BOTTOM + 14)
+                .append("\" text-anchor=\"end\">").append(format(xMax)).append("</text>");
+    }
+
+    private static double x(double value, double min, double max) {
+        return LEFT + (value - min) / (max - min) * (WIDTH - LEFT - RIGHT);
+    }
+
+    private static double y(double value, double min, double max) {
+        return HEIGHT - BOTTOM - (value - min) / (max - min) * (HEIGHT - TOP - BOTTOM);
+    }
+
+    /**
+     * Returns the bounds of the present values with a margin of 5% of their spread, or of their value for a
+     * constant series so that it still spans the chart.
+     */
+    private static double[] range(List<Double> values) {
+        double[] present = present(values);
+        if (present.length == 0) return new double[]{0, 1};
+        double min = Arrays.stream(present).min().getAsDouble(), max = Arrays.stream(present).max().getAsDouble();
+        double margin = max > min ? (max - min) * 0.05 : Math.max(Math.abs(max) * 0.05, 1);
+        return new double[]{Math.max(0, min - margin), max + margin};
+    }
+
+    private static double[] present(List<Double> values) {
+        return values.stream().filter(value -> !value.isNaN()).mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static QuantileRecorder recorder(List<Double> values, int decimals) {
+        QuantileRecorder recorder = new QuantileRecorder(decimals);
+        for (double value : values) {
+            if (Double.isNaN(value)) recorder.recordMissing();
+            else recorder.record(value);
+        }
+        return recorder;
+    }
+
+    private static String title(Run run) {
+        return run.appPackage + " " + run.appVersion + " " + run.kpi;
+    }
+
+    private static String text(Map<String, Object> record, String key) {
+        Object value = record.get(key);
+        return value == null ? "NA" : value.toString();
+    }
+
+    private static double number(Map<String, Object> record, String key) {
+        Object value = record.get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    /**
+     * Formats a value with at most one decimal; cheaper than String.format, which dominates rendering otherwise.
+     */
+    private static String format(double value) {
+        long tenths = Math.round(value * 10);
+        String whole = (tenths < 0 && tenths > -10 ? "-" : "") + tenths / 10;
+        return tenths % 10 == 0 ? whole : whole + "." + Math.abs(tenths % 10);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,158 @@
+package testReporter;
+
+import commonUtils.ReadPaths;
+import commonUtils.SampleComparison;
+import dataFlow.RunStore;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares the launch times of a candidate app version with those of a baseline version, per device model and KPI,
+ * from the runs in the {@link RunStore}. The per-iteration samples of all matching runs of a version are pooled
+ * and compared with a {@link SampleComparison}; a KPI regressed when the candidate is slower with significance
+ * ({@code regressionAlpha}) and its median is more than {@code regressionThreshold} percent above the baseline's.
+ * Launch times are compared and printed in milliseconds.
+ */
+public class RegressionCheck extends ReadPaths {
+
+    private final Logger log = Logger.getLogger(RegressionCheck.class.getSimpleName());
+
+    private static final String BASELINE = "baseline", CANDIDATE = "candidate";
+    private static final int MIN_SAMPLES = 5;
+    private static final long SEED = 42;
+
+    private final double threshold = Double.parseDouble(prop.getProperty("regressionThreshold", "5").trim());
+    private final double alpha = Double.parseDouble(prop.getProperty("regressionAlpha", "0.05").trim());
+    private final int resamples = Integer.parseInt(prop.getProperty("bootstrapResamples", "2000").trim());
+
+    /**
+     * Compares a baseline and a candidate version and prints one line per device model and KPI measured with both.
+     *
+     * @param arguments {@code baseline=<app version>} and {@code candidate=<app version>}, and optionally the
+     *                  filters of {@link RunHistory#parseFilter(List)} other than {@code version}.
+     * @param out       Where the comparison is printed.
+     * @return The number of regressed KPIs.
+     * @throws IOException              If the store cannot be read.
+     * @throws IllegalArgumentException If a version is missing or there is nothing to compare.
+     */
+    public int compare(List<String> arguments, PrintStream out) throws IOException {
+        String baseline = null, candidate = null;
+        List<String> filters = new ArrayList<>();
+        for (String argument : arguments) {
+            String lower = argument.toLowerCase(Locale.ROOT);
+            if (lower.startsWith(BASELINE + "=")) baseline = argument.substring(BASELINE.length() + 1).trim();
+            else if (lower.startsWith(CANDIDATE + "=")) candidate = argument.substring(CANDIDATE.length() + 1).trim();
+            else filters.add(argument);
+        }
+        if (baseline == null || candidate == null) {
+            throw new IllegalArgumentException("Expected baseline=<app version> and candidate=<app version>");
+        }
+        Map<String, String> filter = RunHistory.parseFilter(filters);
+        if (filter.containsKey(RunStore.VERSION)) {
+            throw new IllegalArgumentException("Use baseline= and candidate= instead of version=");
+        }
+
+        RunStore store = RunStore.open(historyPath);
+        filter.put(RunStore.VERSION, baseline);
+        Map<String, List<Double>> baselineSamples = samplesByModelAndKpi(store.query(filter));
+        filter.put(RunStore.VERSION, candidate);
+        Map<String, List<Double>> candidateSamples = samplesByModelAndKpi(store.query(filter));
+
+        StringBuilder table = new StringBuilder("deviceModel\tkpi\tbaselineSamples\tcandidateSamples\tbaselineMedianMs"
+                + "\tcandidateMedianMs\tdifferenceMs\tdifferenceLowMs\tdifferenceHighMs\tdifferencePercent\tpValue"
+                + "\tcliffsDelta\tverdict\n");
+        int compared = 0, regressions = 0;
+        for (Map.Entry<String, List<Double>> group : candidateSamples.entrySet()) {
+            List<Double> reference = baselineSamples.get(group.getKey());
+            if (reference == null) {
+                log.warn(group.getKey().replace('\t', ' ') + ": no runs of baseline version " + baseline);
+                continue;
+            }
+            if (reference.size() < MIN_SAMPLES || group.getValue().size() < MIN_SAMPLES) {
+                log.warn(group.getKey().replace('\t', ' ') + ": too few samples to compare (" + reference.size()
+                        + " baseline, " + group.getValue().size() + " candidate)");
+                continue;
+            }
+            SampleComparison comparison = new SampleComparison(toArray(reference), toArray(group.getValue()),
+                    resamples, SEED);
+            String verdict = verdict(comparison);
+            if (verdict.equals("REGRESSION")) regressions++;
+            compared++;
+            table.append(group.getKey()).append('\t')
+                    .append(comparison.getBaselineCount()).append('\t')
+                    .append(comparison.getCandidateCount()).append('\t')
+                    .append(format(comparison.getBaselineMedian())).append('\t')
+                    .append(format(comparison.getCandidateMedian())).append('\t')
+                    .append(format(comparison.getDifference())).append('\t')
+                    .append(format(comparison.getDifferenceLow())).append('\t')
+                    .append(format(comparison.getDifferenceHigh())).append('\t')
+                    .append(format(comparison.relative(comparison.getDifference()))).append('\t')
+                    .append(String.format(Locale.ROOT, "%.4g", comparison.getPValue())).append('\t')
+                    .append(String.format(Locale.ROOT, "%.3f", comparison.getCliffsDelta())).append('\t')
+                    .append(verdict).append('\n');
+            log.info(group.getKey().replace('\t', ' ') + ": median " + format(comparison.getBaselineMedian())
+                    + " -> " + format(comparison.getCandidateMedian()) + " ms, difference "
+                    + format(comparison.getDifference()) + " ms (95% CI " + format(comparison.getDifferenceLow())
+                    + " to " + format(comparison.getDifferenceHigh()) + ", "
+                    + format(comparison.relative(comparison.getDifference())) + "%), Mann-Whitney p "
+                    + String.format(Locale.ROOT, "%.4g", comparison.getPValue()) + ": " + verdict);
+        }
+        if (compared == 0) {
+            throw new IllegalArgumentException("No device model and KPI with enough samples of both " + baseline
+                    + " and " + candidate + " in " + historyPath);
+        }
+        out.print(table);
+        out.flush();
+        log.info(compared + " KPIs compared, " + regressions + " regressed by more than " + threshold
+                + "% (p < " + alpha + ") from " + baseline + " to " + candidate);
+        return regressions;
+    }
+
+    private String verdict(SampleComparison comparison) {
+        if (comparison.getPValue() >= alpha) return "NO_CHANGE";
+        double change = comparison.relative(comparison.getDifference());
+        if (change > threshold) return "REGRESSION";
+        if (change < -threshold) return "IMPROVEMENT";
+        return comparison.getDifference() > 0 ? "SLOWER" : "FASTER";
+    }
+
+    /**
+     * Pools the per-iteration samples of runs by device model and KPI, leaving out failed runs, i.e. runs whose
+     * failure reason is not "NA". The samples are stored in seconds and pooled in milliseconds.
+     */
+    private static Map<String, List<Double>> samplesByModelAndKpi(List<Map<String, Object>> runs) {
+        Map<String, List<Double>> samples = new LinkedHashMap<>();
+        for (Map<String, Object> run : runs) {
+            Object failureReason = run.get("failureReason");
+            if (failureReason != null && !failureReason.toString().isEmpty() && !failureReason.equals("NA")) continue;
+            Object values = run.get("samples");
+            if (!(values instanceof String) || ((String) values).isEmpty() || values.equals("NA")) continue;
+            List<Double> group = samples.computeIfAbsent(run.get(RunStore.MODEL) + "\t" + run.get(RunStore.KPI),
+                    key -> new ArrayList<>());
+            for (String value : ((String) values).split(";")) {
+                try {
+                    double sample = Double.parseDouble(value.trim());
+                    if (sample > 0) group.add(sample * 1000);
+                } catch (NumberFormatException ignored) {
+                    // Not a measured value
+                }
+            }
+        }
+        return samples;
+    }
+
+    private static double[] toArray(List<Double> values) {
+        return values.stream().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "NA" : String.format(Locale.ROOT, "%.1f", value);
+    }
+}
@@ -0,0 +1,92 @@
+package testReporter;
+
+import commonUtils.ReadPaths;
+import dataFlow.RunStore;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prints series of past runs from the {@link RunStore} as tab separated values, oldest first,
+ * for trend analysis without a device.
+ */
+public class RunHistory extends ReadPaths {
+
+    private final Logger log = Logger.getLogger(RunHistory.class.getSimpleName());
+
+    private static final Map<String, String> FILTER_KEYS = new HashMap<>();
+    private static final String[] COLUMNS = {"date", RunStore.PACKAGE, RunStore.VERSION, RunStore.MODEL,
+            RunStore.FOS_BUILD, RunStore.KPI, "device", "iterations", "average", "tp50", "tp90", "steadyTp50",
+            "steadyTp90", "failureReason"};
+
+    static {
+        FILTER_KEYS.put("package", RunStore.PACKAGE);
+        FILTER_KEYS.put("version", RunStore.VERSION);
+        FILTER_KEYS.put("model", RunStore.MODEL);
+        FILTER_KEYS.put("fos", RunStore.FOS_BUILD);
+        FILTER_KEYS.put("kpi", RunStore.KPI);
+    }
+
+    /**
+     * Parses {@code key=value} filters, e.g. {@code package=com.example.app kpi=Cool_FF}.
+     *
+     * @param arguments The filters; {@code package}, {@code version}, {@code model}, {@code fos} and {@code kpi}
+     *                  (a KPI name or id) are known.
+     * @return The filter of a {@link RunStore} query.
+     * @throws IllegalArgumentException If an argument is not a known filter.
+     */
+    public static Map<String, String> parseFilter(List<String> arguments) {
+        Map<String, String> filter = new HashMap<>();
+        for (String argument : arguments) {
+            int separator = argument.indexOf('=');
+            String key = separator < 0 ? null : FILTER_KEYS.get(argument.substring(0, separator).trim().toLowerCase(Locale.ROOT));
+            if (key == null) {
+                throw new IllegalArgumentException("Unknown filter '" + argument + "', expected one of "
+                        + FILTER_KEYS.keySet() + " as key=value");
+            }
+            filter.put(key, argument.substring(separator + 1).trim());
+        }
+        return filter;
+    }
+
+    /**
+     * Prints the runs matching the given filters.
+     *
+     * @param arguments The filters, see {@link #parseFilter(List)}.
+     * @param out       Where the series is printed.
+     * @return The number of runs printed.
+     * @throws IOException If the store cannot be read.
+     */
+    public int print(List<String> arguments, PrintStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        List<Map<String, Object>> runs = RunStore.open(historyPath).query(parseFilter(arguments));
+        SimpleDateFormat time = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.ROOT);
+        StringBuilder series = new StringBuilder("time");
+        for (String column : COLUMNS) series.append('\t').append(column);
+        series.append('\n');
+        for (Map<String, Object> run : runs) {
+            Object timestamp = run.get(RunStore.TIMESTAMP);
+            series.append(timestamp instanceof Number ? time.format(new Date(((Number) timestamp).longValue())) : "");
+            for (String column : COLUMNS) {
+                Object value = run.get(column);
+                if (value instanceof Double && (Double) value == Math.rint((Double) value)) {
+                    value = ((Double) value).longValue();
+                }
+                series.append('\t').append(value == null ? "NA" : value);
+            }
+            series.append('\n');
+        }
+        out.print(series);
+        out.flush();
+        log.info(runs.size() + " runs of " + historyPath + " matched in " + (System.currentTimeMillis() - start)
+                + " ms");
+        return runs.size();
+    }
+}
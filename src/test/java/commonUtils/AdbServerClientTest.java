@@ -0,0 +1,127 @@
+package commonUtils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Verifies the socket transport of {@link AdbServerClient} against a {@link FakeAdbServer}.
+ */
+public class AdbServerClientTest {
+
+    private static final String SERIAL = "G070VM1234";
+
+    private FakeAdbServer server;
+    private AdbServerClient client;
+
+    @BeforeMethod
+    public void startServer() throws IOException {
+        server = new FakeAdbServer(SERIAL, command -> {
+            if (command.contains("pidof com.example")) return "4242\n__PERF_EXIT__0\n";
+            if (command.contains("pidof")) return "__PERF_EXIT__1\n";
+            if (command.equals("uiautomator dump /dev/tty")) return "<hierarchy/>";
+            if (command.contains("pm install") || command.contains("sleep")) {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return command.contains("pm install") ? "Success\n__PERF_EXIT__0\n" : "__PERF_EXIT__0\n";
+            }
+            return "";
+        });
+        client = new AdbServerClient("127.0.0.1", server.getPort(), 5000);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void shellReturnsOutputAndExitCode() throws IOException {
+        CapturedProcess running = client.shell(SERIAL, "pidof com.example");
+        Assert.assertEquals(running.getOutput(), "4242\n");
+        Assert.assertEquals(running.exitValue(), 0);
+
+        CapturedProcess stopped = client.shell(SERIAL, "pidof com.other");
+        Assert.assertEquals(stopped.getOutput(), "");
+        Assert.assertEquals(stopped.exitValue(), 1);
+        Assert.assertEquals(server.requests.get(0), "host:transport:" + SERIAL);
+        Assert.assertTrue(server.requests.get(1).startsWith("shell:{ pidof com.example ; }"));
+    }
+
+    @Test
+    public void execPassesOutputThrough() throws IOException {
+        CapturedProcess dump = client.exec(SERIAL, " uiautomator dump /dev/tty");
+        Assert.assertEquals(dump.getOutput(), "<hierarchy/>");
+        Assert.assertEquals(dump.exitValue(), 0);
+        Assert.assertEquals(server.requests.get(1), "exec:uiautomator dump /dev/tty");
+    }
+
+    @Test
+    public void unknownDeviceIsRefused() {
+        IOException refused = Assert.expectThrows(IOException.class, () -> client.shell("missing", "true"));
+        Assert.assertTrue(refused.getMessage().contains("device 'missing' not found"), refused.getMessage());
+    }
+
+    @Test
+    public void connectReportsTheServerReply() throws IOException {
+        Assert.assertEquals(client.connect("10.0.0.7:5555").exitValue(), 0);
+        CapturedProcess failed = client.connect("192.0.2.1:5555");
+        Assert.assertEquals(failed.exitValue(), 1);
+        Assert.assertEquals(failed.getOutput(), "failed to connect to 192.0.2.1:5555\n");
+    }
+
+    @Test
+    public void pushAndPullRoundTripThroughSync() throws IOException {
+        byte[] content = new byte[2500];
+        for (int i = 0; i < content.length; i++) content[i] = (byte) i;
+        File local = File.createTempFile("adb-push", ".bin");
+        File pulled = File.createTempFile("adb-pull", ".bin");
+        try {
+            Files.write(local.toPath(), content);
+            client.push(SERIAL, local, "/data/local/tmp/file.bin");
+            Assert.assertEquals(server.files.get("/data/local/tmp/file.bin"), content);
+
+            client.pull(SERIAL, "/data/local/tmp/file.bin", pulled);
+            Assert.assertEquals(Files.readAllBytes(pulled.toPath()), content);
+        } finally {
+            Files.deleteIfExists(local.toPath());
+            Files.deleteIfExists(pulled.toPath());
+        }
+    }
+
+    @Test
+    public void installOutlastsTheCommandTimeout() throws IOException {
+        AdbServerClient shortTimeouts = new AdbServerClient("127.0.0.1", server.getPort(), 200, 5000);
+        Assert.expectThrows(IOException.class, () -> shortTimeouts.shell(SERIAL, "sleep 1"));
+
+        File apk = File.createTempFile("app", ".apk");
+        try {
+            Files.write(apk.toPath(), new byte[]{1, 2, 3});
+            CapturedProcess installed = shortTimeouts.install(SERIAL, apk);
+            Assert.assertEquals(installed.getOutput(), "Success\n");
+            Assert.assertEquals(server.files.get("/data/local/tmp/" + apk.getName()), new byte[]{1, 2, 3});
+        } finally {
+            Files.deleteIfExists(apk.toPath());
+        }
+    }
+
+    @Test
+    public void pullOfMissingFileFails() throws IOException {
+        File pulled = File.createTempFile("adb-pull", ".bin");
+        try {
+            IOException failed = Assert.expectThrows(IOException.class,
+                    () -> client.pull(SERIAL, "/sdcard/missing.txt", pulled));
+            Assert.assertEquals(failed.getMessage(), "adb pull failed: No such file or directory");
+        } finally {
+            Files.deleteIfExists(pulled.toPath());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package commonUtils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * Checks the adaptive stop of the latency loop at the shipped defaults of 10 to 50 iterations and 5% tolerance.
+ */
+public class DataUtilsTest {
+
+    private static final int MIN_ITERATIONS = 10, MAX_ITERATIONS = 50;
+    private static final double TOLERANCE = 5;
+
+    @Test
+    public void tightLaunchesStopAtTheFirstBoundedTp90() {
+        Random random = new Random(7);
+        QuantileRecorder stats = new QuantileRecorder(DataUtils.LATENCY_DECIMALS);
+        int stoppedAt = 0;
+        for (int i = 1; i <= MAX_ITERATIONS && stoppedAt == 0; i++) {
+            stats.record(1.2 + random.nextGaussian() * 0.01);
+            if (DataUtils.isPrecise(stats, MIN_ITERATIONS, TOLERANCE)) stoppedAt = i;
+        }
+        Assert.assertEquals(stoppedAt, 29);
+        Assert.assertTrue(DataUtils.confidenceWidth(stats, 90) <= TOLERANCE);
+    }
+
+    @Test
+    public void spreadLaunchesRunAllIterations() {
+        Random random = new Random(7);
+        QuantileRecorder stats = new QuantileRecorder(DataUtils.LATENCY_DECIMALS);
+        for (int i = 1; i <= MAX_ITERATIONS; i++) {
+            stats.record(0.8 + random.nextDouble() * 2);
+            Assert.assertFalse(DataUtils.isPrecise(stats, MIN_ITERATIONS, TOLERANCE), "after " + i);
+        }
+    }
+}
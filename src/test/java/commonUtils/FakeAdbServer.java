@@ -0,0 +1,182 @@
+package commonUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+/**
+ * A stand-in for the local adb server, listening on a free loopback port and speaking the smart-socket protocol
+ * the {@link AdbServerClient} uses: host:transport to one device, shell: and exec: services answered by a handler,
+ * host:connect and the sync service over an in-memory file system of the device.
+ */
+class FakeAdbServer implements Closeable {
+
+    private final ServerSocket serverSocket;
+    private final String serial;
+    private final Function<String, String> commands;
+    private final Thread acceptor;
+    final Map<String, byte[]> files = new ConcurrentHashMap<>();
+    final List<String> requests = new CopyOnWriteArrayList<>();
+
+    /**
+     * Starts the server.
+     *
+     * @param serial   The serial number of the only device attached.
+     * @param commands Answers the command of a shell: or exec: request with its output.
+     * @throws IOException If no port can be bound.
+     */
+    FakeAdbServer(String serial, Function<String, String> commands) throws IOException {
+        this.serial = serial;
+        this.commands = commands;
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        acceptor = new Thread(this::acceptConnections, "fake-adb-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try (Socket socket = serverSocket.accept()) {
+                serve(new DataInputStream(socket.getInputStream()), socket.getOutputStream());
+            } catch (IOException e) {
+                // Closed by the test or by the client
+            }
+        }
+    }
+
+    private void serve(DataInputStream in, OutputStream out) throws IOException {
+        boolean transport = false;
+        while (true) {
+            String request = readString(in, Integer.parseInt(readString(in, 4), 16));
+            requests.add(request);
+            if (request.startsWith("host:transport:")) {
+                if (!request.substring("host:transport:".length()).equals(serial)) {
+                    fail(out, "device '" + request.substring("host:transport:".length()) + "' not found");
+                    return;
+                }
+                okay(out);
+                transport = true;
+            } else if (request.startsWith("host:connect:")) {
+                okay(out);
+                String address = request.substring("host:connect:".length());
+                writeHexString(out, address.startsWith("10.") ? "connected to " + address
+                        : "failed to connect to " + address);
+                return;
+            } else if (transport && (request.startsWith("shell:") || request.startsWith("exec:"))) {
+                okay(out);
+                out.write(commands.apply(request.substring(request.indexOf(':') + 1))
+                        .getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                return;
+            } else if (transport && request.equals("sync:")) {
+                okay(out);
+                sync(in, out);
+                return;
+            } else {
+                fail(out, "unknown request " + request);
+                return;
+            }
+        }
+    }
+
+    private void sync(DataInputStream in, OutputStream out) throws IOException {
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        String sendPath = null;
+        while (true) {
+            String id = readString(in, 4);
+            int length = readLittleEndianInt(in);
+            switch (id) {
+                case "RECV": {
+                    byte[] content = files.get(readString(in, length));
+                    if (content == null) {
+                        writeSyncPacket(out, "FAIL", "No such file or directory".getBytes(StandardCharsets.UTF_8));
+                        break;
+                    }
+                    for (int offset = 0; offset < content.length; offset += 1000) {
+                        writeSyncPacket(out, "DATA", Arrays.copyOfRange(content, offset,
+                                Math.min(content.length, offset + 1000)));
+                    }
+                    writeSyncPacket(out, "DONE", new byte[0]);
+                    break;
+                }
+                case "SEND":
+                    String target = readString(in, length);
+                    sendPath = target.substring(0, target.lastIndexOf(','));
+                    break;
+                case "DATA":
+                    byte[] chunk = new byte[length];
+                    in.readFully(chunk);
+                    received.write(chunk);
+                    break;
+                case "DONE":
+                    files.put(sendPath, received.toByteArray());
+                    writeSyncPacket(out, "OKAY", new byte[0]);
+                    break;
+                case "QUIT":
+                    return;
+                default:
+                    throw new IOException("Unexpected sync request " + id);
+            }
+        }
+    }
+
+    private static void okay(OutputStream out) throws IOException {
+        out.write("OKAY".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+
+    private static void fail(OutputStream out, String message) throws IOException {
+        out.write("FAIL".getBytes(StandardCharsets.US_ASCII));
+        writeHexString(out, message);
+    }
+
+    private static void writeHexString(OutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.write(String.format(Locale.ROOT, "%04x", bytes.length).getBytes(StandardCharsets.US_ASCII));
+        out.write(bytes);
+        out.flush();
+    }
+
+    private static void writeSyncPacket(OutputStream out, String id, byte[] data) throws IOException {
+        out.write(id.getBytes(StandardCharsets.US_ASCII));
+        out.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(data.length).array());
+        out.write(data);
+        out.flush();
+    }
+
+    private static String readString(DataInputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int readLittleEndianInt(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[4];
+        in.readFully(bytes);
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+}
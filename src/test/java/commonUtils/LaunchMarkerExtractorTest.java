@@ -0,0 +1,26 @@
+package commonUtils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Checks the in-place parsers of {@link LaunchMarkerExtractor} against the split-based parsing they replaced.
+ */
+public class LaunchMarkerExtractorTest {
+
+    @Test
+    public void timerMatchesSplitParsing() {
+        for (String line : LaunchMarkerParseBenchmark.TIMER_LINES) {
+            Assert.assertEquals(LaunchMarkerExtractor.parseTimer(line), LaunchMarkerParseBenchmark.splitTimer(line),
+                    line);
+        }
+    }
+
+    @Test
+    public void lastEventValueMatchesSplitParsing() {
+        for (String line : LaunchMarkerParseBenchmark.EVENT_LINES) {
+            Assert.assertEquals(LaunchMarkerExtractor.parseLastEventValue(line),
+                    LaunchMarkerParseBenchmark.splitLastEventValue(line), line);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package commonUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compares the throughput of the in-place timer and event parsers of {@link LaunchMarkerExtractor} with the
+ * split-based parsing they replaced, on representative vitals and event log lines. Both parsers are first checked
+ * to return the same values. Run it after {@code mvn package}, which copies the dependencies to jar/libs, with
+ * <pre>
+ * java -cp jar/test-classes:jar/classes:jar/libs/* commonUtils.LaunchMarkerParseBenchmark [rounds]
+ * </pre>
+ */
+public class LaunchMarkerParseBenchmark {
+
+    static final List<String> TIMER_LINES = Arrays.asList(
+            "10-18 12:00:01.234  1021  1290 I Vlog    : ActivityManager:performance:cool_app_launch_time:"
+                    + "fgtracking=false;DV;1,key=com.example.app,Timer=1234.0;TI;1,unit=ms,"
+                    + "metadata=!{\"d\"#{\"groupId\"#\"<groupId>\"}};DV;1",
+            "10-18 12:00:01.236  1021  1290 I Vlog    : ActivityManager:performance:cool_activity_launch_time:"
+                    + "fgtracking=false;DV;1,key=com.example.app,Timer=1187;TI;1,unit=ms",
+            "10-18 12:00:05.010  1021  1290 I Vlog    : ActivityManager:performance:"
+                    + "warm_app_warm_transition_launch_time:fgtracking=false;DV;1,key=com.example.app,Timer=412.7;TI;1",
+            "10-18 12:00:05.012  1021  1290 I Vlog    : ActivityManager:performance:warm_activity_launch_time:"
+                    + "key=com.example.app/.MainActivity,Timer= 398 ;TI;1");
+    static final List<String> EVENT_LINES = Arrays.asList(
+            "10-18 12:00:01.240  1021  1121 I am_activity_launch_time: "
+                    + "[0,12345678,com.example.app/.MainActivity,1234,1234]",
+            "10-18 12:00:01.240  1021  1121 I wm_activity_launch_time: [0,12345678,com.example.app/.MainActivity,1234]",
+            "10-18 12:00:02.310  1021  1121 I am_activity_fully_drawn_time: "
+                    + "[0,12345678,com.example.app/.MainActivity,2310]",
+            "10-18 12:00:02.311  1021  1121 I wm_activity_fully_drawn_time: "
+                    + "[0,12345678,com.example.app/.MainActivity, 2311]");
+
+    /**
+     * The split-based timer parsing replaced by {@link LaunchMarkerExtractor#parseTimer(CharSequence)}.
+     */
+    static int splitTimer(String line) {
+        try {
+            String timer = line.split("Timer=")[1];
+            timer = timer.split(";")[0];
+            timer = timer.split("TI")[0];
+            timer = timer.split("\\.")[0];
+            return Integer.parseInt(timer.trim());
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    /**
+     * The split-based event parsing replaced by {@link LaunchMarkerExtractor#parseLastEventValue(CharSequence)}.
+     */
+    static int splitLastEventValue(String line) {
+        try {
+            String event = line.split("]")[0];
+            event = event.split("\\[")[1];
+            String[] fields = event.split(",");
+            return Integer.parseInt(fields[fields.length - 1].trim());
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    public static void main(String[] args) {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        for (String line : TIMER_LINES) check(line, splitTimer(line), LaunchMarkerExtractor.parseTimer(line));
+        for (String line : EVENT_LINES) {
+            check(line, splitLastEventValue(line), LaunchMarkerExtractor.parseLastEventValue(line));
+        }
+
+        ToIntFunction<String> split = line -> line.contains("Timer=") ? splitTimer(line) : splitLastEventValue(line);
+        ToIntFunction<String> inPlace = line -> line.contains("Timer=") ? LaunchMarkerExtractor.parseTimer(line)
+                : LaunchMarkerExtractor.parseLastEventValue(line);
+        String[] lines = new String[TIMER_LINES.size() + EVENT_LINES.size()];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = i < TIMER_LINES.size() ? TIMER_LINES.get(i) : EVENT_LINES.get(i - TIMER_LINES.size());
+        }
+        // Warm up both parsers before timing them
+        run(lines, split, rounds / 10);
+        run(lines, inPlace, rounds / 10);
+        double splitRate = rate(lines, split, rounds), inPlaceRate = rate(lines, inPlace, rounds);
+        System.out.println(String.format(Locale.ROOT, "split-based: %.2fM lines/s, in-place: %.2fM lines/s, %.1fx",
+                splitRate / 1e6, inPlaceRate / 1e6, inPlaceRate / splitRate));
+    }
+
+    private static void check(String line, int expected, int actual) {
+        if (expected != actual) {
+            throw new IllegalStateException("Parsers disagree (" + expected + " vs " + actual + ") on " + line);
+        }
+    }
+
+    private static double rate(String[] lines, ToIntFunction<String> parser, int rounds) {
+        long start = System.nanoTime();
+        long checksum = run(lines, parser, rounds);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (checksum == 0) System.out.println("No values parsed");
+        return (double) rounds * lines.length / seconds;
+    }
+
+    private static long run(String[] lines, ToIntFunction<String> parser, int rounds) {
+        long checksum = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (String line : lines) checksum += parser.applyAsInt(line);
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,41 @@
+package commonUtils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Checks the names and KPI ids of {@link LogMarkerKpi} definitions.
+ */
+public class LogMarkerKpiTest {
+
+    @Test
+    public void builtInKpiNamesAreRejected() {
+        List<LogMarkerKpi> markers = LogMarkerKpi.parse(definitions("FF, rtu, railLoaded"));
+        Assert.assertEquals(markers.size(), 1);
+        Assert.assertEquals(markers.get(0).getName(), "railLoaded");
+    }
+
+    @Test
+    public void kpiIdsDoNotDependOnTheOrder() {
+        List<LogMarkerKpi> ordered = LogMarkerKpi.parse(definitions("railLoaded, playerReady"));
+        List<LogMarkerKpi> reordered = LogMarkerKpi.parse(definitions("playerReady, railLoaded"));
+        for (int launchTypeId = 1; launchTypeId <= 3; launchTypeId++) {
+            Assert.assertEquals(ordered.get(0).kpiId(launchTypeId), reordered.get(1).kpiId(launchTypeId));
+            Assert.assertEquals(ordered.get(1).kpiId(launchTypeId), reordered.get(0).kpiId(launchTypeId));
+            Assert.assertTrue(ordered.get(0).kpiId(launchTypeId) > 1000);
+        }
+        Assert.assertNotEquals(ordered.get(0).kpiId(1), ordered.get(1).kpiId(1));
+    }
+
+    private static Properties definitions(String names) {
+        Properties definitions = new Properties();
+        definitions.setProperty("logMarkers", names);
+        for (String name : names.split(",")) {
+            definitions.setProperty("logMarker." + name.trim() + ".end", "loaded");
+        }
+        return definitions;
+    }
+}
@@ -0,0 +1,65 @@
+package commonUtils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * Checks the percentiles of {@link QuantileRecorder} against {@link DataUtils#calculatePercentile}.
+ */
+public class QuantileRecorderTest {
+
+    @Test
+    public void percentilesAreRecordedValues() {
+        double[] launches = {2.5, 2.6, 2.7, 3.1, 4.2, 4.5, 1.2};
+        QuantileRecorder recorder = record(launches);
+        for (int percentile : new int[]{10, 50, 90, 99}) {
+            Assert.assertEquals(recorder.getPercentile(percentile),
+                    DataUtils.calculatePercentile(launches, percentile), "TP" + percentile);
+        }
+    }
+
+    @Test
+    public void percentilesMatchSortedSamples() {
+        Random random = new Random(42);
+        double[] launches = new double[50];
+        for (int i = 0; i < launches.length; i++) launches[i] = Math.round(800 + random.nextDouble() * 4000) / 1000.0;
+        QuantileRecorder recorder = record(launches);
+        for (int percentile = 1; percentile <= 100; percentile++) {
+            Assert.assertEquals(recorder.getPercentile(percentile),
+                    DataUtils.calculatePercentile(launches, percentile), "TP" + percentile);
+        }
+    }
+
+    @Test
+    public void mergedAndDecodedRecordersKeepExactValues() {
+        double[] first = {2.5, 2.6, 2.7}, second = {3.1, 4.2, 4.5, 1.2};
+        QuantileRecorder merged = record(first);
+        merged.merge(record(second));
+        QuantileRecorder decoded = QuantileRecorder.decode(merged.encode());
+        double[] all = {2.5, 2.6, 2.7, 3.1, 4.2, 4.5, 1.2};
+        Assert.assertEquals(merged.getPercentile(50), DataUtils.calculatePercentile(all, 50));
+        Assert.assertEquals(decoded.getPercentile(50), DataUtils.calculatePercentile(all, 50));
+        Assert.assertEquals(decoded.getPercentile(90), DataUtils.calculatePercentile(all, 90));
+    }
+
+    @Test
+    public void confidenceIntervalExistsFromTheExactMinimumCount() {
+        QuantileRecorder recorder = new QuantileRecorder(DataUtils.LATENCY_DECIMALS);
+        for (int n = 1; n <= 50; n++) {
+            recorder.record(1 + n / 1000.0);
+            Assert.assertEquals(recorder.getConfidenceInterval(50) != null, n >= 6, "TP50 with " + n + " values");
+            Assert.assertEquals(recorder.getConfidenceInterval(90) != null, n >= 29, "TP90 with " + n + " values");
+        }
+        // The bounds are measured values on either side of TP90
+        double[] interval = recorder.getConfidenceInterval(90);
+        Assert.assertTrue(interval[0] < recorder.getPercentile(90) && recorder.getPercentile(90) < interval[1]);
+    }
+
+    private static QuantileRecorder record(double[] values) {
+        QuantileRecorder recorder = new QuantileRecorder(DataUtils.LATENCY_DECIMALS);
+        for (double value : values) recorder.record(value);
+        return recorder;
+    }
+}